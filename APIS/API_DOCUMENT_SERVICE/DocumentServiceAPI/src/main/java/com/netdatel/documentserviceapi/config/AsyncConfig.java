@@ -25,6 +25,30 @@ public class AsyncConfig implements AsyncConfigurer {
         return executor;
     }
 
+    // Pool exclusivo del motor de descargas masivas; su tamaño es el límite de trabajos por nodo
+    @Bean(name = "batchDownloadExecutor")
+    public Executor batchDownloadExecutor(BatchDownloadProperties batchDownloadProperties) {
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(batchDownloadProperties.getWorkerThreads());
+        executor.setMaxPoolSize(batchDownloadProperties.getWorkerThreads());
+        executor.setThreadNamePrefix("BatchDownload-");
+        executor.initialize();
+        return executor;
+    }
+
+    // Escrituras en almacenamiento de las subidas masivas; compartido por todas las peticiones del nodo.
+    // La cola es acotada: al llenarse se rechaza la tarea y BulkUploadServiceImpl la ejecuta en el hilo llamador
+    @Bean(name = "bulkUploadExecutor")
+    public Executor bulkUploadExecutor(UploadProperties uploadProperties) {
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(uploadProperties.getBulkParallelism());
+        executor.setMaxPoolSize(uploadProperties.getBulkParallelism());
+        executor.setQueueCapacity(uploadProperties.getBulkQueueCapacity());
+        executor.setThreadNamePrefix("BulkUpload-");
+        executor.initialize();
+        return executor;
+    }
+
     @Override
     public Executor getAsyncExecutor() {
         return taskExecutor();
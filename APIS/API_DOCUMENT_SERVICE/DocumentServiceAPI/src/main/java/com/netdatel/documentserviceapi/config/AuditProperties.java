@@ -0,0 +1,28 @@
+package com.netdatel.documentserviceapi.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+
+@ConfigurationProperties(prefix = "audit")
+@Data
+public class AuditProperties {
+    private int queueCapacity = 10_000;
+    private int batchSize = 500;
+    private Duration flushInterval = Duration.ofSeconds(1);
+    private OverflowPolicy overflowPolicy = OverflowPolicy.DROP;
+    // Espera máxima con BLOCK antes de descartar el evento
+    private Duration maxBlockTime = Duration.ofMillis(100);
+    private Duration shutdownTimeout = Duration.ofSeconds(10);
+    // Meses de historial detallado que se conservan; las particiones más antiguas se eliminan
+    private int retentionMonths = 12;
+    private int rollupRetentionMonths = 36;
+    // Particiones mensuales que se crean por adelantado
+    private int partitionsAhead = 2;
+
+    public enum OverflowPolicy {
+        DROP,
+        BLOCK
+    }
+}
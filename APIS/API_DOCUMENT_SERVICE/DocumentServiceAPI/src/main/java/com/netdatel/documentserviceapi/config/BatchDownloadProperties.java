@@ -0,0 +1,44 @@
+package com.netdatel.documentserviceapi.config;
+
+import jakarta.annotation.PostConstruct;
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+
+@ConfigurationProperties(prefix = "batch-download")
+@Data
+public class BatchDownloadProperties {
+    // Cantidad de archivos que se piden a almacenamiento por delante del que se está escribiendo
+    private int prefetchWindow = 4;
+    private int prefetchThreads = 8;
+    // Bytes iniciales de cada archivo que se leen por adelantado; limita la memoria a window * buffer
+    private int prefetchBufferSize = 1024 * 1024;
+    // Tamaño de cada parte del multipart upload del ZIP generado; S3/MinIO exigen al menos 5 MiB salvo en la última
+    private int partSize = 8 * 1024 * 1024;
+    // Umbral bajo el cual la carpeta se descarga en streaming directo; por encima se usa el proceso asíncrono
+    private int streamMaxFiles = 200;
+    private long streamMaxBytes = 512L * 1024 * 1024;
+
+    // Motor de trabajos: límite de trabajos simultáneos por nodo y por espacio de cliente
+    private int workerThreads = 2;
+    private int maxJobsPerClientSpace = 1;
+    private Duration pollInterval = Duration.ofSeconds(2);
+    // Frecuencia máxima de escritura del progreso en la base de datos
+    private Duration progressUpdateInterval = Duration.ofSeconds(2);
+    private Duration heartbeatInterval = Duration.ofSeconds(30);
+    // Un trabajo sin latido durante este tiempo se considera huérfano
+    private Duration orphanTimeout = Duration.ofMinutes(5);
+    private int maxAttempts = 3;
+
+    public static final int MIN_PART_SIZE = 5 * 1024 * 1024;
+
+    // Un tamaño menor solo fallaría al completar el multipart upload, después de subir todo el ZIP
+    @PostConstruct
+    public void validate() {
+        if (partSize < MIN_PART_SIZE) {
+            throw new IllegalStateException("batch-download.part-size must be at least " + MIN_PART_SIZE
+                    + " bytes, got " + partSize);
+        }
+    }
+}
@@ -0,0 +1,19 @@
+package com.netdatel.documentserviceapi.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+@ConfigurationProperties(prefix = "storage.local")
+@Data
+public class LocalStorageProperties {
+    private String rootDir = "./data/storage";
+    // Niveles de subdirectorio (2 hex cada uno) para no acumular millones de archivos en un solo directorio
+    private int shardDepth = 2;
+    // Forzar a disco antes de publicar el objeto; desactivar solo en pruebas de rendimiento
+    private boolean fsync = true;
+    // URL pública de esta API; las URLs de descarga apuntan a su endpoint de objetos firmado con signingKey.
+    // Sin ambas no se generan URLs de descarga
+    private String publicBaseUrl;
+    // Secreto HMAC de las URLs de descarga; compartido por todos los nodos
+    private String signingKey;
+}
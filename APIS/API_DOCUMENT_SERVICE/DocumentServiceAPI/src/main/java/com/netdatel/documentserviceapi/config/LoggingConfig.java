@@ -1,25 +1,40 @@
 package com.netdatel.documentserviceapi.config;
 
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tags;
+import io.micrometer.core.instrument.Timer;
+import jakarta.servlet.AsyncEvent;
+import jakarta.servlet.AsyncListener;
 import jakarta.servlet.FilterChain;
 import jakarta.servlet.ServletException;
+import jakarta.servlet.ServletOutputStream;
+import jakarta.servlet.WriteListener;
 import jakarta.servlet.http.HttpServletRequest;
 import jakarta.servlet.http.HttpServletResponse;
+import jakarta.servlet.http.HttpServletResponseWrapper;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.boot.web.servlet.FilterRegistrationBean;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
-import org.springframework.stereotype.Component;
 import org.springframework.web.filter.OncePerRequestFilter;
-import org.springframework.web.util.ContentCachingResponseWrapper;
+import org.springframework.web.servlet.HandlerMapping;
 
+import java.io.FilterWriter;
 import java.io.IOException;
+import java.io.PrintWriter;
+import java.io.Writer;
+import java.nio.CharBuffer;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.TimeUnit;
 
 @Configuration
 public class LoggingConfig {
 
     @Bean
-    public LoggingFilter loggingFilter() {
-        return new LoggingFilter();
+    public LoggingFilter loggingFilter(MeterRegistry meterRegistry) {
+        return new LoggingFilter(meterRegistry);
     }
 
     @Bean
@@ -32,41 +47,110 @@ public class LoggingConfig {
         return registration;
     }
 
-    @Component
+    /**
+     * Registro de acceso y métricas por ruta. La respuesta no se almacena: solo se cuentan los bytes
+     * a medida que pasan hacia el cliente, de modo que las descargas siguen saliendo en streaming.
+     * Las peticiones asíncronas (descargas, ZIP) se registran al completarse el AsyncContext.
+     */
     @Slf4j
     public static class LoggingFilter extends OncePerRequestFilter {
+        private final MeterRegistry meterRegistry;
+
+        public LoggingFilter(MeterRegistry meterRegistry) {
+            this.meterRegistry = meterRegistry;
+        }
 
         @Override
         protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response,
                                         FilterChain filterChain) throws ServletException, IOException {
-            long startTime = System.currentTimeMillis();
-
-            // Log de la solicitud
-            String requestMethod = request.getMethod();
-            String requestUrl = request.getRequestURI();
-            String queryString = request.getQueryString();
-            String fullUrl = queryString != null ? requestUrl + "?" + queryString : requestUrl;
-            String clientIp = getClientIp(request);
-            String userAgent = request.getHeader("User-Agent");
-
-            log.info("Request: {} {} from IP: {}, User-Agent: {}", requestMethod, fullUrl, clientIp, userAgent);
-
-            // Envolver la respuesta para capturar el código de estado
-            ContentCachingResponseWrapper responseWrapper = new ContentCachingResponseWrapper(response);
+            long startTime = System.nanoTime();
+            CountingResponseWrapper responseWrapper = new CountingResponseWrapper(response);
 
+            boolean async = false;
             try {
-                // Continuar con la cadena de filtros
                 filterChain.doFilter(request, responseWrapper);
+                async = request.isAsyncStarted();
             } finally {
-                // Log de la respuesta
-                long duration = System.currentTimeMillis() - startTime;
-                int status = responseWrapper.getStatus();
+                if (async) {
+                    request.getAsyncContext().addListener(new CompletionListener(request, responseWrapper, startTime));
+                } else {
+                    record(request, responseWrapper, startTime);
+                }
+            }
+        }
+
+        /**
+         * Registra la petición al terminar el último ciclo asíncrono. Un CompletableFuture que devuelve un
+         * StreamingResponseBody abre dos ciclos y el contenedor descarta los listeners al iniciar cada uno,
+         * por eso el listener se vuelve a registrar en onStartAsync. Tras onTimeout u onError el contenedor
+         * siempre termina el ciclo y llama a onComplete, que es el único punto de registro.
+         */
+        private class CompletionListener implements AsyncListener {
+            private final HttpServletRequest request;
+            private final CountingResponseWrapper response;
+            private final long startTime;
+
+            CompletionListener(HttpServletRequest request, CountingResponseWrapper response, long startTime) {
+                this.request = request;
+                this.response = response;
+                this.startTime = startTime;
+            }
+
+            @Override
+            public void onComplete(AsyncEvent event) {
+                record(request, response, startTime);
+            }
+
+            @Override
+            public void onTimeout(AsyncEvent event) {
+            }
+
+            @Override
+            public void onError(AsyncEvent event) {
+            }
 
-                log.info("Response: {} {} - {} in {}ms", requestMethod, fullUrl, status, duration);
+            @Override
+            public void onStartAsync(AsyncEvent event) {
+                event.getAsyncContext().addListener(this);
+            }
+        }
+
+        private void record(HttpServletRequest request, CountingResponseWrapper response, long startTime) {
+            long duration = System.nanoTime() - startTime;
+            String method = request.getMethod();
+            int status = response.getStatus();
+            String route = getRoute(request, status);
+            long bytes = response.getBytesWritten();
 
-                // Importante: copiar el contenido de la respuesta al cliente
-                responseWrapper.copyBodyToResponse();
+            Tags tags = Tags.of("method", method, "route", route, "status", Integer.toString(status));
+            Timer.builder("http.api.requests")
+                    .description("Duración de las peticiones a la API por ruta")
+                    .tags(tags)
+                    .register(meterRegistry)
+                    .record(duration, TimeUnit.NANOSECONDS);
+            DistributionSummary.builder("http.api.response.size")
+                    .description("Bytes enviados en el cuerpo de la respuesta por ruta")
+                    .baseUnit("bytes")
+                    .tags(tags)
+                    .register(meterRegistry)
+                    .record(bytes);
+
+            String queryString = request.getQueryString();
+            String fullUrl = queryString != null
+                    ? request.getRequestURI() + "?" + queryString
+                    : request.getRequestURI();
+            log.info("{} {} ({}) - {} {} bytes in {}ms from IP: {}, User-Agent: {}",
+                    method, fullUrl, route, status, bytes, TimeUnit.NANOSECONDS.toMillis(duration),
+                    getClientIp(request), request.getHeader("User-Agent"));
+        }
+
+        // Plantilla de la ruta (p. ej. /api/files/{id}) para que las URLs con IDs no disparen la cardinalidad
+        private String getRoute(HttpServletRequest request, int status) {
+            Object pattern = request.getAttribute(HandlerMapping.BEST_MATCHING_PATTERN_ATTRIBUTE);
+            if (pattern != null) {
+                return pattern.toString();
             }
+            return status == HttpServletResponse.SC_NOT_FOUND ? "NOT_FOUND" : "UNKNOWN";
         }
 
         private String getClientIp(HttpServletRequest request) {
@@ -83,4 +167,129 @@ public class LoggingConfig {
             return request.getRemoteAddr();
         }
     }
-}
\ No newline at end of file
+
+    /**
+     * Cuenta los bytes del cuerpo sin copiarlos: cada escritura se delega tal cual a la respuesta original.
+     * Lo escrito por el Writer se cuenta según su longitud codificada en el charset de la respuesta.
+     */
+    private static class CountingResponseWrapper extends HttpServletResponseWrapper {
+        // Un solo hilo escribe a la vez, pero el registro final puede leerse desde otro hilo
+        private volatile long bytesWritten;
+        private ServletOutputStream outputStream;
+        private PrintWriter writer;
+
+        CountingResponseWrapper(HttpServletResponse response) {
+            super(response);
+        }
+
+        long getBytesWritten() {
+            return bytesWritten;
+        }
+
+        @Override
+        public ServletOutputStream getOutputStream() throws IOException {
+            if (outputStream == null) {
+                outputStream = new CountingOutputStream(super.getOutputStream());
+            }
+            return outputStream;
+        }
+
+        @Override
+        public PrintWriter getWriter() throws IOException {
+            if (writer == null) {
+                writer = new PrintWriter(new CountingWriter(super.getWriter(),
+                        Charset.forName(getCharacterEncoding())));
+            }
+            return writer;
+        }
+
+        private class CountingOutputStream extends ServletOutputStream {
+            private final ServletOutputStream delegate;
+
+            CountingOutputStream(ServletOutputStream delegate) {
+                this.delegate = delegate;
+            }
+
+            @Override
+            public void write(int b) throws IOException {
+                delegate.write(b);
+                bytesWritten++;
+            }
+
+            @Override
+            public void write(byte[] b, int off, int len) throws IOException {
+                delegate.write(b, off, len);
+                bytesWritten += len;
+            }
+
+            @Override
+            public void flush() throws IOException {
+                delegate.flush();
+            }
+
+            @Override
+            public void close() throws IOException {
+                delegate.close();
+            }
+
+            @Override
+            public boolean isReady() {
+                return delegate.isReady();
+            }
+
+            @Override
+            public void setWriteListener(WriteListener writeListener) {
+                delegate.setWriteListener(writeListener);
+            }
+        }
+
+        private class CountingWriter extends FilterWriter {
+            private final Charset charset;
+            private final boolean utf8;
+
+            CountingWriter(Writer delegate, Charset charset) {
+                super(delegate);
+                this.charset = charset;
+                this.utf8 = StandardCharsets.UTF_8.equals(charset);
+            }
+
+            @Override
+            public void write(int c) throws IOException {
+                super.write(c);
+                bytesWritten += encodedLength(CharBuffer.wrap(new char[]{(char) c}));
+            }
+
+            @Override
+            public void write(char[] cbuf, int off, int len) throws IOException {
+                super.write(cbuf, off, len);
+                bytesWritten += encodedLength(CharBuffer.wrap(cbuf, off, len));
+            }
+
+            @Override
+            public void write(String str, int off, int len) throws IOException {
+                super.write(str, off, len);
+                bytesWritten += encodedLength(CharBuffer.wrap(str, off, off + len));
+            }
+
+            // En UTF-8 se calcula sin codificar; cada mitad de un par sustituto aporta 2 de sus 4 bytes
+            private long encodedLength(CharBuffer chars) {
+                if (!utf8) {
+                    return charset.encode(chars).remaining();
+                }
+
+                long length = 0;
+                while (chars.hasRemaining()) {
+                    char c = chars.get();
+                    if (c < 0x80) {
+                        length += 1;
+                    } else if (c < 0x800 || Character.isSurrogate(c)) {
+                        length += 2;
+                    } else {
+                        length += 3;
+                    }
+                }
+                return length;
+            }
+        }
+    }
+}
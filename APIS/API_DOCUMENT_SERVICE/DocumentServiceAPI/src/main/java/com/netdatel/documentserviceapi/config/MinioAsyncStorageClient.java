@@ -0,0 +1,47 @@
+package com.netdatel.documentserviceapi.config;
+
+import com.google.common.collect.HashMultimap;
+import com.google.common.collect.Multimap;
+import io.minio.MinioAsyncClient;
+import io.minio.messages.Part;
+
+import java.io.InputStream;
+
+/**
+ * Cliente asíncrono compartido de MinIO: atiende las lecturas (getObject, statObject) sobre el pool de OkHttp
+ * común y, además, expone las operaciones de multipart upload de S3 que el SDK deja como protegidas, usadas
+ * por las sesiones de subida por partes, donde cada parte llega en una petición distinta.
+ */
+public class MinioAsyncStorageClient extends MinioAsyncClient {
+
+    public MinioAsyncStorageClient(MinioAsyncClient client) {
+        super(client);
+    }
+
+    public String createMultipartUpload(String bucket, String object, String contentType) throws Exception {
+        Multimap<String, String> headers = HashMultimap.create();
+        if (contentType != null) {
+            headers.put("Content-Type", contentType);
+        }
+
+        return createMultipartUploadAsync(bucket, null, object, headers, null)
+                .get()
+                .result()
+                .uploadId();
+    }
+
+    public String uploadPart(String bucket, String object, String uploadId, int partNumber,
+                             InputStream data, long length) throws Exception {
+        return uploadPartAsync(bucket, null, object, data, length, uploadId, partNumber, null, null)
+                .get()
+                .etag();
+    }
+
+    public void completeMultipartUpload(String bucket, String object, String uploadId, Part[] parts) throws Exception {
+        completeMultipartUploadAsync(bucket, null, object, uploadId, parts, null, null).get();
+    }
+
+    public void abortMultipartUpload(String bucket, String object, String uploadId) throws Exception {
+        abortMultipartUploadAsync(bucket, null, object, uploadId, null, null).get();
+    }
+}
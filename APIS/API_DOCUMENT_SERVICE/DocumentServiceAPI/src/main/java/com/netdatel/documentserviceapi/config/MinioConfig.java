@@ -1,12 +1,18 @@
 package com.netdatel.documentserviceapi.config;
 
+import io.minio.MinioAsyncClient;
 import io.minio.MinioClient;
 import lombok.RequiredArgsConstructor;
+import okhttp3.ConnectionPool;
+import okhttp3.Dispatcher;
+import okhttp3.OkHttpClient;
 import org.springframework.boot.context.properties.EnableConfigurationProperties;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.context.annotation.Profile;
 
+import java.util.concurrent.TimeUnit;
+
 @Configuration
 @EnableConfigurationProperties(MinioProperties.class)
 @RequiredArgsConstructor
@@ -14,11 +20,46 @@ import org.springframework.context.annotation.Profile;
 public class MinioConfig {
     private final MinioProperties minioProperties;
 
+    /**
+     * Un solo pool de conexiones para todos los clientes: las peticiones síncronas reutilizan las conexiones
+     * abiertas por las asíncronas. El Dispatcher solo limita las asíncronas; los defaults de OkHttp
+     * (5 por host) serializarían las transferencias paralelas contra MinIO.
+     */
+    @Bean
+    public OkHttpClient minioHttpClient() {
+        MinioProperties.Http http = minioProperties.getHttp();
+
+        Dispatcher dispatcher = new Dispatcher();
+        dispatcher.setMaxRequests(http.getMaxRequests());
+        dispatcher.setMaxRequestsPerHost(http.getMaxRequestsPerHost());
+
+        return new OkHttpClient.Builder()
+                .connectionPool(new ConnectionPool(http.getMaxIdleConnections(),
+                        http.getKeepAlive().toMillis(), TimeUnit.MILLISECONDS))
+                .dispatcher(dispatcher)
+                .connectTimeout(http.getConnectTimeout())
+                .readTimeout(http.getReadTimeout())
+                .writeTimeout(http.getWriteTimeout())
+                .retryOnConnectionFailure(true)
+                .build();
+    }
+
     @Bean
-    public MinioClient minioClient() {
+    public MinioClient minioClient(OkHttpClient minioHttpClient) {
         return MinioClient.builder()
                 .endpoint(minioProperties.getUrl())
                 .credentials(minioProperties.getAccessKey(), minioProperties.getSecretKey())
+                .httpClient(minioHttpClient)
                 .build();
     }
-}
\ No newline at end of file
+
+    // Cliente asíncrono: además de las subidas por partes, atiende las lecturas con CompletableFuture
+    @Bean
+    public MinioAsyncStorageClient minioAsyncStorageClient(OkHttpClient minioHttpClient) {
+        return new MinioAsyncStorageClient(MinioAsyncClient.builder()
+                .endpoint(minioProperties.getUrl())
+                .credentials(minioProperties.getAccessKey(), minioProperties.getSecretKey())
+                .httpClient(minioHttpClient)
+                .build());
+    }
+}
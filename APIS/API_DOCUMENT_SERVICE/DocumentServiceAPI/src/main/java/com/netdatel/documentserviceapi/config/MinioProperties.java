@@ -3,6 +3,8 @@ package com.netdatel.documentserviceapi.config;
 import lombok.Data;
 import org.springframework.boot.context.properties.ConfigurationProperties;
 
+import java.time.Duration;
+
 @ConfigurationProperties(prefix = "minio")
 @Data
 public class MinioProperties {
@@ -12,4 +14,19 @@ public class MinioProperties {
     private String bucketName;
     private boolean secure;
     private boolean enabled;
-}
\ No newline at end of file
+    private Http http = new Http();
+
+    // Cliente HTTP compartido por los clientes síncrono y asíncrono de MinIO
+    @Data
+    public static class Http {
+        private int maxIdleConnections = 64;
+        private Duration keepAlive = Duration.ofMinutes(5);
+        private Duration connectTimeout = Duration.ofSeconds(5);
+        // Tiempo máximo sin recibir/enviar bytes, no duración total de la transferencia
+        private Duration readTimeout = Duration.ofMinutes(2);
+        private Duration writeTimeout = Duration.ofMinutes(2);
+        // Límites de peticiones asíncronas en vuelo; todas van al mismo host, así que maxRequestsPerHost es el efectivo
+        private int maxRequests = 256;
+        private int maxRequestsPerHost = 128;
+    }
+}
@@ -0,0 +1,15 @@
+package com.netdatel.documentserviceapi.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+
+@ConfigurationProperties(prefix = "permission-cache")
+@Data
+public class PermissionCacheProperties {
+    private boolean enabled = true;
+    private long maximumSize = 100_000;
+    // Los cambios hechos en otros nodos solo se ven al expirar la entrada
+    private Duration ttl = Duration.ofMinutes(1);
+}
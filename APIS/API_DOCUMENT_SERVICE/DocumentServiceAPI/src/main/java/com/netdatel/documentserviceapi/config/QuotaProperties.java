@@ -0,0 +1,15 @@
+package com.netdatel.documentserviceapi.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+
+@ConfigurationProperties(prefix = "quota")
+@Data
+public class QuotaProperties {
+    private int lockStripes = 64;
+    // Vigencia de una reserva de subida directa; las sesiones por partes usan su propia expiración
+    private Duration reservationTtl = Duration.ofHours(1);
+    private Duration reconcileInterval = Duration.ofSeconds(30);
+}
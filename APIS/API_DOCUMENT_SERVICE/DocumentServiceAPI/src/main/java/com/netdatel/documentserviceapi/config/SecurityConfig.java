@@ -1,6 +1,7 @@
 package com.netdatel.documentserviceapi.config;
 
 import com.netdatel.documentserviceapi.security.JwtFilter;
+import com.netdatel.documentserviceapi.service.impl.LocalStorageServiceImpl;
 import lombok.RequiredArgsConstructor;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
@@ -30,6 +31,8 @@ public class SecurityConfig {
                 .csrf(csrf -> csrf.disable())
                 .authorizeHttpRequests(auth -> auth
                         .requestMatchers("/api/health").permitAll()
+                        // La URL firmada es la autorización de la descarga
+                        .requestMatchers(LocalStorageServiceImpl.DOWNLOAD_PATH).permitAll()
                         .requestMatchers("/swagger-ui/**", "/v3/api-docs/**").permitAll()
                         .anyRequest().permitAll() // Permite todas las solicitudes temporalmente
                 )
@@ -0,0 +1,18 @@
+package com.netdatel.documentserviceapi.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+
+@ConfigurationProperties(prefix = "storage.cache")
+@Data
+public class StorageCacheProperties {
+    private boolean enabled = false;
+    private String dir = "./data/storage-cache";
+    private long maxSize = 10L * 1024 * 1024 * 1024;
+    // Objetos más grandes se sirven siempre desde MinIO para no desplazar toda la caché
+    private long maxObjectSize = 256L * 1024 * 1024;
+    // Tiempo que una lectura concurrente espera a que otra termine de llenar la misma clave
+    private Duration fillWaitTimeout = Duration.ofSeconds(5);
+}
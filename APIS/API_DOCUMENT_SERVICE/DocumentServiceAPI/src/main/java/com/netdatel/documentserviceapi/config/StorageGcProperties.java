@@ -0,0 +1,36 @@
+package com.netdatel.documentserviceapi.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+
+/**
+ * Valores por defecto de la purga de almacenamiento; cada espacio de cliente puede sobrescribir
+ * la retención de archivos eliminados y de versiones anteriores.
+ */
+@ConfigurationProperties(prefix = "storage-gc")
+@Data
+public class StorageGcProperties {
+    private boolean enabled = true;
+    private Duration interval = Duration.ofMinutes(10);
+    // Tiempo que un archivo eliminado puede recuperarse antes de purgarse
+    private int deletedRetentionDays = 30;
+    // Una versión anterior se purga solo si hay keepVersions más recientes y es más antigua que versionRetentionDays
+    private int keepVersions = 10;
+    private int versionRetentionDays = 90;
+    private int batchSize = 200;
+    private int removeBatchSize = 1000;
+    // Reserva de una entrada de la cola mientras un nodo la borra; si el nodo cae, vuelve a estar disponible
+    private Duration claimTimeout = Duration.ofMinutes(5);
+    // Espera antes de reintentar un objeto que no se pudo borrar; al agotar maxAttempts se aparta de la cola
+    private Duration retryDelay = Duration.ofMinutes(30);
+    private int maxAttempts = 10;
+
+    // Barrido de objetos del almacenamiento sin archivo, versión ni blob que los referencie
+    private boolean orphanSweepEnabled = true;
+    private Duration orphanSweepInterval = Duration.ofHours(24);
+    private String orphanSweepPrefix = "clients/";
+    // Antigüedad mínima de un objeto huérfano: da tiempo a que una subida en curso registre su fila
+    private Duration orphanGracePeriod = Duration.ofHours(24);
+}
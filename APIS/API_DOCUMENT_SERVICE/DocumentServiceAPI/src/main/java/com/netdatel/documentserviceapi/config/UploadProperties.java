@@ -0,0 +1,28 @@
+package com.netdatel.documentserviceapi.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+
+@ConfigurationProperties(prefix = "upload")
+@Data
+public class UploadProperties {
+    // S3/MinIO exige al menos 5MB por parte, salvo la última
+    private long minChunkSize = 5L * 1024 * 1024;
+    private long maxChunkSize = 64L * 1024 * 1024;
+    private long defaultChunkSize = 8L * 1024 * 1024;
+    private int maxChunks = 10000;
+    private Duration sessionTtl = Duration.ofHours(24);
+    private Duration cleanupInterval = Duration.ofMinutes(15);
+    // Una sesión que sigue en COMPLETING este tiempo después de vencer quedó huérfana (nodo caído) y se expira
+    private Duration completingTimeout = Duration.ofHours(1);
+
+    // Subida masiva: archivos por petición y escrituras simultáneas en almacenamiento por nodo
+    private int bulkMaxFiles = 500;
+    private int bulkParallelism = 8;
+    // Transferencias en curso por petición, para que un lote grande no acapare el pool compartido
+    private int bulkParallelismPerRequest = 4;
+    // Tareas en espera en el pool; con la cola llena la transferencia se hace en el hilo de la petición
+    private int bulkQueueCapacity = 32;
+}
@@ -4,19 +4,23 @@ import com.netdatel.documentserviceapi.exception.PermissionDeniedException;
 import com.netdatel.documentserviceapi.model.dto.request.BatchDownloadRequest;
 import com.netdatel.documentserviceapi.model.dto.response.ApiResponse;
 import com.netdatel.documentserviceapi.model.dto.response.BatchDownloadResponse;
+import com.netdatel.documentserviceapi.model.dto.response.CursorPageResponse;
 import com.netdatel.documentserviceapi.model.entity.BatchDownload;
+import com.netdatel.documentserviceapi.model.entity.Folder;
 import com.netdatel.documentserviceapi.security.CurrentUserId;
 import com.netdatel.documentserviceapi.service.BatchDownloadService;
+import com.netdatel.documentserviceapi.service.FolderService;
 import com.netdatel.documentserviceapi.service.PermissionService;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.tags.Tag;
 import jakarta.validation.Valid;
 import lombok.RequiredArgsConstructor;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
-import java.util.List;
-import java.util.stream.Collectors;
 
 @RestController
 @RequestMapping("/api/batch-downloads")
@@ -26,6 +30,7 @@ import java.util.stream.Collectors;
 public class BatchDownloadController {
     private final BatchDownloadService batchDownloadService;
     private final PermissionService permissionService;
+    private final FolderService folderService;
 
     @PostMapping
     @Operation(summary = "Iniciar descarga masiva", description = "Inicia un proceso de descarga masiva de una carpeta")
@@ -43,6 +48,39 @@ public class BatchDownloadController {
                 .body(ApiResponse.success("Proceso de descarga masiva iniciado", mapToResponse(batchDownload)));
     }
 
+    @GetMapping("/stream")
+    @Operation(summary = "Descargar carpeta como ZIP",
+            description = "Genera el ZIP de la carpeta en streaming directo si no supera el umbral configurado; " +
+                    "en caso contrario inicia una descarga masiva asíncrona")
+    public ResponseEntity<?> streamFolderZip(
+            @RequestParam Integer folderId,
+            @RequestParam(defaultValue = "true") boolean includeSubfolders,
+            @CurrentUserId Integer userId) {
+
+        // Verificar permiso de descarga en la carpeta
+        if (!permissionService.userCanDownloadFolder(userId, folderId))
+            throw new PermissionDeniedException("No tienes permiso para descargar archivos de esta carpeta");
+
+        // Carpetas grandes: usar el proceso asíncrono con URL prefirmada
+        if (!batchDownloadService.isStreamable(folderId, includeSubfolders)) {
+            BatchDownload batchDownload = batchDownloadService.startBatchDownload(
+                    new BatchDownloadRequest(folderId, includeSubfolders), userId);
+
+            return ResponseEntity.accepted()
+                    .body(ApiResponse.success("La carpeta supera el límite de descarga directa; proceso de descarga masiva iniciado",
+                            mapToResponse(batchDownload)));
+        }
+
+        Folder folder = folderService.getFolder(folderId);
+        StreamingResponseBody body = outputStream ->
+                batchDownloadService.streamFolderZip(folderId, includeSubfolders, outputStream);
+
+        return ResponseEntity.ok()
+                .contentType(MediaType.parseMediaType("application/zip"))
+                .header(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=\"" + folder.getName() + ".zip\"")
+                .body(body);
+    }
+
     @GetMapping("/{id}")
     @Operation(summary = "Obtener estado de descarga", description = "Obtiene el estado actual de un proceso de descarga masiva")
     public ResponseEntity<ApiResponse<BatchDownloadResponse>> getBatchDownloadStatus(
@@ -55,14 +93,19 @@ public class BatchDownloadController {
     }
 
     @GetMapping("/user")
-    @Operation(summary = "Listar descargas", description = "Lista todas las descargas masivas del usuario actual")
-    public ResponseEntity<ApiResponse<List<BatchDownloadResponse>>> getUserBatchDownloads(
+    @Operation(summary = "Listar descargas",
+            description = "Lista las descargas masivas del usuario actual, de la más reciente a la más antigua, "
+                    + "con paginación por cursor")
+    public ResponseEntity<ApiResponse<CursorPageResponse<BatchDownloadResponse>>> getUserBatchDownloads(
+            @RequestParam(required = false) String cursor,
+            @RequestParam(defaultValue = "50") int size,
+            @RequestParam(defaultValue = "false") boolean withCount,
             @CurrentUserId Integer userId) {
 
-        List<BatchDownload> batchDownloads = batchDownloadService.getUserBatchDownloads(userId);
+        CursorPageResponse<BatchDownload> page = batchDownloadService.getUserBatchDownloads(userId, cursor, size,
+                withCount);
 
-        return ResponseEntity.ok(ApiResponse.success(
-                batchDownloads.stream().map(this::mapToResponse).collect(Collectors.toList())));
+        return ResponseEntity.ok(ApiResponse.success(page.map(this::mapToResponse)));
     }
 
     private BatchDownloadResponse mapToResponse(BatchDownload batchDownload) {
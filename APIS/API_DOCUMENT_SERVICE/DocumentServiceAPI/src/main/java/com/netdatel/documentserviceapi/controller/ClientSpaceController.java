@@ -83,6 +83,10 @@ public class ClientSpaceController {
                 .storagePath(clientSpace.getStoragePath())
                 .totalQuotaBytes(clientSpace.getTotalQuotaBytes())
                 .usedBytes(clientSpace.getUsedBytes())
+                .physicalUsedBytes(clientSpace.getPhysicalUsedBytes())
+                .deletedRetentionDays(clientSpace.getDeletedRetentionDays())
+                .versionKeepCount(clientSpace.getVersionKeepCount())
+                .versionRetentionDays(clientSpace.getVersionRetentionDays())
                 .isActive(clientSpace.isActive())
                 .createdAt(clientSpace.getCreatedAt())
                 .updatedAt(clientSpace.getUpdatedAt())
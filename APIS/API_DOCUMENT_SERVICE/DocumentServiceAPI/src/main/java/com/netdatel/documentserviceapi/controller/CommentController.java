@@ -5,6 +5,7 @@ import com.netdatel.documentserviceapi.model.dto.request.CommentRequest;
 import com.netdatel.documentserviceapi.model.dto.request.CommentUpdateRequest;
 import com.netdatel.documentserviceapi.model.dto.response.ApiResponse;
 import com.netdatel.documentserviceapi.model.dto.response.CommentResponse;
+import com.netdatel.documentserviceapi.model.dto.response.CursorPageResponse;
 import com.netdatel.documentserviceapi.model.entity.FileComment;
 import com.netdatel.documentserviceapi.security.CurrentUserId;
 import com.netdatel.documentserviceapi.service.CommentService;
@@ -17,9 +18,6 @@ import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 
-import java.util.List;
-import java.util.stream.Collectors;
-
 @RestController
 @RequestMapping("/api/comments")
 @RequiredArgsConstructor
@@ -47,9 +45,13 @@ public class CommentController {
     }
 
     @GetMapping("/file/{fileId}")
-    @Operation(summary = "Listar comentarios", description = "Lista todos los comentarios de un archivo")
-    public ResponseEntity<ApiResponse<List<CommentResponse>>> getFileComments(
+    @Operation(summary = "Listar comentarios",
+            description = "Lista los comentarios de un archivo por orden de creación, con paginación por cursor")
+    public ResponseEntity<ApiResponse<CursorPageResponse<CommentResponse>>> getFileComments(
             @PathVariable Integer fileId,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(defaultValue = "50") int size,
+            @RequestParam(defaultValue = "false") boolean withCount,
             @CurrentUserId Integer userId) {
 
         // Verificar permiso de lectura en el archivo
@@ -57,10 +59,9 @@ public class CommentController {
             throw new PermissionDeniedException("No tienes permiso para ver comentarios en este archivo");
         }
 
-        List<FileComment> comments = commentService.getFileComments(fileId);
+        CursorPageResponse<FileComment> page = commentService.getFileComments(fileId, cursor, size, withCount);
 
-        return ResponseEntity.ok(ApiResponse.success(
-                comments.stream().map(this::mapToResponse).collect(Collectors.toList())));
+        return ResponseEntity.ok(ApiResponse.success(page.map(this::mapToResponse)));
     }
 
     @PutMapping("/{id}")
@@ -3,9 +3,13 @@ package com.netdatel.documentserviceapi.controller;
 import com.fasterxml.jackson.core.type.TypeReference;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.netdatel.documentserviceapi.exception.PermissionDeniedException;
+import com.netdatel.documentserviceapi.model.dto.request.BulkUploadFile;
 import com.netdatel.documentserviceapi.model.dto.request.FileUploadRequest;
+import com.netdatel.documentserviceapi.model.dto.request.MetadataSearchRequest;
 import com.netdatel.documentserviceapi.model.dto.request.PermissionRequest;
 import com.netdatel.documentserviceapi.model.dto.response.ApiResponse;
+import com.netdatel.documentserviceapi.model.dto.response.BulkUploadResponse;
+import com.netdatel.documentserviceapi.model.dto.response.CursorPageResponse;
 import com.netdatel.documentserviceapi.model.dto.response.FileResponse;
 import com.netdatel.documentserviceapi.model.dto.response.FileVersionResponse;
 import com.netdatel.documentserviceapi.model.dto.response.PermissionResponse;
@@ -13,34 +17,45 @@ import com.netdatel.documentserviceapi.model.entity.File;
 import com.netdatel.documentserviceapi.model.entity.FilePermission;
 import com.netdatel.documentserviceapi.model.entity.FileVersion;
 import com.netdatel.documentserviceapi.model.enums.ActionType;
+import com.netdatel.documentserviceapi.model.enums.FileSortField;
 import com.netdatel.documentserviceapi.model.enums.FileStatus;
+import com.netdatel.documentserviceapi.model.enums.PermissionBit;
 import com.netdatel.documentserviceapi.model.enums.ViewStatus;
 import com.netdatel.documentserviceapi.model.enums.ViewStatusColor;
 import com.netdatel.documentserviceapi.security.CurrentUserId;
 import com.netdatel.documentserviceapi.service.AuditService;
+import com.netdatel.documentserviceapi.service.BulkUploadService;
 import com.netdatel.documentserviceapi.service.FileService;
 import com.netdatel.documentserviceapi.service.PermissionService;
 import com.netdatel.documentserviceapi.service.StorageService;
+import com.netdatel.documentserviceapi.utils.FileRegionInputStream;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.tags.Tag;
 import jakarta.validation.Valid;
 import lombok.RequiredArgsConstructor;
-import org.springframework.core.io.ByteArrayResource;
-import org.springframework.core.io.Resource;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Sort;
 import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpRange;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
+import org.springframework.util.MimeTypeUtils;
 import org.springframework.web.bind.annotation.*;
 import org.springframework.web.multipart.MultipartFile;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
 
 import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.CompletableFuture;
 import java.util.stream.Collectors;
 
 @RestController
@@ -50,10 +65,13 @@ import java.util.stream.Collectors;
 @Tag(name = "Files", description = "API para gestionar archivos")
 public class FileController {
     private final FileService fileService;
+    private final BulkUploadService bulkUploadService;
     private final StorageService storageService;
     private final PermissionService permissionService;
     private final AuditService auditService;
 
+    private static final int STREAM_BUFFER_SIZE = 64 * 1024;
+
     @PostMapping(consumes = MediaType.MULTIPART_FORM_DATA_VALUE)
     @Operation(summary = "Subir archivo", description = "Sube un nuevo archivo a una carpeta")
     public ResponseEntity<ApiResponse<FileResponse>> uploadFile(
@@ -80,6 +98,55 @@ public class FileController {
                 .body(ApiResponse.success("Archivo subido exitosamente", mapToResponse(savedFile)));
     }
 
+    @PostMapping(value = "/bulk", consumes = MediaType.MULTIPART_FORM_DATA_VALUE)
+    @Operation(summary = "Subida masiva", description = "Sube varios archivos a una carpeta en una sola petición y devuelve el resultado de cada uno")
+    public ResponseEntity<ApiResponse<BulkUploadResponse<FileResponse>>> uploadFiles(
+            @RequestParam("files") List<MultipartFile> files,
+            @RequestParam("folderId") Integer folderId,
+            @RequestParam(value = "metadata", required = false) String metadataJson,
+            @CurrentUserId Integer userId) {
+
+        // Verificar permiso de escritura en la carpeta
+        if (!permissionService.userCanWriteFolder(userId, folderId)) {
+            throw new PermissionDeniedException("No tienes permiso para subir archivos a esta carpeta");
+        }
+
+        List<BulkUploadFile> uploads = files.stream()
+                .map(file -> BulkUploadFile.builder()
+                        .name(file.getOriginalFilename())
+                        .size(file.getSize())
+                        .contentType(file.getContentType() != null
+                                ? file.getContentType() : MediaType.APPLICATION_OCTET_STREAM_VALUE)
+                        .content(file)
+                        .build())
+                .collect(Collectors.toList());
+
+        BulkUploadResponse<File> result = bulkUploadService.uploadFiles(folderId, uploads,
+                parseJson(metadataJson), userId);
+
+        List<BulkUploadResponse.Item<FileResponse>> items = result.getItems().stream()
+                .map(item -> {
+                    if (item.getFile() != null) {
+                        auditService.logFileAccess(item.getFile().getId(), userId, ActionType.CREATE);
+                    }
+                    return BulkUploadResponse.Item.<FileResponse>builder()
+                            .name(item.getName())
+                            .file(item.getFile() != null ? mapToResponse(item.getFile()) : null)
+                            .error(item.getError())
+                            .build();
+                })
+                .collect(Collectors.toList());
+
+        BulkUploadResponse<FileResponse> response = BulkUploadResponse.<FileResponse>builder()
+                .items(items)
+                .uploaded(result.getUploaded())
+                .failed(result.getFailed())
+                .build();
+
+        return ResponseEntity.ok(ApiResponse.success(
+                result.getUploaded() + " de " + items.size() + " archivos subidos", response));
+    }
+
     @GetMapping("/{id}")
     @Operation(summary = "Obtener archivo", description = "Obtiene los metadatos de un archivo por su ID")
     public ResponseEntity<ApiResponse<FileResponse>> getFile(@PathVariable Integer id, @CurrentUserId Integer userId) {
@@ -96,8 +163,11 @@ public class FileController {
     }
 
     @GetMapping("/{id}/download")
-    @Operation(summary = "Descargar archivo", description = "Descarga el contenido de un archivo")
-    public ResponseEntity<Resource> downloadFile(@PathVariable Integer id, @CurrentUserId Integer userId) {
+    @Operation(summary = "Descargar archivo", description = "Descarga el contenido de un archivo, total o parcialmente (Range)")
+    public CompletableFuture<ResponseEntity<StreamingResponseBody>> downloadFile(
+            @PathVariable Integer id,
+            @RequestHeader HttpHeaders requestHeaders,
+            @CurrentUserId Integer userId) {
         File file = fileService.getFile(id);
 
         // Verificar permiso de descarga
@@ -105,17 +175,74 @@ public class FileController {
             throw new PermissionDeniedException("No tienes permiso para descargar este archivo");
         }
 
-        fileService.updateFileViewStatus(id, ViewStatus.DOWNLOADED, ViewStatusColor.GREEN);
-        auditService.logFileAccess(id, userId, ActionType.DOWNLOAD);
+        long fileSize = file.getFileSize();
+        String eTag = buildETag(file);
+        List<HttpRange> ranges = parseRanges(requestHeaders, eTag);
+
+        // Rango no satisfacible: responder 416 indicando el tamaño real
+        if (!ranges.isEmpty() && !rangesSatisfiable(ranges, fileSize)) {
+            return CompletableFuture.completedFuture(ResponseEntity.status(HttpStatus.REQUESTED_RANGE_NOT_SATISFIABLE)
+                    .header(HttpHeaders.CONTENT_RANGE, "bytes */" + fileSize)
+                    .<StreamingResponseBody>build());
+        }
 
-        byte[] content = storageService.downloadFile(file.getStorageKey());
-        ByteArrayResource resource = new ByteArrayResource(content);
+        // Un visor que salta por el documento genera muchas peticiones parciales;
+        // solo se registra la descarga cuando se pide el inicio del archivo
+        if (ranges.isEmpty() || ranges.get(0).getRangeStart(fileSize) == 0) {
+            fileService.updateFileViewStatus(id, ViewStatus.DOWNLOADED, ViewStatusColor.GREEN);
+            auditService.logFileAccess(id, userId, ActionType.DOWNLOAD);
+        }
+
+        MediaType mediaType = MediaType.parseMediaType(file.getMimeType());
+        String contentDisposition = "attachment; filename=\"" + file.getOriginalName() + "\"";
+
+        // Abrir el stream antes de responder para que los errores de almacenamiento se reporten con su código.
+        // La apertura es asíncrona: el hilo de Tomcat se libera mientras MinIO responde
+        if (ranges.isEmpty()) {
+            return storageService.getFileStreamAsync(file.getStorageKey())
+                    .thenApply(content -> ResponseEntity.ok()
+                            .contentLength(fileSize)
+                            .contentType(mediaType)
+                            .eTag(eTag)
+                            .header(HttpHeaders.ACCEPT_RANGES, "bytes")
+                            .header(HttpHeaders.CONTENT_DISPOSITION, contentDisposition)
+                            .body(outputStream -> streamContent(content, outputStream)));
+        }
+
+        if (ranges.size() == 1) {
+            long start = ranges.get(0).getRangeStart(fileSize);
+            long end = ranges.get(0).getRangeEnd(fileSize);
+
+            return storageService.getFileStreamAsync(file.getStorageKey(), start, end - start + 1)
+                    .thenApply(content -> ResponseEntity.status(HttpStatus.PARTIAL_CONTENT)
+                            .contentLength(end - start + 1)
+                            .contentType(mediaType)
+                            .eTag(eTag)
+                            .header(HttpHeaders.ACCEPT_RANGES, "bytes")
+                            .header(HttpHeaders.CONTENT_RANGE, "bytes " + start + "-" + end + "/" + fileSize)
+                            .header(HttpHeaders.CONTENT_DISPOSITION, contentDisposition)
+                            .body(outputStream -> streamContent(content, outputStream)));
+        }
 
-        return ResponseEntity.ok()
-                .contentLength(content.length)
-                .contentType(MediaType.parseMediaType(file.getMimeType()))
-                .header(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=\"" + file.getOriginalName() + "\"")
-                .body(resource);
+        // Varios rangos: respuesta multipart/byteranges, todas las partes se piden a la vez a MinIO
+        String boundary = MimeTypeUtils.generateMultipartBoundaryString();
+        List<CompletableFuture<InputStream>> parts = ranges.stream()
+                .map(range -> storageService.getFileStreamAsync(file.getStorageKey(), range.getRangeStart(fileSize),
+                        range.getRangeEnd(fileSize) - range.getRangeStart(fileSize) + 1))
+                .collect(Collectors.toList());
+
+        return CompletableFuture.allOf(parts.toArray(new CompletableFuture[0]))
+                .whenComplete((ignored, error) -> {
+                    if (error != null) {
+                        parts.forEach(part -> part.thenAccept(this::closeQuietly));
+                    }
+                })
+                .thenApply(ignored -> ResponseEntity.status(HttpStatus.PARTIAL_CONTENT)
+                        .contentType(MediaType.parseMediaType("multipart/byteranges; boundary=" + boundary))
+                        .eTag(eTag)
+                        .header(HttpHeaders.ACCEPT_RANGES, "bytes")
+                        .header(HttpHeaders.CONTENT_DISPOSITION, contentDisposition)
+                        .body(outputStream -> streamRanges(file, ranges, parts, boundary, mediaType, outputStream)));
     }
 
     @GetMapping("/{id}/presigned-url")
@@ -140,10 +267,17 @@ public class FileController {
     }
 
     @GetMapping("/folder/{folderId}")
-    @Operation(summary = "Listar archivos", description = "Lista todos los archivos en una carpeta")
-    public ResponseEntity<ApiResponse<List<FileResponse>>> getFilesByFolder(
+    @Operation(summary = "Listar archivos",
+            description = "Lista los archivos de una carpeta con paginación por cursor, ordenados por nombre, "
+                    + "fecha de subida o tamaño. El total solo se calcula si se pide con withCount")
+    public ResponseEntity<ApiResponse<CursorPageResponse<FileResponse>>> getFilesByFolder(
             @PathVariable Integer folderId,
             @RequestParam(defaultValue = "ACTIVE") FileStatus status,
+            @RequestParam(defaultValue = "NAME") FileSortField sort,
+            @RequestParam(defaultValue = "ASC") Sort.Direction direction,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(defaultValue = "50") int size,
+            @RequestParam(defaultValue = "false") boolean withCount,
             @CurrentUserId Integer userId) {
 
         // Verificar permiso de lectura en la carpeta
@@ -151,10 +285,10 @@ public class FileController {
             throw new PermissionDeniedException("No tienes permiso para listar archivos en esta carpeta");
         }
 
-        List<File> files = fileService.getFilesByFolder(folderId, status);
+        CursorPageResponse<File> page = fileService.getFilesByFolder(folderId, status, sort, direction,
+                cursor, size, withCount);
 
-        return ResponseEntity.ok(ApiResponse.success(
-                files.stream().map(this::mapToResponse).collect(Collectors.toList())));
+        return ResponseEntity.ok(ApiResponse.success(page.map(this::mapToResponse)));
     }
 
     @PutMapping("/{id}")
@@ -256,6 +390,129 @@ public class FileController {
         return ResponseEntity.ok(ApiResponse.success(response));
     }
 
+    @PostMapping("/metadata/search")
+    @Operation(summary = "Buscar archivos por metadatos",
+            description = "Filtra archivos de un espacio de cliente por contención, existencia de claves y rangos numéricos "
+                    + "sobre sus metadatos, con paginación por cursor")
+    public ResponseEntity<ApiResponse<CursorPageResponse<FileResponse>>> searchByMetadata(
+            @Valid @RequestBody MetadataSearchRequest request,
+            @CurrentUserId Integer userId) {
+
+        CursorPageResponse<File> page = fileService.searchByMetadata(request);
+
+        // Solo se devuelven los archivos que el usuario puede leer; el cursor sigue la página completa
+        Map<Integer, Integer> masks = permissionService.getFilePermissionMasks(userId,
+                page.getItems().stream().map(File::getId).collect(Collectors.toList()));
+
+        List<FileResponse> items = page.getItems().stream()
+                .filter(file -> PermissionBit.READ.isSet(masks.getOrDefault(file.getId(), 0)))
+                .map(this::mapToResponse)
+                .collect(Collectors.toList());
+
+        CursorPageResponse<FileResponse> response = CursorPageResponse.<FileResponse>builder()
+                .items(items)
+                .nextCursor(page.getNextCursor())
+                .hasMore(page.isHasMore())
+                .build();
+
+        return ResponseEntity.ok(ApiResponse.success(response));
+    }
+
+    /**
+     * Obtiene los rangos solicitados. Una cabecera Range inválida o un If-Range que no coincide
+     * con la versión actual se ignoran y se responde el archivo completo
+     */
+    private List<HttpRange> parseRanges(HttpHeaders requestHeaders, String eTag) {
+        String rangeHeader = requestHeaders.getFirst(HttpHeaders.RANGE);
+        if (rangeHeader == null) {
+            return Collections.emptyList();
+        }
+
+        String ifRange = requestHeaders.getFirst(HttpHeaders.IF_RANGE);
+        if (ifRange != null && !ifRange.equals(eTag)) {
+            return Collections.emptyList();
+        }
+
+        try {
+            return HttpRange.parseRanges(rangeHeader);
+        } catch (IllegalArgumentException e) {
+            return Collections.emptyList();
+        }
+    }
+
+    private boolean rangesSatisfiable(List<HttpRange> ranges, long fileSize) {
+        try {
+            long total = 0;
+            for (HttpRange range : ranges) {
+                total += range.getRangeEnd(fileSize) - range.getRangeStart(fileSize) + 1;
+            }
+            // Rechazar peticiones que suman más bytes que el propio archivo (rangos solapados abusivos)
+            return total <= fileSize;
+        } catch (IllegalArgumentException e) {
+            return false;
+        }
+    }
+
+    private void streamRanges(File file, List<HttpRange> ranges, List<CompletableFuture<InputStream>> parts,
+                              String boundary, MediaType mediaType, OutputStream outputStream) throws IOException {
+        long fileSize = file.getFileSize();
+
+        try {
+            for (int i = 0; i < ranges.size(); i++) {
+                long start = ranges.get(i).getRangeStart(fileSize);
+                long end = ranges.get(i).getRangeEnd(fileSize);
+
+                String partHeader = "\r\n--" + boundary + "\r\n"
+                        + HttpHeaders.CONTENT_TYPE + ": " + mediaType + "\r\n"
+                        + HttpHeaders.CONTENT_RANGE + ": bytes " + start + "-" + end + "/" + fileSize + "\r\n\r\n";
+                outputStream.write(partHeader.getBytes(StandardCharsets.US_ASCII));
+
+                streamContent(parts.get(i).join(), outputStream);
+            }
+
+            outputStream.write(("\r\n--" + boundary + "--\r\n").getBytes(StandardCharsets.US_ASCII));
+            outputStream.flush();
+        } finally {
+            // Si el cliente corta la descarga, liberar las conexiones de las partes no enviadas
+            parts.forEach(part -> closeQuietly(part.join()));
+        }
+    }
+
+    private void closeQuietly(InputStream stream) {
+        try {
+            stream.close();
+        } catch (IOException ignored) {
+            // El stream ya no se usará; un error al cerrarlo no afecta la respuesta
+        }
+    }
+
+    // La clave de almacenamiento cambia con cada versión, así que id + versión identifican el contenido
+    private String buildETag(File file) {
+        return "\"" + file.getId() + "-" + file.getVersion() + "\"";
+    }
+
+    /**
+     * Copia el contenido al cliente con un buffer fijo, de modo que la memoria usada
+     * por descarga no depende del tamaño del archivo
+     */
+    private void streamContent(InputStream content, OutputStream outputStream) throws IOException {
+        try (InputStream in = content) {
+            // Los archivos locales se copian con FileChannel.transferTo, sin pasar por este buffer
+            if (in instanceof FileRegionInputStream) {
+                in.transferTo(outputStream);
+                outputStream.flush();
+                return;
+            }
+
+            byte[] buffer = new byte[STREAM_BUFFER_SIZE];
+            int read;
+            while ((read = in.read(buffer)) != -1) {
+                outputStream.write(buffer, 0, read);
+            }
+            outputStream.flush();
+        }
+    }
+
     private FileResponse mapToResponse(File file) {
         return FileResponse.builder()
                 .id(file.getId())
@@ -2,9 +2,13 @@ package com.netdatel.documentserviceapi.controller;
 
 import com.fasterxml.jackson.core.type.TypeReference;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.netdatel.documentserviceapi.exception.PermissionDeniedException;
+import com.netdatel.documentserviceapi.model.dto.request.FolderMoveRequest;
 import com.netdatel.documentserviceapi.model.dto.request.FolderRequest;
 import com.netdatel.documentserviceapi.model.dto.request.PermissionRequest;
 import com.netdatel.documentserviceapi.model.dto.response.ApiResponse;
+import com.netdatel.documentserviceapi.model.dto.response.CursorPageResponse;
+import com.netdatel.documentserviceapi.model.dto.response.FolderMoveResponse;
 import com.netdatel.documentserviceapi.model.dto.response.FolderResponse;
 import com.netdatel.documentserviceapi.model.dto.response.PermissionResponse;
 import com.netdatel.documentserviceapi.model.entity.Folder;
@@ -53,19 +57,27 @@ public class FolderController {
     }
 
     @GetMapping("/client-space/{clientSpaceId}")
-    @Operation(summary = "Obtener carpetas raíz", description = "Obtiene todas las carpetas raíz de un espacio de cliente")
-    public ResponseEntity<ApiResponse<List<FolderResponse>>> getRootFolders(@PathVariable Integer clientSpaceId) {
-        List<Folder> folders = folderService.getRootFolders(clientSpaceId);
-        return ResponseEntity.ok(ApiResponse.success(
-                folders.stream().map(this::mapToResponse).collect(Collectors.toList())));
+    @Operation(summary = "Obtener carpetas raíz",
+            description = "Obtiene las carpetas raíz de un espacio de cliente ordenadas por nombre, con paginación por cursor")
+    public ResponseEntity<ApiResponse<CursorPageResponse<FolderResponse>>> getRootFolders(
+            @PathVariable Integer clientSpaceId,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(defaultValue = "50") int size,
+            @RequestParam(defaultValue = "false") boolean withCount) {
+        CursorPageResponse<Folder> page = folderService.getRootFolders(clientSpaceId, cursor, size, withCount);
+        return ResponseEntity.ok(ApiResponse.success(page.map(this::mapToResponse)));
     }
 
     @GetMapping("/parent/{parentId}")
-    @Operation(summary = "Obtener subcarpetas", description = "Obtiene todas las subcarpetas de una carpeta padre")
-    public ResponseEntity<ApiResponse<List<FolderResponse>>> getSubfolders(@PathVariable Integer parentId) {
-        List<Folder> folders = folderService.getSubfolders(parentId);
-        return ResponseEntity.ok(ApiResponse.success(
-                folders.stream().map(this::mapToResponse).collect(Collectors.toList())));
+    @Operation(summary = "Obtener subcarpetas",
+            description = "Obtiene las subcarpetas de una carpeta padre ordenadas por nombre, con paginación por cursor")
+    public ResponseEntity<ApiResponse<CursorPageResponse<FolderResponse>>> getSubfolders(
+            @PathVariable Integer parentId,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(defaultValue = "50") int size,
+            @RequestParam(defaultValue = "false") boolean withCount) {
+        CursorPageResponse<Folder> page = folderService.getSubfolders(parentId, cursor, size, withCount);
+        return ResponseEntity.ok(ApiResponse.success(page.map(this::mapToResponse)));
     }
 
     @PutMapping("/{id}")
@@ -78,6 +90,27 @@ public class FolderController {
         return ResponseEntity.ok(ApiResponse.success("Carpeta actualizada exitosamente", mapToResponse(folder)));
     }
 
+    @PutMapping("/{id}/move")
+    @Operation(summary = "Mover carpeta", description = "Mueve y/o renombra una carpeta, actualizando las rutas de todo su contenido")
+    public ResponseEntity<ApiResponse<FolderMoveResponse>> moveFolder(
+            @PathVariable Integer id,
+            @Valid @RequestBody FolderMoveRequest request,
+            @CurrentUserId Integer userId) {
+
+        // Se requiere escritura en la carpeta y en el destino
+        if (!permissionService.userCanWriteFolder(userId, id)
+                || (request.getParentId() != null && !permissionService.userCanWriteFolder(userId, request.getParentId())))
+            throw new PermissionDeniedException("No tienes permiso para mover esta carpeta");
+
+        int updatedDescendants = folderService.moveFolder(id, request, userId);
+        Folder folder = folderService.getFolder(id);
+
+        return ResponseEntity.ok(ApiResponse.success("Carpeta movida exitosamente", FolderMoveResponse.builder()
+                .folder(mapToResponse(folder))
+                .updatedDescendants(updatedDescendants)
+                .build()));
+    }
+
     @DeleteMapping("/{id}")
     @Operation(summary = "Eliminar carpeta", description = "Elimina una carpeta y su contenido")
     public ResponseEntity<ApiResponse<Void>> deleteFolder(@PathVariable Integer id) {
@@ -0,0 +1,54 @@
+package com.netdatel.documentserviceapi.controller;
+
+import com.netdatel.documentserviceapi.exception.PermissionDeniedException;
+import com.netdatel.documentserviceapi.service.impl.LocalStorageServiceImpl;
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.tags.Tag;
+import lombok.RequiredArgsConstructor;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import java.io.InputStream;
+
+/**
+ * Descarga de objetos del almacenamiento local mediante las URLs firmadas de generatePresignedUrl.
+ * No lleva JWT: la autorización es la firma, emitida tras comprobar el permiso de descarga, y su vencimiento.
+ */
+@RestController
+@RequestMapping(LocalStorageServiceImpl.DOWNLOAD_PATH)
+@ConditionalOnProperty(name = "storage.type", havingValue = "local")
+@RequiredArgsConstructor
+@Tag(name = "Almacenamiento local", description = "Descarga de objetos con URL firmada")
+public class LocalStorageController {
+    private final LocalStorageServiceImpl localStorageService;
+
+    @GetMapping
+    @Operation(summary = "Descargar objeto", description = "Sirve un objeto si la URL firmada es válida y no ha vencido")
+    public ResponseEntity<StreamingResponseBody> downloadObject(
+            @RequestParam String key,
+            @RequestParam long expires,
+            @RequestParam String signature) {
+
+        if (!localStorageService.isValidDownloadSignature(key, expires, signature)) {
+            throw new PermissionDeniedException("El enlace de descarga no es válido o ha expirado");
+        }
+
+        long size = localStorageService.getFileSize(key);
+        InputStream content = localStorageService.getFileStream(key);
+
+        return ResponseEntity.ok()
+                .contentLength(size)
+                .contentType(MediaType.APPLICATION_OCTET_STREAM)
+                .body(outputStream -> {
+                    try (InputStream in = content) {
+                        in.transferTo(outputStream);
+                    }
+                });
+    }
+}
@@ -1,7 +1,9 @@
 package com.netdatel.documentserviceapi.controller;
 
+import com.netdatel.documentserviceapi.model.dto.request.PermissionCheckRequest;
 import com.netdatel.documentserviceapi.model.dto.request.PermissionRequest;
 import com.netdatel.documentserviceapi.model.dto.response.ApiResponse;
+import com.netdatel.documentserviceapi.model.dto.response.PermissionCheckResponse;
 import com.netdatel.documentserviceapi.model.dto.response.PermissionResponse;
 import com.netdatel.documentserviceapi.model.entity.FilePermission;
 import com.netdatel.documentserviceapi.model.entity.FolderPermission;
@@ -140,6 +142,22 @@ public class PermissionController {
         return ResponseEntity.ok(ApiResponse.success(permissions));
     }
 
+    @PostMapping("/check/batch")
+    @Operation(summary = "Verificar permisos en bloque",
+            description = "Devuelve la máscara de permisos efectivos de un usuario para varios archivos y carpetas " +
+                    "(lectura 1, escritura 2, eliminación 4, descarga 8)")
+    public ResponseEntity<ApiResponse<PermissionCheckResponse>> checkPermissionsBatch(
+            @Valid @RequestBody PermissionCheckRequest request) {
+
+        PermissionCheckResponse response = PermissionCheckResponse.builder()
+                .userId(request.getUserId())
+                .files(permissionService.getFilePermissionMasks(request.getUserId(), request.getFileIds()))
+                .folders(permissionService.getFolderPermissionMasks(request.getUserId(), request.getFolderIds()))
+                .build();
+
+        return ResponseEntity.ok(ApiResponse.success(response));
+    }
+
     private PermissionResponse mapToFolderPermissionResponse(FolderPermission permission) {
         return PermissionResponse.builder()
                 .id(permission.getId())
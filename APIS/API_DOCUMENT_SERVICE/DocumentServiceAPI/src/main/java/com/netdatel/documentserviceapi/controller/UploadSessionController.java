@@ -0,0 +1,169 @@
+package com.netdatel.documentserviceapi.controller;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.netdatel.documentserviceapi.exception.InvalidRequestException;
+import com.netdatel.documentserviceapi.exception.PermissionDeniedException;
+import com.netdatel.documentserviceapi.model.dto.request.UploadSessionRequest;
+import com.netdatel.documentserviceapi.model.dto.response.ApiResponse;
+import com.netdatel.documentserviceapi.model.dto.response.FileResponse;
+import com.netdatel.documentserviceapi.model.dto.response.UploadSessionResponse;
+import com.netdatel.documentserviceapi.model.entity.File;
+import com.netdatel.documentserviceapi.model.entity.UploadSession;
+import com.netdatel.documentserviceapi.model.entity.UploadSessionPart;
+import com.netdatel.documentserviceapi.model.enums.ActionType;
+import com.netdatel.documentserviceapi.security.CurrentUserId;
+import com.netdatel.documentserviceapi.service.AuditService;
+import com.netdatel.documentserviceapi.service.PermissionService;
+import com.netdatel.documentserviceapi.service.UploadSessionService;
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.tags.Tag;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.validation.Valid;
+import lombok.RequiredArgsConstructor;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+@RestController
+@RequestMapping("/api/uploads")
+@RequiredArgsConstructor
+@CrossOrigin(origins = "http://localhost:3000")
+@Tag(name = "Uploads", description = "API para subidas reanudables por partes")
+public class UploadSessionController {
+    private final UploadSessionService uploadSessionService;
+    private final PermissionService permissionService;
+    private final AuditService auditService;
+    private final ObjectMapper objectMapper;
+
+    @PostMapping
+    @Operation(summary = "Iniciar subida", description = "Crea una sesión de subida por partes para un archivo nuevo o una nueva versión")
+    public ResponseEntity<ApiResponse<UploadSessionResponse>> initiateUpload(
+            @Valid @RequestBody UploadSessionRequest request,
+            @CurrentUserId Integer userId) {
+
+        // Verificar permiso de escritura en el destino
+        boolean allowed = request.getFileId() != null
+                ? permissionService.userCanWriteFile(userId, request.getFileId())
+                : request.getFolderId() != null && permissionService.userCanWriteFolder(userId, request.getFolderId());
+        if (!allowed) {
+            throw new PermissionDeniedException("No tienes permiso para subir archivos a este destino");
+        }
+
+        UploadSession session = uploadSessionService.initiateUpload(request, userId);
+
+        return ResponseEntity.status(HttpStatus.CREATED)
+                .body(ApiResponse.success("Sesión de subida creada", mapToResponse(session, List.of())));
+    }
+
+    @PutMapping(value = "/{id}/chunks/{partNumber}", consumes = MediaType.APPLICATION_OCTET_STREAM_VALUE)
+    @Operation(summary = "Subir parte", description = "Sube una parte numerada (desde 1) de la sesión; las partes pueden enviarse en paralelo")
+    public ResponseEntity<ApiResponse<Integer>> uploadChunk(
+            @PathVariable Integer id,
+            @PathVariable int partNumber,
+            HttpServletRequest request,
+            @CurrentUserId Integer userId) throws IOException {
+
+        long size = request.getContentLengthLong();
+        if (size < 0) {
+            throw new InvalidRequestException("La cabecera Content-Length es obligatoria");
+        }
+
+        UploadSessionPart part = uploadSessionService.uploadChunk(id, partNumber, request.getInputStream(), size, userId);
+
+        return ResponseEntity.ok(ApiResponse.success("Parte subida exitosamente", part.getPartNumber()));
+    }
+
+    @GetMapping("/{id}")
+    @Operation(summary = "Estado de subida", description = "Obtiene el estado de la sesión y las partes ya recibidas")
+    public ResponseEntity<ApiResponse<UploadSessionResponse>> getUploadSession(
+            @PathVariable Integer id,
+            @CurrentUserId Integer userId) {
+
+        UploadSession session = uploadSessionService.getUploadSession(id, userId);
+        List<UploadSessionPart> parts = uploadSessionService.getUploadedParts(id);
+
+        return ResponseEntity.ok(ApiResponse.success(mapToResponse(session, parts)));
+    }
+
+    @PostMapping("/{id}/complete")
+    @Operation(summary = "Completar subida", description = "Ensambla las partes y registra el archivo o la nueva versión")
+    public ResponseEntity<ApiResponse<FileResponse>> completeUpload(
+            @PathVariable Integer id,
+            @CurrentUserId Integer userId) {
+
+        boolean newVersion = uploadSessionService.getUploadSession(id, userId).getFile() != null;
+        File file = uploadSessionService.completeUpload(id, userId);
+
+        auditService.logFileAccess(file.getId(), userId, newVersion ? ActionType.UPDATE : ActionType.CREATE);
+
+        return ResponseEntity.status(newVersion ? HttpStatus.OK : HttpStatus.CREATED)
+                .body(ApiResponse.success("Archivo subido exitosamente", mapToFileResponse(file)));
+    }
+
+    @DeleteMapping("/{id}")
+    @Operation(summary = "Cancelar subida", description = "Cancela la sesión y descarta las partes subidas")
+    public ResponseEntity<ApiResponse<Void>> abortUpload(
+            @PathVariable Integer id,
+            @CurrentUserId Integer userId) {
+
+        uploadSessionService.abortUpload(id, userId);
+
+        return ResponseEntity.ok(ApiResponse.success("Subida cancelada", null));
+    }
+
+    private UploadSessionResponse mapToResponse(UploadSession session, List<UploadSessionPart> parts) {
+        return UploadSessionResponse.builder()
+                .id(session.getId())
+                .folderId(session.getFolder().getId())
+                .fileId(session.getFile() != null ? session.getFile().getId() : null)
+                .fileName(session.getFileName())
+                .totalSize(session.getTotalSize())
+                .chunkSize(session.getChunkSize())
+                .totalChunks(session.getTotalChunks())
+                .uploadedChunks(parts.stream().map(UploadSessionPart::getPartNumber).collect(Collectors.toList()))
+                .uploadedBytes(parts.stream().mapToLong(UploadSessionPart::getPartSize).sum())
+                .status(session.getStatus())
+                .createdAt(session.getCreatedAt())
+                .expiresAt(session.getExpiresAt())
+                .completedAt(session.getCompletedAt())
+                .build();
+    }
+
+    private FileResponse mapToFileResponse(File file) {
+        return FileResponse.builder()
+                .id(file.getId())
+                .folderId(file.getFolder().getId())
+                .name(file.getName())
+                .originalName(file.getOriginalName())
+                .fileSize(file.getFileSize())
+                .mimeType(file.getMimeType())
+                .status(file.getStatus())
+                .viewStatus(file.getViewStatus())
+                .viewStatusColor(file.getViewStatusColor())
+                .uploadDate(file.getUploadDate())
+                .lastViewedDate(file.getLastViewedDate())
+                .lastDownloadedDate(file.getLastDownloadedDate())
+                .version(file.getVersion())
+                .metadata(parseJson(file.getMetadata()))
+                .build();
+    }
+
+    private Map<String, Object> parseJson(String json) {
+        try {
+            if (json == null || json.isEmpty() || "{}".equals(json)) {
+                return new HashMap<>();
+            }
+            return objectMapper.readValue(json, new TypeReference<Map<String, Object>>() {});
+        } catch (Exception e) {
+            return new HashMap<>();
+        }
+    }
+}
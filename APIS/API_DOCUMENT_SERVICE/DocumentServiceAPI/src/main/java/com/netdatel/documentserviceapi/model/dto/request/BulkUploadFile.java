@@ -0,0 +1,21 @@
+package com.netdatel.documentserviceapi.model.dto.request;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.springframework.core.io.InputStreamSource;
+
+/**
+ * Archivo de una subida masiva. El contenido se abre desde el hilo que lo sube a almacenamiento.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class BulkUploadFile {
+    private String name;
+    private long size;
+    private String contentType;
+    private InputStreamSource content;
+}
@@ -22,4 +22,14 @@ public class ClientSpaceRequest {
     @NotNull(message = "La cuota total de almacenamiento no puede ser nula")
     @Min(value = 1, message = "La cuota debe ser mayor que cero")
     private Long totalQuotaBytes;
+
+    // Retención de la purga de almacenamiento; si se omite se usan los valores por defecto
+    @Min(value = 0, message = "La retención de archivos eliminados no puede ser negativa")
+    private Integer deletedRetentionDays;
+
+    @Min(value = 0, message = "El número de versiones a conservar no puede ser negativo")
+    private Integer versionKeepCount;
+
+    @Min(value = 0, message = "La retención de versiones no puede ser negativa")
+    private Integer versionRetentionDays;
 }
\ No newline at end of file
@@ -0,0 +1,20 @@
+package com.netdatel.documentserviceapi.model.dto.request;
+
+import jakarta.validation.constraints.Size;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class FolderMoveRequest {
+    // Carpeta destino; nulo para mover a la raíz del espacio del cliente
+    private Integer parentId;
+
+    // Nuevo nombre; si no se indica se conserva el actual
+    @Size(max = 255, message = "El nombre no puede exceder los 255 caracteres")
+    private String name;
+}
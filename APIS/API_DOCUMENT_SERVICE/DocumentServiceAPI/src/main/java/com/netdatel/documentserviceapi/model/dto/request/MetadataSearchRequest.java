@@ -0,0 +1,65 @@
+package com.netdatel.documentserviceapi.model.dto.request;
+
+import jakarta.validation.Valid;
+import jakarta.validation.constraints.Max;
+import jakarta.validation.constraints.Min;
+import jakarta.validation.constraints.NotBlank;
+import jakarta.validation.constraints.NotNull;
+import jakarta.validation.constraints.Size;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Filtro estructurado sobre los metadatos de los archivos. Todas las condiciones se combinan con AND;
+ * la paginación es por cursor: afterId es el nextCursor devuelto por la página anterior.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class MetadataSearchRequest {
+
+    @NotNull(message = "El ID del espacio de cliente no puede ser nulo")
+    private Integer clientSpaceId;
+
+    // Limita la búsqueda al subárbol de esta carpeta
+    private Integer folderId;
+
+    // Los metadatos deben contener este documento JSON, p. ej. {"tags": ["contrato"]}
+    private Map<String, Object> contains;
+
+    @Builder.Default
+    @Size(max = 20, message = "No se pueden indicar más de 20 claves")
+    private List<String> hasKeys = new ArrayList<>();
+
+    @Builder.Default
+    @Size(max = 20, message = "No se pueden indicar más de 20 rangos")
+    private List<@Valid NumericRange> ranges = new ArrayList<>();
+
+    private Integer afterId;
+
+    @Builder.Default
+    @Min(value = 1, message = "El tamaño de página debe ser al menos 1")
+    @Max(value = 200, message = "El tamaño de página no puede superar 200")
+    private Integer size = 50;
+
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    @Builder
+    public static class NumericRange {
+        @NotBlank(message = "La clave del rango no puede estar vacía")
+        private String key;
+
+        private BigDecimal min;
+
+        private BigDecimal max;
+    }
+}
@@ -0,0 +1,29 @@
+package com.netdatel.documentserviceapi.model.dto.request;
+
+import jakarta.validation.constraints.NotNull;
+import jakarta.validation.constraints.Size;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.ArrayList;
+import java.util.List;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class PermissionCheckRequest {
+
+    @NotNull(message = "El ID del usuario no puede ser nulo")
+    private Integer userId;
+
+    @Builder.Default
+    @Size(max = 1000, message = "No se pueden verificar más de 1000 archivos por petición")
+    private List<Integer> fileIds = new ArrayList<>();
+
+    @Builder.Default
+    @Size(max = 1000, message = "No se pueden verificar más de 1000 carpetas por petición")
+    private List<Integer> folderIds = new ArrayList<>();
+}
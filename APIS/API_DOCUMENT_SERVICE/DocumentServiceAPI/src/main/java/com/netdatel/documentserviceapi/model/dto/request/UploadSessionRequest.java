@@ -0,0 +1,40 @@
+package com.netdatel.documentserviceapi.model.dto.request;
+
+import jakarta.validation.constraints.NotBlank;
+import jakarta.validation.constraints.NotNull;
+import jakarta.validation.constraints.Positive;
+import jakarta.validation.constraints.Size;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.Map;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class UploadSessionRequest {
+    // Carpeta destino para un archivo nuevo
+    private Integer folderId;
+
+    // Archivo existente cuando se sube una nueva versión
+    private Integer fileId;
+
+    @NotBlank(message = "El nombre del archivo no puede estar vacío")
+    @Size(max = 255, message = "El nombre no puede exceder los 255 caracteres")
+    private String name;
+
+    @NotNull(message = "El tamaño del archivo no puede ser nulo")
+    @Positive(message = "El tamaño del archivo debe ser mayor que cero")
+    private Long fileSize;
+
+    private String contentType;
+
+    private Long chunkSize;
+
+    private Map<String, Object> metadata;
+
+    private String comment;
+}
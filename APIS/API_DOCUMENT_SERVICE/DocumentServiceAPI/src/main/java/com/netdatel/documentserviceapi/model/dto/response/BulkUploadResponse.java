@@ -0,0 +1,31 @@
+package com.netdatel.documentserviceapi.model.dto.response;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+/**
+ * Resultado por archivo de una subida masiva, en el mismo orden en que se enviaron.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class BulkUploadResponse<T> {
+    private List<Item<T>> items;
+    private int uploaded;
+    private int failed;
+
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    @Builder
+    public static class Item<T> {
+        private String name;
+        private T file;
+        private String error;
+    }
+}
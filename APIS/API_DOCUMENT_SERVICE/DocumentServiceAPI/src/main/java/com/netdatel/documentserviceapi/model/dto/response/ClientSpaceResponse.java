@@ -18,6 +18,11 @@ public class ClientSpaceResponse {
     private String storagePath;
     private Long totalQuotaBytes;
     private Long usedBytes;
+    // Tamaño real almacenado: el contenido repetido se guarda una sola vez
+    private Long physicalUsedBytes;
+    private Integer deletedRetentionDays;
+    private Integer versionKeepCount;
+    private Integer versionRetentionDays;
     private boolean isActive;
     private LocalDateTime createdAt;
     private LocalDateTime updatedAt;
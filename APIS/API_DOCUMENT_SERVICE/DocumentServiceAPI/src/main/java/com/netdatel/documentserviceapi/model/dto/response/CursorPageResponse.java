@@ -0,0 +1,31 @@
+package com.netdatel.documentserviceapi.model.dto.response;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * Página obtenida por cursor (keyset): nextCursor se envía en la siguiente petición para continuar
+ * justo después del último elemento, sin OFFSET. totalCount solo se informa si se pidió, porque
+ * contar obliga a recorrer todas las filas.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class CursorPageResponse<T> {
+    private List<T> items;
+    private String nextCursor;
+    private boolean hasMore;
+    private Long totalCount;
+
+    public <R> CursorPageResponse<R> map(Function<? super T, ? extends R> mapper) {
+        return new CursorPageResponse<>(items.stream().map(mapper).collect(Collectors.toList()),
+                nextCursor, hasMore, totalCount);
+    }
+}
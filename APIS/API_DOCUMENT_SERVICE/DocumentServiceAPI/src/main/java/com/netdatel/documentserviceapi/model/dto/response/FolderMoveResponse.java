@@ -0,0 +1,15 @@
+package com.netdatel.documentserviceapi.model.dto.response;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class FolderMoveResponse {
+    private FolderResponse folder;
+    private int updatedDescendants;
+}
@@ -0,0 +1,22 @@
+package com.netdatel.documentserviceapi.model.dto.response;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.Map;
+
+/**
+ * Permisos efectivos por ID como máscara de bits: lectura 1, escritura 2, eliminación 4, descarga 8.
+ * Los IDs que no existen no aparecen en el resultado.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class PermissionCheckResponse {
+    private Integer userId;
+    private Map<Integer, Integer> files;
+    private Map<Integer, Integer> folders;
+}
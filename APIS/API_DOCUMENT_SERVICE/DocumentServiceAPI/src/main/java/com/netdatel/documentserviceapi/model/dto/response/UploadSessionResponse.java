@@ -0,0 +1,30 @@
+package com.netdatel.documentserviceapi.model.dto.response;
+
+import com.netdatel.documentserviceapi.model.enums.UploadStatus;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class UploadSessionResponse {
+    private Integer id;
+    private Integer folderId;
+    private Integer fileId;
+    private String fileName;
+    private Long totalSize;
+    private Long chunkSize;
+    private Integer totalChunks;
+    private List<Integer> uploadedChunks;
+    private Long uploadedBytes;
+    private UploadStatus status;
+    private LocalDateTime createdAt;
+    private LocalDateTime expiresAt;
+    private LocalDateTime completedAt;
+}
@@ -27,6 +27,10 @@ public class BatchDownload {
     @JoinColumn(name = "folder_id", nullable = false)
     private Folder folder;
 
+    // Copia del espacio de la carpeta para limitar trabajos simultáneos por cliente sin joins al reclamar
+    @Column(name = "client_space_id", nullable = false)
+    private Integer clientSpaceId;
+
     @Enumerated(EnumType.STRING)
     @Column(length = 20, nullable = false)
     private BatchStatus status = BatchStatus.PENDING;
@@ -58,6 +62,20 @@ public class BatchDownload {
     @Column(name = "error_message")
     private String errorMessage;
 
+    // Nodo que procesa el trabajo y último latido; permiten recuperar trabajos de instancias caídas
+    @Column(name = "worker_id", length = 100)
+    private String workerId;
+
+    @Column(name = "started_at")
+    private LocalDateTime startedAt;
+
+    @Column(name = "heartbeat_at")
+    private LocalDateTime heartbeatAt;
+
+    @Builder.Default
+    @Column(nullable = false)
+    private Integer attempts = 0;
+
     @PrePersist
     protected void onCreate() {
         createdAt = LocalDateTime.now();
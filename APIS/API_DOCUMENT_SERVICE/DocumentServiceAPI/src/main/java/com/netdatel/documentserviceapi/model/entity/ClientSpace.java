@@ -31,9 +31,24 @@ public class ClientSpace {
     @Column(nullable = false)
     private Long totalQuotaBytes;
 
-    @Column
+    // Ambos contadores se actualizan solo con sentencias atómicas de ClientSpaceRepository
+    @Column(updatable = false)
     private Long usedBytes = 0L;
 
+    // Bytes ocupados en MinIO tras la deduplicación, incluidas las versiones anteriores
+    @Column(updatable = false)
+    private Long physicalUsedBytes = 0L;
+
+    // Retención de la purga; null usa los valores por defecto de storage-gc
+    @Column
+    private Integer deletedRetentionDays;
+
+    @Column
+    private Integer versionKeepCount;
+
+    @Column
+    private Integer versionRetentionDays;
+
     @Column
     private boolean isActive = true;
 
@@ -45,7 +45,8 @@ public class File {
     @Column(nullable = false, length = 1000)
     private String storagePath;
 
-    @Column(nullable = false, length = 255)
+    // Nulo una vez purgado
+    @Column(length = 255)
     private String storageKey;
 
     @Column(length = 255)
@@ -72,6 +73,10 @@ public class File {
     @Column
     private LocalDateTime lastDownloadedDate;
 
+    // Momento del borrado lógico; la purga elimina el archivo al vencer la retención
+    @Column
+    private LocalDateTime deletedAt;
+
     @Column(nullable = false)
     private Integer uploadedBy;
 
@@ -0,0 +1,54 @@
+package com.netdatel.documentserviceapi.model.entity;
+
+import com.netdatel.documentserviceapi.model.enums.ActionType;
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.io.Serializable;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+
+@Entity
+@Table(name = "file_access_daily_rollups")
+@IdClass(FileAccessDailyRollup.RollupId.class)
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class FileAccessDailyRollup {
+    @Id
+    @Column(nullable = false)
+    private LocalDate accessDate;
+
+    @Id
+    @Column(nullable = false)
+    private Integer fileId;
+
+    @Id
+    @Column(nullable = false)
+    private Integer userId;
+
+    @Id
+    @Enumerated(EnumType.STRING)
+    @Column(length = 50, nullable = false)
+    private ActionType actionType;
+
+    @Column(nullable = false)
+    private Long accessCount;
+
+    @Column
+    private LocalDateTime lastActionAt;
+
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class RollupId implements Serializable {
+        private LocalDate accessDate;
+        private Integer fileId;
+        private Integer userId;
+        private ActionType actionType;
+    }
+}
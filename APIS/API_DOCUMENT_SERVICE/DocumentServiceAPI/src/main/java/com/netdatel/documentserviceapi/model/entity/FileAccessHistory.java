@@ -33,7 +33,8 @@ public class FileAccessHistory {
     @Column(length = 20, nullable = false)
     private ActionType actionType;
 
-    @Column
+    // Clave de partición mensual de la tabla
+    @Column(nullable = false)
     private LocalDateTime actionDate;
 
     @Column(length = 45)
@@ -48,6 +49,8 @@ public class FileAccessHistory {
 
     @PrePersist
     protected void onCreate() {
-        actionDate = LocalDateTime.now();
+        if (actionDate == null) {
+            actionDate = LocalDateTime.now();
+        }
     }
 }
\ No newline at end of file
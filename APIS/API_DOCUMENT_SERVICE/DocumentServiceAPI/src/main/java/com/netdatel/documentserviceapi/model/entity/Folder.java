@@ -42,6 +42,10 @@ public class Folder {
     @Column(nullable = false, length = 1000)
     private String path;
 
+    // Ruta materializada por IDs ("/1/5/12/"): índice del subárbol, no cambia al renombrar
+    @Column(name = "tree_path", nullable = false, length = 1000)
+    private String treePath;
+
     @Column
     private LocalDateTime createdAt;
 
@@ -0,0 +1,49 @@
+package com.netdatel.documentserviceapi.model.entity;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+/**
+ * Objeto físico de MinIO compartido por todos los archivos y versiones con el mismo contenido dentro de
+ * un espacio de cliente. refCount cuenta las filas de files y file_versions que apuntan a storageKey.
+ */
+@Entity
+@Table(name = "storage_blobs")
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class StorageBlob {
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Integer id;
+
+    @Column(name = "client_space_id", nullable = false)
+    private Integer clientSpaceId;
+
+    // SHA-256 en hexadecimal; nulo si el contenido no se pudo calcular al subir (sin deduplicación)
+    @Column(length = 64)
+    private String contentHash;
+
+    @Column(nullable = false, length = 255, unique = true)
+    private String storageKey;
+
+    @Column(nullable = false)
+    private Long sizeBytes;
+
+    @Column(nullable = false)
+    private Integer refCount;
+
+    @Column
+    private LocalDateTime createdAt;
+
+    @PrePersist
+    protected void onCreate() {
+        createdAt = LocalDateTime.now();
+    }
+}
@@ -0,0 +1,87 @@
+package com.netdatel.documentserviceapi.model.entity;
+
+import com.netdatel.documentserviceapi.model.enums.UploadStatus;
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.hibernate.annotations.JdbcTypeCode;
+import org.hibernate.type.SqlTypes;
+
+import java.time.LocalDateTime;
+
+@Entity
+@Table(name = "upload_sessions")
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class UploadSession {
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Integer id;
+
+    @Column(nullable = false)
+    private Integer userId;
+
+    @ManyToOne
+    @JoinColumn(name = "client_space_id", nullable = false)
+    private ClientSpace clientSpace;
+
+    @ManyToOne
+    @JoinColumn(name = "folder_id", nullable = false)
+    private Folder folder;
+
+    // Archivo existente cuando la sesión sube una nueva versión
+    @ManyToOne
+    @JoinColumn(name = "file_id")
+    private File file;
+
+    @Column(nullable = false, length = 255)
+    private String fileName;
+
+    @Column(nullable = false, length = 127)
+    private String contentType;
+
+    @Column(nullable = false)
+    private Long totalSize;
+
+    @Column(nullable = false)
+    private Long chunkSize;
+
+    @Column(nullable = false)
+    private Integer totalChunks;
+
+    @Column(nullable = false, length = 255)
+    private String storageKey;
+
+    @Column(nullable = false, length = 255)
+    private String uploadId;
+
+    @Builder.Default
+    @Enumerated(EnumType.STRING)
+    @Column(length = 20, nullable = false)
+    private UploadStatus status = UploadStatus.ACTIVE;
+
+    @Column(columnDefinition = "jsonb")
+    @JdbcTypeCode(SqlTypes.JSON)
+    private String metadata;
+
+    @Column
+    private String changeComments;
+
+    @Column
+    private LocalDateTime createdAt;
+
+    @Column
+    private LocalDateTime expiresAt;
+
+    @Column
+    private LocalDateTime completedAt;
+
+    @PrePersist
+    protected void onCreate() {
+        createdAt = LocalDateTime.now();
+    }
+}
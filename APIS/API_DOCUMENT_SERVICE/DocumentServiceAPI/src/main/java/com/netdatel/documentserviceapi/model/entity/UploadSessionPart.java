@@ -0,0 +1,43 @@
+package com.netdatel.documentserviceapi.model.entity;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+@Entity
+@Table(name = "upload_session_parts")
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class UploadSessionPart {
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Integer id;
+
+    @ManyToOne
+    @JoinColumn(name = "upload_session_id", nullable = false)
+    private UploadSession uploadSession;
+
+    @Column(nullable = false)
+    private Integer partNumber;
+
+    @Column(nullable = false)
+    private Long partSize;
+
+    @Column(nullable = false, length = 255)
+    private String etag;
+
+    @Column
+    private LocalDateTime uploadedAt;
+
+    @PrePersist
+    @PreUpdate
+    protected void onSave() {
+        uploadedAt = LocalDateTime.now();
+    }
+}
@@ -0,0 +1,38 @@
+package com.netdatel.documentserviceapi.model.enums;
+
+import com.netdatel.documentserviceapi.model.entity.File;
+
+import java.time.LocalDateTime;
+
+// Claves de orden del listado de una carpeta; cada una tiene su índice (folder_id, status, columna, id)
+public enum FileSortField {
+    NAME("name"), UPLOAD_DATE("upload_date"), SIZE("file_size");
+
+    private final String column;
+
+    FileSortField(String column) {
+        this.column = column;
+    }
+
+    public String getColumn() {
+        return column;
+    }
+
+    // Valor de la clave de orden tal como se guarda en el cursor
+    public String valueOf(File file) {
+        return switch (this) {
+            case NAME -> file.getName();
+            case UPLOAD_DATE -> file.getUploadDate().toString();
+            case SIZE -> file.getFileSize().toString();
+        };
+    }
+
+    // Convierte el valor del cursor al tipo de la columna para la comparación en SQL
+    public Object parse(String value) {
+        return switch (this) {
+            case NAME -> value;
+            case UPLOAD_DATE -> LocalDateTime.parse(value);
+            case SIZE -> Long.parseLong(value);
+        };
+    }
+}
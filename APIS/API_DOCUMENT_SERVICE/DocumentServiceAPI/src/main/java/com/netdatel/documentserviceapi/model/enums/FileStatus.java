@@ -1,5 +1,7 @@
 package com.netdatel.documentserviceapi.model.enums;
 
 public enum FileStatus {
-    ACTIVE, DELETED, ARCHIVED
+    ACTIVE, DELETED, ARCHIVED,
+    // Eliminado y ya purgado del almacenamiento; la fila queda como registro para la auditoría
+    PURGED
 }
@@ -0,0 +1,27 @@
+package com.netdatel.documentserviceapi.model.enums;
+
+// Bits de la máscara de permisos efectivos
+public enum PermissionBit {
+    READ(1), WRITE(2), DELETE(4), DOWNLOAD(8);
+
+    private final int mask;
+
+    PermissionBit(int mask) {
+        this.mask = mask;
+    }
+
+    public int getMask() {
+        return mask;
+    }
+
+    public boolean isSet(int permissions) {
+        return (permissions & mask) != 0;
+    }
+
+    public static int of(boolean canRead, boolean canWrite, boolean canDelete, boolean canDownload) {
+        return (canRead ? READ.mask : 0)
+                | (canWrite ? WRITE.mask : 0)
+                | (canDelete ? DELETE.mask : 0)
+                | (canDownload ? DOWNLOAD.mask : 0);
+    }
+}
@@ -0,0 +1,8 @@
+package com.netdatel.documentserviceapi.model.enums;
+
+public enum UploadStatus {
+    ACTIVE,
+    // Reclamada por una finalización en curso: no admite partes, ni otra finalización, ni expira
+    COMPLETING,
+    COMPLETED, ABORTED, EXPIRED
+}
@@ -0,0 +1,8 @@
+package com.netdatel.documentserviceapi.model.projection;
+
+import com.netdatel.documentserviceapi.model.enums.ActionType;
+
+public interface ActionCount {
+    ActionType getActionType();
+    Long getAccessCount();
+}
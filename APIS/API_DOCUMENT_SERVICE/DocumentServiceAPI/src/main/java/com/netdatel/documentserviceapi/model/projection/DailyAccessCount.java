@@ -0,0 +1,11 @@
+package com.netdatel.documentserviceapi.model.projection;
+
+import com.netdatel.documentserviceapi.model.enums.ActionType;
+
+import java.time.LocalDate;
+
+public interface DailyAccessCount {
+    LocalDate getAccessDate();
+    ActionType getActionType();
+    Long getAccessCount();
+}
@@ -0,0 +1,8 @@
+package com.netdatel.documentserviceapi.model.projection;
+
+// Datos mínimos de una carpeta de un subárbol, sin cargar sus relaciones
+public interface FolderNode {
+    Integer getId();
+    String getName();
+    String getTreePath();
+}
@@ -0,0 +1,17 @@
+package com.netdatel.documentserviceapi.model.projection;
+
+import java.time.LocalDateTime;
+
+/**
+ * Permiso vigente más cercano de un usuario sobre un archivo o carpeta, resuelto en base de datos.
+ * Los valores de permiso son nulos si no hay ningún permiso en la cadena de carpetas.
+ */
+public interface ResolvedPermission {
+    // Ruta de IDs de la carpeta evaluada (o de la carpeta que contiene el archivo)
+    String getTreePath();
+    Boolean getCanRead();
+    Boolean getCanWrite();
+    Boolean getCanDelete();
+    Boolean getCanDownload();
+    LocalDateTime getValidUntil();
+}
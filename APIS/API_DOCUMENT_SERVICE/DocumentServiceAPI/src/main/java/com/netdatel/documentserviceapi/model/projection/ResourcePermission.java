@@ -0,0 +1,6 @@
+package com.netdatel.documentserviceapi.model.projection;
+
+// Permiso vigente más cercano de un usuario sobre uno de varios archivos o carpetas resueltos en bloque
+public interface ResourcePermission extends ResolvedPermission {
+    Integer getId();
+}
@@ -0,0 +1,7 @@
+package com.netdatel.documentserviceapi.model.projection;
+
+// Objeto de MinIO referenciado por un archivo o una versión
+public interface StoredObject {
+    String getStorageKey();
+    Long getFileSize();
+}
@@ -0,0 +1,10 @@
+package com.netdatel.documentserviceapi.model.projection;
+
+// Datos de un archivo de un subárbol necesarios para empaquetarlo, sin cargar la entidad
+public interface SubtreeFile {
+    Integer getId();
+    String getName();
+    String getStorageKey();
+    Long getFileSize();
+    Integer getFolderId();
+}
@@ -0,0 +1,6 @@
+package com.netdatel.documentserviceapi.model.projection;
+
+public interface SubtreeStats {
+    long getFileCount();
+    long getTotalBytes();
+}
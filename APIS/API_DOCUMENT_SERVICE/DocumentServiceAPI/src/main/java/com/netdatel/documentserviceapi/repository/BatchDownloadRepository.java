@@ -3,12 +3,102 @@ package com.netdatel.documentserviceapi.repository;
 import com.netdatel.documentserviceapi.model.entity.BatchDownload;
 import com.netdatel.documentserviceapi.model.enums.BatchStatus;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
 
+import java.time.LocalDateTime;
 import java.util.List;
+import java.util.Optional;
 
 @Repository
 public interface BatchDownloadRepository extends JpaRepository<BatchDownload, Integer> {
-    List<BatchDownload> findByUserIdOrderByCreatedAtDesc(Integer userId);
+    long countByUserId(Integer userId);
+
+    // Descargas de un usuario por cursor, de la más reciente a la más antigua
+    @Query(value = "SELECT b.* FROM document.batch_downloads b WHERE b.user_id = :userId " +
+            "ORDER BY b.created_at DESC, b.id DESC LIMIT :limit", nativeQuery = true)
+    List<BatchDownload> findByUserPage(Integer userId, int limit);
+
+    @Query(value = "SELECT b.* FROM document.batch_downloads b WHERE b.user_id = :userId " +
+            "AND (b.created_at, b.id) < (:beforeCreatedAt, :beforeId) " +
+            "ORDER BY b.created_at DESC, b.id DESC LIMIT :limit", nativeQuery = true)
+    List<BatchDownload> findByUserPageBefore(Integer userId, LocalDateTime beforeCreatedAt, Integer beforeId,
+                                             int limit);
     List<BatchDownload> findByStatusOrderByCreatedAtDesc(BatchStatus status);
-}
\ No newline at end of file
+
+    /**
+     * Bloquea el trabajo pendiente más antiguo cuyo espacio de cliente no haya alcanzado el límite
+     * de trabajos en proceso. Las filas bloqueadas por otros nodos se saltan. Requiere una transacción.
+     * El conteo es solo un filtro previo: dos nodos pueden bloquear trabajos distintos del mismo espacio,
+     * por eso el límite se vuelve a comprobar bajo lockClientSpace.
+     */
+    @Query(value = "SELECT b.* FROM document.batch_downloads b " +
+            "WHERE b.status = 'PENDING' " +
+            "AND (SELECT COUNT(*) FROM document.batch_downloads r " +
+            "     WHERE r.status = 'PROCESSING' AND r.client_space_id = b.client_space_id) < :maxPerClientSpace " +
+            "ORDER BY b.created_at, b.id " +
+            "LIMIT 1 " +
+            "FOR UPDATE SKIP LOCKED", nativeQuery = true)
+    Optional<BatchDownload> lockNextPending(int maxPerClientSpace);
+
+    // Serializa entre nodos el arranque de trabajos de un espacio de cliente; se libera al terminar la transacción
+    @Query(value = "SELECT 1 FROM pg_advisory_xact_lock(hashtext('document.batch_downloads'), :clientSpaceId)",
+            nativeQuery = true)
+    Integer lockClientSpace(Integer clientSpaceId);
+
+    long countByClientSpaceIdAndStatus(Integer clientSpaceId, BatchStatus status);
+
+    // Las actualizaciones de estado solo aplican si el trabajo sigue asignado al nodo indicado
+
+    @Transactional
+    @Modifying
+    @Query(value = "UPDATE document.batch_downloads SET processed_files = :processedFiles, heartbeat_at = :now " +
+            "WHERE id = :id AND worker_id = :workerId AND status = 'PROCESSING'", nativeQuery = true)
+    int updateProgress(Integer id, String workerId, int processedFiles, LocalDateTime now);
+
+    @Transactional
+    @Modifying
+    @Query(value = "UPDATE document.batch_downloads SET heartbeat_at = :now " +
+            "WHERE worker_id = :workerId AND status = 'PROCESSING'", nativeQuery = true)
+    int heartbeat(String workerId, LocalDateTime now);
+
+    @Transactional
+    @Modifying
+    @Query(value = "UPDATE document.batch_downloads SET status = 'COMPLETED', processed_files = :processedFiles, " +
+            "download_url = :downloadUrl, file_size_bytes = :fileSize, completed_at = :now, heartbeat_at = :now " +
+            "WHERE id = :id AND worker_id = :workerId AND status = 'PROCESSING'", nativeQuery = true)
+    int markCompleted(Integer id, String workerId, int processedFiles, String downloadUrl, long fileSize,
+                      LocalDateTime now);
+
+    @Transactional
+    @Modifying
+    @Query(value = "UPDATE document.batch_downloads SET status = 'FAILED', error_message = :errorMessage, " +
+            "completed_at = :now " +
+            "WHERE id = :id AND worker_id = :workerId AND status = 'PROCESSING'", nativeQuery = true)
+    int markFailed(Integer id, String workerId, String errorMessage, LocalDateTime now);
+
+    // Devuelve a la cola los trabajos de este nodo (apagado ordenado)
+    @Transactional
+    @Modifying
+    @Query(value = "UPDATE document.batch_downloads SET status = 'PENDING', worker_id = NULL " +
+            "WHERE worker_id = :workerId AND status = 'PROCESSING'", nativeQuery = true)
+    int releaseByWorker(String workerId);
+
+    // Trabajos de nodos caídos: sin latido reciente y con reintentos disponibles vuelven a la cola
+    @Transactional
+    @Modifying
+    @Query(value = "UPDATE document.batch_downloads SET status = 'PENDING', worker_id = NULL " +
+            "WHERE status = 'PROCESSING' AND heartbeat_at < :staleBefore AND attempts < :maxAttempts",
+            nativeQuery = true)
+    int requeueOrphaned(LocalDateTime staleBefore, int maxAttempts);
+
+    @Transactional
+    @Modifying
+    @Query(value = "UPDATE document.batch_downloads SET status = 'FAILED', error_message = :errorMessage, " +
+            "completed_at = :now " +
+            "WHERE status = 'PROCESSING' AND heartbeat_at < :staleBefore AND attempts >= :maxAttempts",
+            nativeQuery = true)
+    int failOrphaned(LocalDateTime staleBefore, int maxAttempts, String errorMessage, LocalDateTime now);
+}
@@ -2,7 +2,10 @@ package com.netdatel.documentserviceapi.repository;
 
 import com.netdatel.documentserviceapi.model.entity.ClientSpace;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
 
 import java.util.List;
 import java.util.Optional;
@@ -12,4 +15,26 @@ public interface ClientSpaceRepository extends JpaRepository<ClientSpace, Intege
     Optional<ClientSpace> findByClientIdAndModuleId(Integer clientId, Integer moduleId);
     List<ClientSpace> findByClientId(Integer clientId);
     boolean existsByClientIdAndModuleId(Integer clientId, Integer moduleId);
+
+    /**
+     * Suma (o resta) bytes al uso del espacio en una sola sentencia. Los incrementos solo se aplican
+     * si no superan la cuota; las restas nunca dejan el uso por debajo de cero.
+     *
+     * @return 1 si se aplicó, 0 si el espacio no existe o se superaría la cuota
+     */
+    @Transactional
+    @Modifying
+    @Query(value = "UPDATE document.client_spaces " +
+            "SET used_bytes = GREATEST(COALESCE(used_bytes, 0) + :delta, 0), updated_at = CURRENT_TIMESTAMP " +
+            "WHERE id = :id AND (:delta <= 0 OR COALESCE(used_bytes, 0) + :delta <= total_quota_bytes)",
+            nativeQuery = true)
+    int addUsedBytes(Integer id, long delta);
+
+    // Bytes realmente almacenados: cambia solo al crear o liberar un blob deduplicado
+    @Transactional
+    @Modifying
+    @Query(value = "UPDATE document.client_spaces " +
+            "SET physical_used_bytes = GREATEST(COALESCE(physical_used_bytes, 0) + :delta, 0) WHERE id = :id",
+            nativeQuery = true)
+    int addPhysicalUsedBytes(Integer id, long delta);
 }
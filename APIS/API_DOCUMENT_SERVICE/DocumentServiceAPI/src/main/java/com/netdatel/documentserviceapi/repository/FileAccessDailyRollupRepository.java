@@ -0,0 +1,47 @@
+package com.netdatel.documentserviceapi.repository;
+
+import com.netdatel.documentserviceapi.model.entity.FileAccessDailyRollup;
+import com.netdatel.documentserviceapi.model.projection.ActionCount;
+import com.netdatel.documentserviceapi.model.projection.DailyAccessCount;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDate;
+import java.util.List;
+
+@Repository
+public interface FileAccessDailyRollupRepository
+        extends JpaRepository<FileAccessDailyRollup, FileAccessDailyRollup.RollupId> {
+
+    @Query("SELECT r.accessDate AS accessDate, r.actionType AS actionType, SUM(r.accessCount) AS accessCount " +
+            "FROM FileAccessDailyRollup r " +
+            "WHERE r.fileId = :fileId AND r.accessDate BETWEEN :startDate AND :endDate " +
+            "GROUP BY r.accessDate, r.actionType ORDER BY r.accessDate, r.actionType")
+    List<DailyAccessCount> findDailyCountsByFile(Integer fileId, LocalDate startDate, LocalDate endDate);
+
+    @Query("SELECT r.accessDate AS accessDate, r.actionType AS actionType, SUM(r.accessCount) AS accessCount " +
+            "FROM FileAccessDailyRollup r " +
+            "WHERE r.userId = :userId AND r.accessDate BETWEEN :startDate AND :endDate " +
+            "GROUP BY r.accessDate, r.actionType ORDER BY r.accessDate, r.actionType")
+    List<DailyAccessCount> findDailyCountsByUser(Integer userId, LocalDate startDate, LocalDate endDate);
+
+    @Query("SELECT r.actionType AS actionType, SUM(r.accessCount) AS accessCount " +
+            "FROM FileAccessDailyRollup r " +
+            "WHERE r.fileId = :fileId AND r.accessDate BETWEEN :startDate AND :endDate " +
+            "GROUP BY r.actionType")
+    List<ActionCount> findActionCountsByFile(Integer fileId, LocalDate startDate, LocalDate endDate);
+
+    @Query("SELECT r.actionType AS actionType, SUM(r.accessCount) AS accessCount " +
+            "FROM FileAccessDailyRollup r " +
+            "WHERE r.userId = :userId AND r.accessDate BETWEEN :startDate AND :endDate " +
+            "GROUP BY r.actionType")
+    List<ActionCount> findActionCountsByUser(Integer userId, LocalDate startDate, LocalDate endDate);
+
+    @Transactional
+    @Modifying
+    @Query("DELETE FROM FileAccessDailyRollup r WHERE r.accessDate < :cutoff")
+    int deleteOlderThan(LocalDate cutoff);
+}
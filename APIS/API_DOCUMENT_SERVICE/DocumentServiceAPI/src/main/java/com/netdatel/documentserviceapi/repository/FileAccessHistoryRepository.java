@@ -1,6 +1,8 @@
 package com.netdatel.documentserviceapi.repository;
 
 import com.netdatel.documentserviceapi.model.entity.FileAccessHistory;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.stereotype.Repository;
@@ -12,6 +14,8 @@ import java.util.List;
 public interface FileAccessHistoryRepository extends JpaRepository<FileAccessHistory, Integer> {
     List<FileAccessHistory> findByFileIdOrderByActionDateDesc(Integer fileId);
     List<FileAccessHistory> findByUserIdOrderByActionDateDesc(Integer userId);
+    Page<FileAccessHistory> findByFileIdOrderByActionDateDesc(Integer fileId, Pageable pageable);
+    Page<FileAccessHistory> findByUserIdOrderByActionDateDesc(Integer userId, Pageable pageable);
 
     @Query("SELECT f FROM FileAccessHistory f WHERE f.userId = :userId AND f.actionDate BETWEEN :startDate AND :endDate")
     List<FileAccessHistory> findByUserIdAndDateRange(Integer userId, LocalDateTime startDate, LocalDateTime endDate);
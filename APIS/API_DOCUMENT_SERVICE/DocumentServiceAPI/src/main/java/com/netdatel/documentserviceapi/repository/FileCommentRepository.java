@@ -2,12 +2,25 @@ package com.netdatel.documentserviceapi.repository;
 
 import com.netdatel.documentserviceapi.model.entity.FileComment;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
 import org.springframework.stereotype.Repository;
 
+import java.time.LocalDateTime;
 import java.util.List;
 
 @Repository
 public interface FileCommentRepository extends JpaRepository<FileComment, Integer> {
-    List<FileComment> findByFileIdAndIsActiveOrderByCreatedAtAsc(Integer fileId, boolean isActive);
+    long countByFileIdAndIsActive(Integer fileId, boolean isActive);
+
+    // Comentarios activos de un archivo por cursor, en orden (created_at, id)
+    @Query(value = "SELECT c.* FROM document.file_comments c WHERE c.file_id = :fileId AND c.is_active = TRUE " +
+            "ORDER BY c.created_at, c.id LIMIT :limit", nativeQuery = true)
+    List<FileComment> findActiveByFilePage(Integer fileId, int limit);
+
+    @Query(value = "SELECT c.* FROM document.file_comments c WHERE c.file_id = :fileId AND c.is_active = TRUE " +
+            "AND (c.created_at, c.id) > (:afterCreatedAt, :afterId) " +
+            "ORDER BY c.created_at, c.id LIMIT :limit", nativeQuery = true)
+    List<FileComment> findActiveByFilePageAfter(Integer fileId, LocalDateTime afterCreatedAt, Integer afterId,
+                                                int limit);
     List<FileComment> findByParentCommentIdAndIsActiveOrderByCreatedAtAsc(Integer parentCommentId, boolean isActive);
 }
@@ -1,9 +1,13 @@
 package com.netdatel.documentserviceapi.repository;
 
 import com.netdatel.documentserviceapi.model.entity.FilePermission;
+import com.netdatel.documentserviceapi.model.projection.ResolvedPermission;
+import com.netdatel.documentserviceapi.model.projection.ResourcePermission;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
 import org.springframework.stereotype.Repository;
 
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 
@@ -12,4 +16,67 @@ public interface FilePermissionRepository extends JpaRepository<FilePermission,
     List<FilePermission> findByFileId(Integer fileId);
     Optional<FilePermission> findByFileIdAndUserId(Integer fileId, Integer userId);
     boolean existsByFileIdAndUserId(Long fileId, Integer userId);
+
+    /**
+     * Resuelve en una sola consulta el permiso efectivo de un usuario sobre un archivo: el permiso
+     * directo del archivo tiene prioridad; si no existe, se toma el de la carpeta más cercana.
+     * No devuelve filas si el archivo no existe.
+     */
+    @Query(value = "WITH RECURSIVE ancestors AS ( " +
+            "    SELECT f.id, f.parent_id, f.tree_path, 1 AS depth " +
+            "    FROM document.files fi JOIN document.folders f ON f.id = fi.folder_id WHERE fi.id = :fileId " +
+            "    UNION ALL " +
+            "    SELECT f.id, f.parent_id, f.tree_path, a.depth + 1 " +
+            "    FROM document.folders f JOIN ancestors a ON f.id = a.parent_id " +
+            "), grants AS ( " +
+            "    SELECT 0 AS depth, p.can_read, p.can_write, p.can_delete, p.can_download, p.valid_until " +
+            "    FROM document.file_permissions p " +
+            "    WHERE p.file_id = :fileId AND p.user_id = :userId AND p.is_active " +
+            "    AND (p.valid_until IS NULL OR p.valid_until > CURRENT_TIMESTAMP) " +
+            "    UNION ALL " +
+            "    SELECT a.depth, fp.can_read, fp.can_write, fp.can_delete, fp.can_download, fp.valid_until " +
+            "    FROM ancestors a JOIN document.folder_permissions fp ON fp.folder_id = a.id " +
+            "    WHERE fp.user_id = :userId AND fp.is_active " +
+            "    AND (fp.valid_until IS NULL OR fp.valid_until > CURRENT_TIMESTAMP) " +
+            ") " +
+            "SELECT t.tree_path AS \"treePath\", g.can_read AS \"canRead\", g.can_write AS \"canWrite\", " +
+            "       g.can_delete AS \"canDelete\", g.can_download AS \"canDownload\", " +
+            "       g.valid_until AS \"validUntil\" " +
+            "FROM ancestors t " +
+            "LEFT JOIN LATERAL (SELECT * FROM grants ORDER BY depth LIMIT 1) g ON TRUE " +
+            "WHERE t.depth = 1", nativeQuery = true)
+    Optional<ResolvedPermission> resolveEffectivePermission(Integer fileId, Integer userId);
+
+    /**
+     * Versión en bloque de resolveEffectivePermission: resuelve todos los archivos indicados en una
+     * sola consulta y devuelve una fila por cada archivo existente.
+     */
+    @Query(value = "WITH RECURSIVE chain AS ( " +
+            "    SELECT fi.id AS target_id, f.id AS folder_id, f.parent_id, f.tree_path, 1 AS depth " +
+            "    FROM document.files fi JOIN document.folders f ON f.id = fi.folder_id WHERE fi.id IN (:fileIds) " +
+            "    UNION ALL " +
+            "    SELECT c.target_id, f.id, f.parent_id, c.tree_path, c.depth + 1 " +
+            "    FROM document.folders f JOIN chain c ON f.id = c.parent_id " +
+            "), grants AS ( " +
+            "    SELECT p.file_id AS target_id, 0 AS depth, p.can_read, p.can_write, p.can_delete, " +
+            "           p.can_download, p.valid_until " +
+            "    FROM document.file_permissions p " +
+            "    WHERE p.file_id IN (:fileIds) AND p.user_id = :userId AND p.is_active " +
+            "    AND (p.valid_until IS NULL OR p.valid_until > CURRENT_TIMESTAMP) " +
+            "    UNION ALL " +
+            "    SELECT c.target_id, c.depth, fp.can_read, fp.can_write, fp.can_delete, fp.can_download, " +
+            "           fp.valid_until " +
+            "    FROM chain c JOIN document.folder_permissions fp ON fp.folder_id = c.folder_id " +
+            "    WHERE fp.user_id = :userId AND fp.is_active " +
+            "    AND (fp.valid_until IS NULL OR fp.valid_until > CURRENT_TIMESTAMP) " +
+            ") " +
+            "SELECT t.target_id AS \"id\", t.tree_path AS \"treePath\", g.can_read AS \"canRead\", " +
+            "       g.can_write AS \"canWrite\", g.can_delete AS \"canDelete\", " +
+            "       g.can_download AS \"canDownload\", g.valid_until AS \"validUntil\" " +
+            "FROM chain t " +
+            "LEFT JOIN LATERAL ( " +
+            "    SELECT * FROM grants WHERE grants.target_id = t.target_id ORDER BY depth LIMIT 1 " +
+            ") g ON TRUE " +
+            "WHERE t.depth = 1", nativeQuery = true)
+    List<ResourcePermission> resolveEffectivePermissions(Collection<Integer> fileIds, Integer userId);
 }
\ No newline at end of file
@@ -3,29 +3,126 @@ package com.netdatel.documentserviceapi.repository;
 
 import com.netdatel.documentserviceapi.model.entity.File;
 import com.netdatel.documentserviceapi.model.enums.FileStatus;
+import com.netdatel.documentserviceapi.model.enums.ViewStatus;
+import com.netdatel.documentserviceapi.model.enums.ViewStatusColor;
+import com.netdatel.documentserviceapi.model.projection.StoredObject;
+import com.netdatel.documentserviceapi.model.projection.SubtreeFile;
+import com.netdatel.documentserviceapi.model.projection.SubtreeStats;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
 
+import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 
 @Repository
-public interface FileRepository extends JpaRepository<File, Integer> {
+public interface FileRepository extends JpaRepository<File, Integer>, FileRepositoryCustom {
     List<File> findByFolderId(Integer folderId);
     List<File> findByFolderIdAndStatus(Integer folderId, FileStatus status);
     Optional<File> findByFolderIdAndName(Integer folderId, String name);
+
+    // Los archivos purgados no ocupan su nombre
+    @Query("SELECT COUNT(f) > 0 FROM File f WHERE f.folder.id = :folderId AND f.name = :name " +
+            "AND f.status <> com.netdatel.documentserviceapi.model.enums.FileStatus.PURGED")
     boolean existsByFolderIdAndName(Integer folderId, String name);
 
-    @Query("SELECT f FROM File f WHERE f.folder.clientSpace.clientId = :clientId AND f.name LIKE %:query% OR f.originalName LIKE %:query%")
-    Page<File> searchByNameAndClientId(Integer clientId, String query, Pageable pageable);
+    @Query("SELECT f.name FROM File f WHERE f.folder.id = :folderId AND f.name IN :names " +
+            "AND f.status <> com.netdatel.documentserviceapi.model.enums.FileStatus.PURGED")
+    List<String> findExistingNames(Integer folderId, Collection<String> names);
+
+    /**
+     * Búsqueda indexada de archivos activos de un cliente: coincidencia por prefijo sobre search_vector
+     * (nombre, ruta y metadatos) o por subcadena sobre el nombre mediante los índices de trigramas.
+     * Ordena por relevancia del texto más similitud con el nombre.
+     *
+     * @param tsQuery consulta de texto completo ya normalizada (p. ej. "informe:* & 2024:*")
+     * @param pattern patrón ILIKE con los comodines del usuario escapados
+     */
+    @Query(value = "SELECT f.* FROM document.files f " +
+            "JOIN document.folders d ON d.id = f.folder_id " +
+            "JOIN document.client_spaces cs ON cs.id = d.client_space_id " +
+            "WHERE cs.client_id = :clientId AND f.status = 'ACTIVE' " +
+            "AND (f.search_vector @@ to_tsquery('simple', :tsQuery) " +
+            "OR f.name ILIKE :pattern OR f.original_name ILIKE :pattern) " +
+            "ORDER BY ts_rank(f.search_vector, to_tsquery('simple', :tsQuery)) + similarity(f.name, :query) DESC, " +
+            "f.id DESC",
+            countQuery = "SELECT COUNT(*) FROM document.files f " +
+                    "JOIN document.folders d ON d.id = f.folder_id " +
+                    "JOIN document.client_spaces cs ON cs.id = d.client_space_id " +
+                    "WHERE cs.client_id = :clientId AND f.status = 'ACTIVE' " +
+                    "AND (f.search_vector @@ to_tsquery('simple', :tsQuery) " +
+                    "OR f.name ILIKE :pattern OR f.original_name ILIKE :pattern)",
+            nativeQuery = true)
+    Page<File> searchByClientId(Integer clientId, String query, String tsQuery, String pattern, Pageable pageable);
 
-    @Query(value = "SELECT * FROM document.files WHERE metadata @> :jsonQuery", nativeQuery = true)
-    List<File> findByMetadataContaining(String jsonQuery);
+    @Query(value = "SELECT f.* FROM document.files f " +
+            "WHERE f.status = 'ACTIVE' " +
+            "AND (f.search_vector @@ to_tsquery('simple', :tsQuery) " +
+            "OR f.name ILIKE :pattern OR f.original_name ILIKE :pattern) " +
+            "ORDER BY ts_rank(f.search_vector, to_tsquery('simple', :tsQuery)) + similarity(f.name, :query) DESC, " +
+            "f.id DESC",
+            countQuery = "SELECT COUNT(*) FROM document.files f " +
+                    "WHERE f.status = 'ACTIVE' " +
+                    "AND (f.search_vector @@ to_tsquery('simple', :tsQuery) " +
+                    "OR f.name ILIKE :pattern OR f.original_name ILIKE :pattern)",
+            nativeQuery = true)
+    Page<File> search(String query, String tsQuery, String pattern, Pageable pageable);
 
     int countByFolderIdAndStatus(Integer id, FileStatus fileStatus);
 
-    Page<File> findByNameContainingIgnoreCase(String query, Pageable pageable);
+    @Query("SELECT COUNT(f) AS fileCount, COALESCE(SUM(f.fileSize), 0) AS totalBytes FROM File f " +
+            "WHERE f.folder.id = :folderId AND f.status = :status")
+    SubtreeStats getFolderStats(Integer folderId, FileStatus status);
+
+    @Transactional
+    @Modifying
+    @Query("UPDATE File f SET f.viewStatus = :viewStatus, f.viewStatusColor = :viewStatusColor " +
+            "WHERE f.folder.id = :folderId AND f.status = :status " +
+            "AND (f.viewStatus IS NULL OR f.viewStatus <> :excludedViewStatus)")
+    int updateViewStatusInFolder(Integer folderId, FileStatus status, ViewStatus excludedViewStatus,
+                                 ViewStatus viewStatus, ViewStatusColor viewStatusColor);
+
+    // Consultas sobre el subárbol de una carpeta (Folder.treePath)
+
+    @Query("SELECT COUNT(f) AS fileCount, COALESCE(SUM(f.fileSize), 0) AS totalBytes FROM File f " +
+            "WHERE f.folder.treePath LIKE CONCAT(:treePath, '%') AND f.status = :status")
+    SubtreeStats getSubtreeStats(String treePath, FileStatus status);
+
+    @Query("SELECT f.id AS id, f.name AS name, f.storageKey AS storageKey, f.fileSize AS fileSize, " +
+            "f.folder.id AS folderId FROM File f " +
+            "WHERE f.folder.treePath LIKE CONCAT(:treePath, '%') AND f.status = :status")
+    List<SubtreeFile> findSubtreeFiles(String treePath, FileStatus status);
+
+    @Transactional
+    @Modifying
+    @Query("UPDATE File f SET f.viewStatus = :viewStatus, f.viewStatusColor = :viewStatusColor " +
+            "WHERE f.status = :status AND (f.viewStatus IS NULL OR f.viewStatus <> :excludedViewStatus) " +
+            "AND f.folder.id IN (SELECT d.id FROM Folder d WHERE d.treePath LIKE CONCAT(:treePath, '%'))")
+    int updateViewStatusInSubtree(String treePath, FileStatus status, ViewStatus excludedViewStatus,
+                                  ViewStatus viewStatus, ViewStatusColor viewStatusColor);
+
+    // Objetos de todos los archivos y versiones del subárbol, en cualquier estado
+    @Query(value = "SELECT f.storage_key AS \"storageKey\", f.file_size AS \"fileSize\" FROM document.files f " +
+            "JOIN document.folders d ON d.id = f.folder_id " +
+            "WHERE d.tree_path LIKE CONCAT(:treePath, '%') " +
+            "UNION ALL " +
+            "SELECT v.storage_key, v.file_size FROM document.file_versions v " +
+            "JOIN document.files f ON f.id = v.file_id " +
+            "JOIN document.folders d ON d.id = f.folder_id " +
+            "WHERE d.tree_path LIKE CONCAT(:treePath, '%')",
+            nativeQuery = true)
+    List<StoredObject> findSubtreeStoredObjects(String treePath);
+
+    @Transactional
+    @Modifying
+    @Query("UPDATE File f SET f.viewStatus = :viewStatus, f.viewStatusColor = :viewStatusColor, " +
+            "f.lastDownloadedDate = :downloadedAt WHERE f.id IN :ids")
+    int markDownloaded(Collection<Integer> ids, ViewStatus viewStatus, ViewStatusColor viewStatusColor,
+                       LocalDateTime downloadedAt);
 }
\ No newline at end of file
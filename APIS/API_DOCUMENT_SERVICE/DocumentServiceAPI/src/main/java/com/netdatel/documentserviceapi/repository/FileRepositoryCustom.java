@@ -0,0 +1,36 @@
+package com.netdatel.documentserviceapi.repository;
+
+import com.netdatel.documentserviceapi.model.dto.request.MetadataSearchRequest;
+import com.netdatel.documentserviceapi.model.entity.File;
+import com.netdatel.documentserviceapi.model.enums.FileSortField;
+import com.netdatel.documentserviceapi.model.enums.FileStatus;
+import org.springframework.data.domain.Sort;
+
+import java.util.List;
+
+public interface FileRepositoryCustom {
+    /**
+     * IDs de archivos activos del espacio de cliente que cumplen el filtro de metadatos, en orden
+     * descendente de ID a partir de request.afterId.
+     *
+     * @param treePath     ruta de IDs de la carpeta raíz de la búsqueda, o null para todo el espacio
+     * @param containsJson documento JSON para la condición de contención, o null
+     */
+    List<Integer> findIdsByMetadata(MetadataSearchRequest request, String treePath, String containsJson, int limit);
+
+    /**
+     * IDs de los archivos de una carpeta en orden (clave, id), a continuación del último elemento de la
+     * página anterior. La comparación de filas recorre el índice (folder_id, status, clave, id) en ambos sentidos.
+     *
+     * @param afterValue valor de la clave del último elemento ya convertido a su tipo, o null para la primera página
+     * @param afterId    ID del último elemento, o null para la primera página
+     */
+    List<Integer> findIdsInFolder(Integer folderId, FileStatus status, FileSortField sort, Sort.Direction direction,
+                                  Object afterValue, Integer afterId, int limit);
+
+    /**
+     * Inserta los archivos nuevos en un solo lote JDBC y asigna a cada uno el ID generado.
+     * Con IDENTITY Hibernate no puede agrupar inserciones, por eso se hace fuera de JPA.
+     */
+    void insertAll(List<File> files);
+}
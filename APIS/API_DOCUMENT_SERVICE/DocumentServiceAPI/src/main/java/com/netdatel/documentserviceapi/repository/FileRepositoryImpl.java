@@ -0,0 +1,156 @@
+package com.netdatel.documentserviceapi.repository;
+
+import com.netdatel.documentserviceapi.model.dto.request.MetadataSearchRequest;
+import com.netdatel.documentserviceapi.model.entity.File;
+import com.netdatel.documentserviceapi.model.enums.FileSortField;
+import com.netdatel.documentserviceapi.model.enums.FileStatus;
+import lombok.RequiredArgsConstructor;
+import org.springframework.data.domain.Sort;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.Types;
+import java.util.List;
+
+/**
+ * Consulta dinámica de metadatos con SQL nativo. Se usa JdbcTemplate porque los operadores jsonb de
+ * existencia (?) chocan con los parámetros de las consultas JPA; en JDBC se escriben como "??".
+ * La contención y la existencia de claves usan el índice GIN idx_files_metadata_gin.
+ */
+@RequiredArgsConstructor
+public class FileRepositoryImpl implements FileRepositoryCustom {
+    private final NamedParameterJdbcTemplate jdbcTemplate;
+
+    @Override
+    public List<Integer> findIdsByMetadata(MetadataSearchRequest request, String treePath,
+                                           String containsJson, int limit) {
+        StringBuilder sql = new StringBuilder("SELECT f.id FROM document.files f " +
+                "JOIN document.folders d ON d.id = f.folder_id " +
+                "WHERE d.client_space_id = :clientSpaceId AND f.status = 'ACTIVE'");
+        MapSqlParameterSource params = new MapSqlParameterSource("clientSpaceId", request.getClientSpaceId());
+
+        if (treePath != null) {
+            sql.append(" AND d.tree_path LIKE :treePath");
+            params.addValue("treePath", treePath + "%");
+        }
+
+        if (containsJson != null) {
+            sql.append(" AND f.metadata @> CAST(:contains AS jsonb)");
+            params.addValue("contains", containsJson);
+        }
+
+        List<String> keys = request.getHasKeys();
+        for (int i = 0; keys != null && i < keys.size(); i++) {
+            sql.append(" AND f.metadata ?? :key").append(i);
+            params.addValue("key" + i, keys.get(i));
+        }
+
+        List<MetadataSearchRequest.NumericRange> ranges = request.getRanges();
+        for (int i = 0; ranges != null && i < ranges.size(); i++) {
+            MetadataSearchRequest.NumericRange range = ranges.get(i);
+
+            // Solo valores numéricos: el CASE evita errores de conversión con valores de otro tipo
+            String value = "CASE WHEN jsonb_typeof(f.metadata -> :rangeKey" + i + ") = 'number' " +
+                    "THEN (f.metadata ->> :rangeKey" + i + ")::numeric END";
+            sql.append(" AND ").append(value).append(" IS NOT NULL");
+            params.addValue("rangeKey" + i, range.getKey());
+
+            if (range.getMin() != null) {
+                sql.append(" AND ").append(value).append(" >= :rangeMin").append(i);
+                params.addValue("rangeMin" + i, range.getMin());
+            }
+            if (range.getMax() != null) {
+                sql.append(" AND ").append(value).append(" <= :rangeMax").append(i);
+                params.addValue("rangeMax" + i, range.getMax());
+            }
+        }
+
+        if (request.getAfterId() != null) {
+            sql.append(" AND f.id < :afterId");
+            params.addValue("afterId", request.getAfterId());
+        }
+
+        sql.append(" ORDER BY f.id DESC LIMIT :limit");
+        params.addValue("limit", limit);
+
+        return jdbcTemplate.queryForList(sql.toString(), params, Integer.class);
+    }
+
+    @Override
+    public List<Integer> findIdsInFolder(Integer folderId, FileStatus status, FileSortField sort,
+                                         Sort.Direction direction, Object afterValue, Integer afterId, int limit) {
+        // La columna sale del enum, nunca de la petición
+        String column = "f." + sort.getColumn();
+        String order = direction.isAscending() ? "ASC" : "DESC";
+
+        StringBuilder sql = new StringBuilder("SELECT f.id FROM document.files f " +
+                "WHERE f.folder_id = :folderId AND f.status = :status");
+        MapSqlParameterSource params = new MapSqlParameterSource("folderId", folderId)
+                .addValue("status", status.name());
+
+        if (afterId != null) {
+            sql.append(" AND (").append(column).append(", f.id) ")
+                    .append(direction.isAscending() ? ">" : "<")
+                    .append(" (:afterValue, :afterId)");
+            params.addValue("afterValue", afterValue);
+            params.addValue("afterId", afterId);
+        }
+
+        sql.append(" ORDER BY ").append(column).append(' ').append(order)
+                .append(", f.id ").append(order)
+                .append(" LIMIT :limit");
+        params.addValue("limit", limit);
+
+        return jdbcTemplate.queryForList(sql.toString(), params, Integer.class);
+    }
+
+    @Override
+    public void insertAll(List<File> files) {
+        if (files.isEmpty()) {
+            return;
+        }
+
+        jdbcTemplate.getJdbcTemplate().execute((ConnectionCallback<Void>) connection -> {
+            try (PreparedStatement statement = connection.prepareStatement(
+                    "INSERT INTO document.files (folder_id, name, original_name, file_size, mime_type, " +
+                    "storage_path, storage_key, hash_value, status, view_status, view_status_color, " +
+                    "upload_date, uploaded_by, version, metadata) " +
+                    "VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, CAST(? AS jsonb))",
+                    new String[]{"id"})) {
+                for (File file : files) {
+                    statement.setInt(1, file.getFolder().getId());
+                    statement.setString(2, file.getName());
+                    statement.setString(3, file.getOriginalName());
+                    statement.setLong(4, file.getFileSize());
+                    statement.setString(5, file.getMimeType());
+                    statement.setString(6, file.getStoragePath());
+                    statement.setString(7, file.getStorageKey());
+                    statement.setString(8, file.getHashValue());
+                    statement.setString(9, file.getStatus().name());
+                    statement.setString(10, file.getViewStatus().name());
+                    statement.setString(11, file.getViewStatusColor().name());
+                    statement.setObject(12, file.getUploadDate());
+                    statement.setInt(13, file.getUploadedBy());
+                    statement.setInt(14, file.getVersion());
+                    statement.setObject(15, file.getMetadata(), Types.VARCHAR);
+                    statement.addBatch();
+                }
+                statement.executeBatch();
+
+                // El driver devuelve las claves generadas en el orden del lote
+                try (ResultSet keys = statement.getGeneratedKeys()) {
+                    for (File file : files) {
+                        if (!keys.next()) {
+                            throw new IllegalStateException("Missing generated id for file " + file.getName());
+                        }
+                        file.setId(keys.getInt(1));
+                    }
+                }
+            }
+            return null;
+        });
+    }
+}
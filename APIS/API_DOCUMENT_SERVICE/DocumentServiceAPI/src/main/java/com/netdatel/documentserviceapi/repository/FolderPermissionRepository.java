@@ -1,10 +1,13 @@
 package com.netdatel.documentserviceapi.repository;
 
 import com.netdatel.documentserviceapi.model.entity.FolderPermission;
+import com.netdatel.documentserviceapi.model.projection.ResolvedPermission;
+import com.netdatel.documentserviceapi.model.projection.ResourcePermission;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.stereotype.Repository;
 
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 
@@ -16,4 +19,54 @@ public interface FolderPermissionRepository extends JpaRepository<FolderPermissi
 
     @Query("SELECT fp FROM FolderPermission fp WHERE fp.folder.id = :folderId AND fp.isActive = true AND (fp.validUntil IS NULL OR fp.validUntil > CURRENT_TIMESTAMP)")
     List<FolderPermission> findActivePermissionsByFolderId(Integer folderId);
+
+    /**
+     * Resuelve en una sola consulta el permiso efectivo de un usuario sobre una carpeta: recorre sus
+     * ancestros con un CTE recursivo y toma el permiso activo y no vencido más cercano.
+     * No devuelve filas si la carpeta no existe.
+     */
+    @Query(value = "WITH RECURSIVE ancestors AS ( " +
+            "    SELECT id, parent_id, tree_path, 0 AS depth FROM document.folders WHERE id = :folderId " +
+            "    UNION ALL " +
+            "    SELECT f.id, f.parent_id, f.tree_path, a.depth + 1 " +
+            "    FROM document.folders f JOIN ancestors a ON f.id = a.parent_id " +
+            ") " +
+            "SELECT t.tree_path AS \"treePath\", g.can_read AS \"canRead\", g.can_write AS \"canWrite\", " +
+            "       g.can_delete AS \"canDelete\", g.can_download AS \"canDownload\", " +
+            "       g.valid_until AS \"validUntil\" " +
+            "FROM ancestors t " +
+            "LEFT JOIN LATERAL ( " +
+            "    SELECT fp.* FROM ancestors a " +
+            "    JOIN document.folder_permissions fp ON fp.folder_id = a.id " +
+            "    WHERE fp.user_id = :userId AND fp.is_active " +
+            "    AND (fp.valid_until IS NULL OR fp.valid_until > CURRENT_TIMESTAMP) " +
+            "    ORDER BY a.depth LIMIT 1 " +
+            ") g ON TRUE " +
+            "WHERE t.depth = 0", nativeQuery = true)
+    Optional<ResolvedPermission> resolveEffectivePermission(Integer folderId, Integer userId);
+
+    /**
+     * Versión en bloque de resolveEffectivePermission: recorre a la vez las cadenas de ancestros de
+     * todas las carpetas indicadas y devuelve una fila por cada carpeta existente.
+     */
+    @Query(value = "WITH RECURSIVE chain AS ( " +
+            "    SELECT id AS target_id, id AS folder_id, parent_id, tree_path, 0 AS depth " +
+            "    FROM document.folders WHERE id IN (:folderIds) " +
+            "    UNION ALL " +
+            "    SELECT c.target_id, f.id, f.parent_id, c.tree_path, c.depth + 1 " +
+            "    FROM document.folders f JOIN chain c ON f.id = c.parent_id " +
+            ") " +
+            "SELECT t.target_id AS \"id\", t.tree_path AS \"treePath\", g.can_read AS \"canRead\", " +
+            "       g.can_write AS \"canWrite\", g.can_delete AS \"canDelete\", " +
+            "       g.can_download AS \"canDownload\", g.valid_until AS \"validUntil\" " +
+            "FROM chain t " +
+            "LEFT JOIN LATERAL ( " +
+            "    SELECT fp.* FROM chain c " +
+            "    JOIN document.folder_permissions fp ON fp.folder_id = c.folder_id " +
+            "    WHERE c.target_id = t.target_id AND fp.user_id = :userId AND fp.is_active " +
+            "    AND (fp.valid_until IS NULL OR fp.valid_until > CURRENT_TIMESTAMP) " +
+            "    ORDER BY c.depth LIMIT 1 " +
+            ") g ON TRUE " +
+            "WHERE t.depth = 0", nativeQuery = true)
+    List<ResourcePermission> resolveEffectivePermissions(Collection<Integer> folderIds, Integer userId);
 }
\ No newline at end of file
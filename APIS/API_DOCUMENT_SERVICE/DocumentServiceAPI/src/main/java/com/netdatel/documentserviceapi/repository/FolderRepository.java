@@ -1,17 +1,69 @@
 package com.netdatel.documentserviceapi.repository;
 
 import com.netdatel.documentserviceapi.model.entity.Folder;
+import com.netdatel.documentserviceapi.model.projection.FolderNode;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
 
 import java.util.List;
 import java.util.Optional;
 
 @Repository
 public interface FolderRepository extends JpaRepository<Folder, Integer> {
-    List<Folder> findByClientSpaceIdAndParentIsNull(Integer clientSpaceId);
-    List<Folder> findByParentId(Integer parentId);
     List<Folder> findByClientSpaceIdAndPathContaining(Integer clientSpaceId, String pathFragment);
     Optional<Folder> findByClientSpaceIdAndParentIdAndName(Integer clientSpaceId, Integer parentId, String name);
     boolean existsByClientSpaceIdAndParentIdAndName(Integer clientSpaceId, Integer parentId, String name);
+    long countByClientSpaceIdAndParentIsNull(Integer clientSpaceId);
+    long countByParentId(Integer parentId);
+
+    // Listados por cursor en orden (name, id): la primera página no lleva condición y las siguientes
+    // continúan tras el último elemento usando los índices idx_folders_root_name e idx_folders_parent_name
+
+    @Query(value = "SELECT d.* FROM document.folders d " +
+            "WHERE d.client_space_id = :clientSpaceId AND d.parent_id IS NULL " +
+            "ORDER BY d.name, d.id LIMIT :limit", nativeQuery = true)
+    List<Folder> findRootFoldersPage(Integer clientSpaceId, int limit);
+
+    @Query(value = "SELECT d.* FROM document.folders d " +
+            "WHERE d.client_space_id = :clientSpaceId AND d.parent_id IS NULL " +
+            "AND (d.name, d.id) > (:afterName, :afterId) " +
+            "ORDER BY d.name, d.id LIMIT :limit", nativeQuery = true)
+    List<Folder> findRootFoldersPageAfter(Integer clientSpaceId, String afterName, Integer afterId, int limit);
+
+    @Query(value = "SELECT d.* FROM document.folders d WHERE d.parent_id = :parentId " +
+            "ORDER BY d.name, d.id LIMIT :limit", nativeQuery = true)
+    List<Folder> findSubfoldersPage(Integer parentId, int limit);
+
+    @Query(value = "SELECT d.* FROM document.folders d WHERE d.parent_id = :parentId " +
+            "AND (d.name, d.id) > (:afterName, :afterId) " +
+            "ORDER BY d.name, d.id LIMIT :limit", nativeQuery = true)
+    List<Folder> findSubfoldersPageAfter(Integer parentId, String afterName, Integer afterId, int limit);
+
+    // Subárbol completo (incluida la carpeta raíz), ordenado de forma que cada padre precede a sus hijos
+    @Query("SELECT d.id AS id, d.name AS name, d.treePath AS treePath FROM Folder d " +
+            "WHERE d.treePath LIKE CONCAT(:treePath, '%') ORDER BY d.treePath")
+    List<FolderNode> findSubtreeNodes(String treePath);
+
+    /**
+     * Reescribe en una sola sentencia las rutas de todos los descendientes de una carpeta que se
+     * renombra o mueve. Solo se sustituye el prefijo inicial de cada ruta.
+     *
+     * @return cantidad de carpetas descendientes actualizadas
+     */
+    @Transactional
+    @Modifying
+    @Query(value = "UPDATE document.folders SET " +
+            "path = :newPath || substring(path from char_length(:oldPath) + 1), " +
+            "tree_path = :newTreePath || substring(tree_path from char_length(:oldTreePath) + 1) " +
+            "WHERE tree_path LIKE :oldTreePath || '%' AND id <> :folderId", nativeQuery = true)
+    int rewriteDescendantPaths(Integer folderId, String oldPath, String newPath,
+                               String oldTreePath, String newTreePath);
+
+    @Transactional
+    @Modifying
+    @Query("DELETE FROM Folder d WHERE d.treePath LIKE CONCAT(:treePath, '%')")
+    int deleteSubtree(String treePath);
 }
\ No newline at end of file
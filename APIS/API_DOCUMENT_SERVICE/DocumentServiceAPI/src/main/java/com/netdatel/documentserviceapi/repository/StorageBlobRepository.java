@@ -0,0 +1,12 @@
+package com.netdatel.documentserviceapi.repository;
+
+import com.netdatel.documentserviceapi.model.entity.StorageBlob;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.stereotype.Repository;
+
+import java.util.Optional;
+
+@Repository
+public interface StorageBlobRepository extends JpaRepository<StorageBlob, Integer>, StorageBlobRepositoryCustom {
+    Optional<StorageBlob> findByStorageKey(String storageKey);
+}
@@ -0,0 +1,38 @@
+package com.netdatel.documentserviceapi.repository;
+
+import java.util.Collection;
+import java.util.Map;
+
+public interface StorageBlobRepositoryCustom {
+    /**
+     * Registra una referencia al contenido: si ya existe un blob con el mismo hash en el espacio incrementa
+     * su contador; si no, crea el blob con storageKey.
+     *
+     * @return clave del blob que debe usarse y si se acaba de crear
+     */
+    AcquiredBlob acquire(Integer clientSpaceId, String contentHash, String storageKey, long size);
+
+    /**
+     * Igual que acquire para varios contenidos en una sola sentencia. Cada hash debe aparecer una vez;
+     * references indica cuántos archivos nuevos lo referencian.
+     *
+     * @return blob resultante por hash de contenido
+     */
+    Map<String, AcquiredBlob> acquireAll(Integer clientSpaceId, Collection<BlobReference> references);
+
+    /**
+     * Resta una referencia y elimina el blob cuando llega a cero.
+     *
+     * @return true si el objeto ya no está referenciado y puede borrarse de MinIO
+     */
+    boolean release(String storageKey);
+
+    // Encola el objeto para borrarlo de MinIO tras confirmar la transacción actual
+    void enqueuePurge(String storageKey);
+
+    record AcquiredBlob(String storageKey, boolean created) {
+    }
+
+    record BlobReference(String contentHash, String storageKey, long size, int references) {
+    }
+}
@@ -0,0 +1,104 @@
+package com.netdatel.documentserviceapi.repository;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Operaciones de contador de referencias con INSERT ... ON CONFLICT y UPDATE ... RETURNING, atómicas
+ * frente a subidas concurrentes del mismo contenido.
+ */
+@RequiredArgsConstructor
+public class StorageBlobRepositoryImpl implements StorageBlobRepositoryCustom {
+    private final JdbcTemplate jdbcTemplate;
+
+    @Override
+    public AcquiredBlob acquire(Integer clientSpaceId, String contentHash, String storageKey, long size) {
+        // xmax = 0 solo en filas recién insertadas, no en las actualizadas por el ON CONFLICT
+        return jdbcTemplate.queryForObject(
+                "INSERT INTO document.storage_blobs " +
+                "(client_space_id, content_hash, storage_key, size_bytes, ref_count, created_at) " +
+                "VALUES (?, ?, ?, ?, 1, CURRENT_TIMESTAMP) " +
+                "ON CONFLICT (client_space_id, content_hash) DO UPDATE " +
+                "SET ref_count = storage_blobs.ref_count + 1 " +
+                "RETURNING storage_key, (xmax = 0) AS created",
+                (rs, rowNum) -> new AcquiredBlob(rs.getString("storage_key"), rs.getBoolean("created")),
+                clientSpaceId, contentHash, storageKey, size);
+    }
+
+    @Override
+    public Map<String, AcquiredBlob> acquireAll(Integer clientSpaceId, Collection<BlobReference> references) {
+        // Orden fijo de hashes: dos lotes concurrentes bloquean las filas en el mismo orden y no se interbloquean
+        List<BlobReference> sorted = references.stream()
+                .sorted(Comparator.comparing(BlobReference::contentHash))
+                .toList();
+
+        return jdbcTemplate.execute((ConnectionCallback<Map<String, AcquiredBlob>>) connection -> {
+            try (PreparedStatement statement = connection.prepareStatement(
+                    "INSERT INTO document.storage_blobs " +
+                    "(client_space_id, content_hash, storage_key, size_bytes, ref_count, created_at) " +
+                    "SELECT ?, t.content_hash, t.storage_key, t.size_bytes, t.ref_count, CURRENT_TIMESTAMP " +
+                    "FROM unnest(?::varchar[], ?::varchar[], ?::bigint[], ?::integer[]) " +
+                    "AS t(content_hash, storage_key, size_bytes, ref_count) " +
+                    "ORDER BY t.content_hash " +
+                    "ON CONFLICT (client_space_id, content_hash) DO UPDATE " +
+                    "SET ref_count = storage_blobs.ref_count + EXCLUDED.ref_count " +
+                    "RETURNING content_hash, storage_key, (xmax = 0) AS created")) {
+                statement.setInt(1, clientSpaceId);
+                statement.setArray(2, connection.createArrayOf("varchar",
+                        sorted.stream().map(BlobReference::contentHash).toArray()));
+                statement.setArray(3, connection.createArrayOf("varchar",
+                        sorted.stream().map(BlobReference::storageKey).toArray()));
+                statement.setArray(4, connection.createArrayOf("bigint",
+                        sorted.stream().map(BlobReference::size).toArray()));
+                statement.setArray(5, connection.createArrayOf("integer",
+                        sorted.stream().map(BlobReference::references).toArray()));
+
+                Map<String, AcquiredBlob> blobs = new HashMap<>();
+                try (ResultSet rs = statement.executeQuery()) {
+                    while (rs.next()) {
+                        blobs.put(rs.getString("content_hash"),
+                                new AcquiredBlob(rs.getString("storage_key"), rs.getBoolean("created")));
+                    }
+                }
+                return blobs;
+            }
+        });
+    }
+
+    @Override
+    public boolean release(String storageKey) {
+        List<Integer> remaining = jdbcTemplate.queryForList(
+                "UPDATE document.storage_blobs SET ref_count = ref_count - 1 " +
+                "WHERE storage_key = ? AND ref_count > 0 RETURNING ref_count",
+                Integer.class, storageKey);
+
+        if (remaining.isEmpty()) {
+            // Objeto anterior a la deduplicación: pertenece en exclusiva a quien lo libera
+            return jdbcTemplate.queryForObject(
+                    "SELECT NOT EXISTS (SELECT 1 FROM document.storage_blobs WHERE storage_key = ?)",
+                    Boolean.class, storageKey);
+        }
+
+        if (remaining.get(0) > 0) {
+            return false;
+        }
+
+        // Una subida concurrente del mismo contenido pudo volver a referenciarlo antes del borrado
+        return jdbcTemplate.update(
+                "DELETE FROM document.storage_blobs WHERE storage_key = ? AND ref_count = 0", storageKey) > 0;
+    }
+
+    @Override
+    public void enqueuePurge(String storageKey) {
+        jdbcTemplate.update("INSERT INTO document.storage_purge_queue (storage_key) VALUES (?)", storageKey);
+    }
+}
@@ -0,0 +1,28 @@
+package com.netdatel.documentserviceapi.repository;
+
+import com.netdatel.documentserviceapi.model.entity.UploadSessionPart;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Optional;
+
+@Repository
+public interface UploadSessionPartRepository extends JpaRepository<UploadSessionPart, Integer> {
+    List<UploadSessionPart> findByUploadSessionIdOrderByPartNumberAsc(Integer uploadSessionId);
+    Optional<UploadSessionPart> findByUploadSessionIdAndPartNumber(Integer uploadSessionId, Integer partNumber);
+
+    // Reintentos concurrentes de la misma parte: gana la última ETag en lugar de violar la restricción única
+    @Transactional
+    @Modifying
+    @Query(value = "INSERT INTO document.upload_session_parts (upload_session_id, part_number, part_size, etag, uploaded_at) " +
+            "VALUES (:uploadSessionId, :partNumber, :partSize, :etag, :now) " +
+            "ON CONFLICT (upload_session_id, part_number) " +
+            "DO UPDATE SET etag = EXCLUDED.etag, part_size = EXCLUDED.part_size, uploaded_at = EXCLUDED.uploaded_at",
+            nativeQuery = true)
+    int upsertPart(Integer uploadSessionId, Integer partNumber, long partSize, String etag, LocalDateTime now);
+}
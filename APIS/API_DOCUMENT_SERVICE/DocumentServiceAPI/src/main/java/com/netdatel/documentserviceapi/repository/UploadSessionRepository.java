@@ -0,0 +1,34 @@
+package com.netdatel.documentserviceapi.repository;
+
+import com.netdatel.documentserviceapi.model.entity.UploadSession;
+import com.netdatel.documentserviceapi.model.enums.UploadStatus;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+@Repository
+public interface UploadSessionRepository extends JpaRepository<UploadSession, Integer> {
+    List<UploadSession> findByUserIdAndStatusOrderByCreatedAtDesc(Integer userId, UploadStatus status);
+
+    /**
+     * Sesiones activas vencidas y finalizaciones abandonadas (COMPLETING desde antes de completingBefore);
+     * las bloqueadas por otro nodo se saltan. Requiere una transacción.
+     */
+    @Query(value = "SELECT s.* FROM document.upload_sessions s " +
+            "WHERE (s.status = 'ACTIVE' AND s.expires_at < :now) " +
+            "OR (s.status = 'COMPLETING' AND s.expires_at < :completingBefore) " +
+            "FOR UPDATE SKIP LOCKED", nativeQuery = true)
+    List<UploadSession> lockExpiredSessions(LocalDateTime now, LocalDateTime completingBefore);
+
+    // Transición atómica de estado; devuelve 0 si la sesión ya no estaba en expectedStatus
+    @Transactional
+    @Modifying
+    @Query(value = "UPDATE document.upload_sessions SET status = :newStatus " +
+            "WHERE id = :id AND status = :expectedStatus", nativeQuery = true)
+    int updateStatus(Integer id, String expectedStatus, String newStatus);
+}
@@ -0,0 +1,130 @@
+package com.netdatel.documentserviceapi.security;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Expiry;
+import com.netdatel.documentserviceapi.config.PermissionCacheProperties;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import lombok.AllArgsConstructor;
+import lombok.EqualsAndHashCode;
+import lombok.Getter;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+
+/**
+ * Caché de permisos efectivos sobre carpetas, por (usuario, carpeta), con los permisos heredados ya resueltos.
+ * Cada entrada guarda la ruta de IDs de la carpeta para invalidar con precisión un subárbol, y expira
+ * como tarde cuando vence el primero de los permisos que la componen. Dentro de una transacción las
+ * invalidaciones se aplican tras el commit: antes, una lectura concurrente volvería a guardar los permisos
+ * viejos durante todo el TTL.
+ */
+@Component
+public class EffectivePermissionCache {
+    private final PermissionCacheProperties properties;
+    private final Cache<Key, EffectivePermission> cache;
+
+    public EffectivePermissionCache(PermissionCacheProperties properties, MeterRegistry meterRegistry) {
+        this.properties = properties;
+        this.cache = Caffeine.newBuilder()
+                .maximumSize(properties.getMaximumSize())
+                .expireAfter(new PermissionExpiry(properties.getTtl()))
+                .recordStats()
+                .build();
+
+        CaffeineCacheMetrics.monitor(meterRegistry, cache, "effectivePermissions");
+    }
+
+    public EffectivePermission get(Integer userId, Integer folderId) {
+        if (!properties.isEnabled()) {
+            return null;
+        }
+
+        return cache.getIfPresent(new Key(userId, folderId));
+    }
+
+    public void put(Integer userId, Integer folderId, EffectivePermission permission) {
+        if (properties.isEnabled()) {
+            cache.put(new Key(userId, folderId), permission);
+        }
+    }
+
+    // Cambio en los permisos de un usuario sobre una carpeta: afecta a toda la rama que hereda de ella
+    public void invalidateSubtree(Integer userId, String treePath) {
+        afterCommit(() -> cache.asMap().entrySet().removeIf(entry -> entry.getKey().userId.equals(userId)
+                && isInSubtree(entry.getValue(), treePath)));
+    }
+
+    // Movimiento o eliminación de una carpeta: cambia la herencia para todos los usuarios
+    public void invalidateSubtree(String treePath) {
+        afterCommit(() -> cache.asMap().values().removeIf(permission -> isInSubtree(permission, treePath)));
+    }
+
+    private void afterCommit(Runnable invalidation) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            invalidation.run();
+            return;
+        }
+
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                invalidation.run();
+            }
+        });
+    }
+
+    private boolean isInSubtree(EffectivePermission permission, String treePath) {
+        return permission.getTreePath().startsWith(treePath);
+    }
+
+    @AllArgsConstructor
+    @EqualsAndHashCode
+    private static class Key {
+        private final Integer userId;
+        private final Integer folderId;
+    }
+
+    @Getter
+    @AllArgsConstructor
+    public static class EffectivePermission {
+        // Máscara de PermissionBit
+        private final int permissions;
+        // Ruta de IDs de la carpeta (Folder.treePath)
+        private final String treePath;
+        // Vencimiento más próximo de los permisos que la componen; nulo si ninguno vence
+        private final LocalDateTime expiresAt;
+    }
+
+    private static class PermissionExpiry implements Expiry<Key, EffectivePermission> {
+        private final long ttlNanos;
+
+        PermissionExpiry(Duration ttl) {
+            this.ttlNanos = ttl.toNanos();
+        }
+
+        @Override
+        public long expireAfterCreate(Key key, EffectivePermission value, long currentTime) {
+            if (value.getExpiresAt() == null) {
+                return ttlNanos;
+            }
+
+            long untilExpiration = Duration.between(LocalDateTime.now(), value.getExpiresAt()).toNanos();
+            return Math.max(0, Math.min(ttlNanos, untilExpiration));
+        }
+
+        @Override
+        public long expireAfterUpdate(Key key, EffectivePermission value, long currentTime, long currentDuration) {
+            return expireAfterCreate(key, value, currentTime);
+        }
+
+        @Override
+        public long expireAfterRead(Key key, EffectivePermission value, long currentTime, long currentDuration) {
+            return currentDuration;
+        }
+    }
+}
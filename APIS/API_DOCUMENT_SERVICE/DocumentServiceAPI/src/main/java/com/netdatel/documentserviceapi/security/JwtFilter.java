@@ -1,5 +1,6 @@
 package com.netdatel.documentserviceapi.security;
 
+import com.netdatel.documentserviceapi.service.impl.LocalStorageServiceImpl;
 import io.jsonwebtoken.Claims;
 import jakarta.servlet.FilterChain;
 import jakarta.servlet.ServletException;
@@ -58,8 +59,9 @@ public class JwtFilter extends OncePerRequestFilter {
         try {
             String path = request.getRequestURI();
 
-            // Skip JWT validation for health check and OpenAPI endpoints
-            if (path.equals("/api/health") || path.startsWith("/swagger-ui") || path.startsWith("/v3/api-docs")) {
+            // Skip JWT validation for health check, OpenAPI and signed local storage downloads
+            if (path.equals("/api/health") || path.startsWith("/swagger-ui") || path.startsWith("/v3/api-docs")
+                    || path.equals(LocalStorageServiceImpl.DOWNLOAD_PATH)) {
                 filterChain.doFilter(request, response);
                 return;
             }
@@ -2,7 +2,11 @@ package com.netdatel.documentserviceapi.service;
 
 import com.netdatel.documentserviceapi.model.entity.FileAccessHistory;
 import com.netdatel.documentserviceapi.model.enums.ActionType;
+import com.netdatel.documentserviceapi.model.projection.DailyAccessCount;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
 
+import java.time.LocalDate;
 import java.time.LocalDateTime;
 import java.util.List;
 import java.util.Map;
@@ -15,4 +19,12 @@ public interface AuditService {
     List<FileAccessHistory> getFileAccessHistory(Integer fileId);
     List<FileAccessHistory> getUserAccessHistory(Integer userId);
     List<FileAccessHistory> getUserAccessHistoryByDateRange(Integer userId, LocalDateTime startDate, LocalDateTime endDate);
+    Page<FileAccessHistory> getFileAccessHistory(Integer fileId, Pageable pageable);
+    Page<FileAccessHistory> getUserAccessHistory(Integer userId, Pageable pageable);
+
+    // Consultas agregadas sobre los resúmenes diarios, sin recorrer el historial
+    List<DailyAccessCount> getFileDailyAccessCounts(Integer fileId, LocalDate startDate, LocalDate endDate);
+    List<DailyAccessCount> getUserDailyAccessCounts(Integer userId, LocalDate startDate, LocalDate endDate);
+    Map<ActionType, Long> getFileAccessTotals(Integer fileId, LocalDate startDate, LocalDate endDate);
+    Map<ActionType, Long> getUserAccessTotals(Integer userId, LocalDate startDate, LocalDate endDate);
 }
\ No newline at end of file
@@ -1,13 +1,20 @@
 package com.netdatel.documentserviceapi.service;
 
 import com.netdatel.documentserviceapi.model.dto.request.BatchDownloadRequest;
+import com.netdatel.documentserviceapi.model.dto.response.CursorPageResponse;
 import com.netdatel.documentserviceapi.model.entity.BatchDownload;
+import com.netdatel.documentserviceapi.utils.ZipStreamWriter;
 
-import java.util.List;
+import java.io.IOException;
+import java.io.OutputStream;
 
 public interface BatchDownloadService {
     BatchDownload startBatchDownload(BatchDownloadRequest request, Integer userId);
     BatchDownload getBatchDownload(Integer id, Integer userId);
-    List<BatchDownload> getUserBatchDownloads(Integer userId);
+    CursorPageResponse<BatchDownload> getUserBatchDownloads(Integer userId, String cursor, int size, boolean withCount);
+    boolean isStreamable(Integer folderId, boolean includeSubfolders);
+    void buildBatchDownload(BatchDownload batchDownload, ZipStreamWriter.ProgressListener progressListener)
+            throws IOException;
+    int streamFolderZip(Integer folderId, boolean includeSubfolders, OutputStream outputStream) throws IOException;
 }
 
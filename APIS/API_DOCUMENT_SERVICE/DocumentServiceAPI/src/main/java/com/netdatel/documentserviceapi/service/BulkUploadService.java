@@ -0,0 +1,13 @@
+package com.netdatel.documentserviceapi.service;
+
+import com.netdatel.documentserviceapi.model.dto.request.BulkUploadFile;
+import com.netdatel.documentserviceapi.model.dto.response.BulkUploadResponse;
+import com.netdatel.documentserviceapi.model.entity.File;
+
+import java.util.List;
+import java.util.Map;
+
+public interface BulkUploadService {
+    BulkUploadResponse<File> uploadFiles(Integer folderId, List<BulkUploadFile> files,
+                                         Map<String, Object> metadata, Integer userId);
+}
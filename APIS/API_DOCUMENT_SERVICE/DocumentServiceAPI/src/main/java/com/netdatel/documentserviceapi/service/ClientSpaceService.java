@@ -12,5 +12,5 @@ public interface ClientSpaceService {
     List<ClientSpace> getClientSpacesByClient(Integer clientId);
     ClientSpace updateClientSpace(Integer id, ClientSpaceRequest request, Integer userId);
     void deleteClientSpace(Integer id);
-    void updateUsedBytes(Integer id, Long usedBytes);
+    void addUsedBytes(Integer id, long delta);
 }
\ No newline at end of file
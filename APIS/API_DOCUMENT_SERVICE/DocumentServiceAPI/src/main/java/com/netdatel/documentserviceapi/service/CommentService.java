@@ -1,13 +1,12 @@
 package com.netdatel.documentserviceapi.service;
 
 import com.netdatel.documentserviceapi.model.dto.request.CommentRequest;
+import com.netdatel.documentserviceapi.model.dto.response.CursorPageResponse;
 import com.netdatel.documentserviceapi.model.entity.FileComment;
 
-import java.util.List;
-
 public interface CommentService {
     FileComment createComment(CommentRequest request, Integer userId);
-    List<FileComment> getFileComments(Integer fileId);
+    CursorPageResponse<FileComment> getFileComments(Integer fileId, String cursor, int size, boolean withCount);
     FileComment getComment(Integer id);
     FileComment updateComment(Integer id, String newText);
     void deleteComment(Integer id);
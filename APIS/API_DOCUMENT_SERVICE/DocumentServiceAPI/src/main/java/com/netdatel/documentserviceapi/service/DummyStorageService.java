@@ -2,12 +2,17 @@ package com.netdatel.documentserviceapi.service;
 
 import com.netdatel.documentserviceapi.exception.StorageException;
 import io.minio.StatObjectResponse;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
 import org.springframework.stereotype.Service;
 
 import java.io.InputStream;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
 import java.util.Map;
 
 @Service
+@ConditionalOnProperty(name = "storage.type", havingValue = "dummy")
 public class DummyStorageService implements StorageService {
     @Override
     public String uploadFile(InputStream fileData, long size, String objectKey, String contentType, Map<String, String> metadata) {
@@ -19,6 +24,16 @@ public class DummyStorageService implements StorageService {
         return new byte[0];
     }
 
+    @Override
+    public InputStream getFileStream(String objectKey) {
+        return InputStream.nullInputStream();
+    }
+
+    @Override
+    public InputStream getFileStream(String objectKey, long offset, long length) {
+        return InputStream.nullInputStream();
+    }
+
     @Override
     public String generatePresignedUrl(String objectKey, int expiryMinutes) {
         return null;
@@ -29,6 +44,16 @@ public class DummyStorageService implements StorageService {
 
     }
 
+    @Override
+    public List<String> deleteFiles(Collection<String> objectKeys) {
+        return Collections.emptyList();
+    }
+
+    @Override
+    public Iterable<StoredObject> listObjects(String prefix) {
+        return Collections.emptyList();
+    }
+
     @Override
     public boolean bucketExists(String bucketName) {
         return false;
@@ -48,5 +73,25 @@ public class DummyStorageService implements StorageService {
     public StatObjectResponse getObjectStat(String objectKey) throws StorageException {
         return null;
     }
+
+    @Override
+    public String createMultipartUpload(String objectKey, String contentType) {
+        return null;
+    }
+
+    @Override
+    public String uploadPart(String objectKey, String uploadId, int partNumber, InputStream data, long size) {
+        return null;
+    }
+
+    @Override
+    public void completeMultipartUpload(String objectKey, String uploadId, Map<Integer, String> partEtags) {
+
+    }
+
+    @Override
+    public void abortMultipartUpload(String objectKey, String uploadId) {
+
+    }
     // métodos vacíos
 }
\ No newline at end of file
@@ -1,6 +1,8 @@
 package com.netdatel.documentserviceapi.service;
 
+import com.netdatel.documentserviceapi.model.dto.request.FolderMoveRequest;
 import com.netdatel.documentserviceapi.model.dto.request.FolderRequest;
+import com.netdatel.documentserviceapi.model.dto.response.CursorPageResponse;
 import com.netdatel.documentserviceapi.model.entity.Folder;
 
 import java.util.List;
@@ -8,9 +10,10 @@ import java.util.List;
 public interface FolderService {
     Folder createFolder(FolderRequest request, Integer userId);
     Folder getFolder(Integer id);
-    List<Folder> getRootFolders(Integer clientSpaceId);
-    List<Folder> getSubfolders(Integer parentId);
+    CursorPageResponse<Folder> getRootFolders(Integer clientSpaceId, String cursor, int size, boolean withCount);
+    CursorPageResponse<Folder> getSubfolders(Integer parentId, String cursor, int size, boolean withCount);
     Folder updateFolder(Integer id, FolderRequest request, Integer userId);
+    int moveFolder(Integer id, FolderMoveRequest request, Integer userId);
     void deleteFolder(Integer id);
     List<Folder> searchFolders(Integer clientSpaceId, String query);
 }
\ No newline at end of file
@@ -4,7 +4,9 @@ import com.netdatel.documentserviceapi.model.dto.request.PermissionRequest;
 import com.netdatel.documentserviceapi.model.entity.FilePermission;
 import com.netdatel.documentserviceapi.model.entity.FolderPermission;
 
+import java.util.Collection;
 import java.util.List;
+import java.util.Map;
 
 public interface PermissionService {
     // Folder permissions
@@ -31,4 +33,8 @@ public interface PermissionService {
     boolean userCanWriteFile(Integer userId, Integer fileId);
     boolean userCanDeleteFile(Integer userId, Integer fileId);
     boolean userCanDownloadFile(Integer userId, Integer fileId);
+
+    // Batch verification: máscara de PermissionBit por ID
+    Map<Integer, Integer> getFolderPermissionMasks(Integer userId, Collection<Integer> folderIds);
+    Map<Integer, Integer> getFilePermissionMasks(Integer userId, Collection<Integer> fileIds);
 }
\ No newline at end of file
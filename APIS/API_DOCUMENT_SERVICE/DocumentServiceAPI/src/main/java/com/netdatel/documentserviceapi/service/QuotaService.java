@@ -0,0 +1,12 @@
+package com.netdatel.documentserviceapi.service;
+
+import java.time.LocalDateTime;
+
+public interface QuotaService {
+    void reserve(String reservationKey, Integer clientSpaceId, long bytes, LocalDateTime expiresAt);
+    void commit(String reservationKey);
+    // Confirma solo los bytes indicados (p. ej. parte de una subida masiva) y libera el resto
+    void commit(String reservationKey, long bytes);
+    void release(String reservationKey);
+    int reconcile();
+}
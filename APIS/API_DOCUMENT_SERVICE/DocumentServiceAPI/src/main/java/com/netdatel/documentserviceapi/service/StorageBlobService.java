@@ -0,0 +1,14 @@
+package com.netdatel.documentserviceapi.service;
+
+import com.netdatel.documentserviceapi.repository.StorageBlobRepositoryCustom.BlobReference;
+
+import java.util.Collection;
+import java.util.Map;
+
+public interface StorageBlobService {
+    String acquire(Integer clientSpaceId, String contentHash, String storageKey, long size);
+    // Clave del blob a usar por hash de contenido
+    Map<String, String> acquireAll(Integer clientSpaceId, Collection<BlobReference> references);
+    boolean release(Integer clientSpaceId, String storageKey, long size);
+    void releaseForPurge(Integer clientSpaceId, String storageKey, long size);
+}
@@ -4,15 +4,60 @@ import com.netdatel.documentserviceapi.exception.StorageException;
 import io.minio.StatObjectResponse;
 
 import java.io.InputStream;
+import java.time.ZonedDateTime;
+import java.util.Collection;
+import java.util.List;
 import java.util.Map;
+import java.util.concurrent.CompletableFuture;
 
 public interface StorageService {
     String uploadFile(InputStream fileData, long size, String objectKey, String contentType, Map<String, String> metadata);
     byte[] downloadFile(String objectKey);
+    InputStream getFileStream(String objectKey);
+    InputStream getFileStream(String objectKey, long offset, long length);
     String generatePresignedUrl(String objectKey, int expiryMinutes);
     void deleteFile(String objectKey);
+    // Borrado por lotes; devuelve las claves que no se pudieron eliminar
+    List<String> deleteFiles(Collection<String> objectKeys);
+    // Recorre los objetos cuya clave empieza por el prefijo; en MinIO el listado se pide por páginas al recorrerlo
+    Iterable<StoredObject> listObjects(String prefix);
     boolean bucketExists(String bucketName);
     void createBucket(String bucketName);
     long getFileSize(String objectKey) throws StorageException;
     StatObjectResponse getObjectStat(String objectKey) throws StorageException;
-}
\ No newline at end of file
+
+    // Subidas por partes (multipart upload)
+    String createMultipartUpload(String objectKey, String contentType);
+    String uploadPart(String objectKey, String uploadId, int partNumber, InputStream data, long size);
+    void completeMultipartUpload(String objectKey, String uploadId, Map<Integer, String> partEtags);
+    void abortMultipartUpload(String objectKey, String uploadId);
+
+    // Variantes asíncronas: no ocupan un hilo mientras se espera la respuesta del almacenamiento.
+    // Por defecto se resuelven en el hilo llamador, válido para backends sin red (local, dummy)
+    default CompletableFuture<InputStream> getFileStreamAsync(String objectKey) {
+        try {
+            return CompletableFuture.completedFuture(getFileStream(objectKey));
+        } catch (RuntimeException e) {
+            return CompletableFuture.failedFuture(e);
+        }
+    }
+
+    default CompletableFuture<InputStream> getFileStreamAsync(String objectKey, long offset, long length) {
+        try {
+            return CompletableFuture.completedFuture(getFileStream(objectKey, offset, length));
+        } catch (RuntimeException e) {
+            return CompletableFuture.failedFuture(e);
+        }
+    }
+
+    default CompletableFuture<Long> getFileSizeAsync(String objectKey) {
+        try {
+            return CompletableFuture.completedFuture(getFileSize(objectKey));
+        } catch (RuntimeException e) {
+            return CompletableFuture.failedFuture(e);
+        }
+    }
+
+    record StoredObject(String key, ZonedDateTime lastModified) {
+    }
+}
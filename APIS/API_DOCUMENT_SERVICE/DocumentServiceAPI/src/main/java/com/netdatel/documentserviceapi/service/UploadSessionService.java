@@ -0,0 +1,19 @@
+package com.netdatel.documentserviceapi.service;
+
+import com.netdatel.documentserviceapi.model.dto.request.UploadSessionRequest;
+import com.netdatel.documentserviceapi.model.entity.File;
+import com.netdatel.documentserviceapi.model.entity.UploadSession;
+import com.netdatel.documentserviceapi.model.entity.UploadSessionPart;
+
+import java.io.InputStream;
+import java.util.List;
+
+public interface UploadSessionService {
+    UploadSession initiateUpload(UploadSessionRequest request, Integer userId);
+    UploadSessionPart uploadChunk(Integer sessionId, int partNumber, InputStream data, long size, Integer userId);
+    UploadSession getUploadSession(Integer sessionId, Integer userId);
+    List<UploadSessionPart> getUploadedParts(Integer sessionId);
+    File completeUpload(Integer sessionId, Integer userId);
+    void abortUpload(Integer sessionId, Integer userId);
+    int expireStaleSessions();
+}
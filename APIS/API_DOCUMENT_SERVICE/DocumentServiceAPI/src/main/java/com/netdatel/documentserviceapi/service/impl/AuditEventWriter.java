@@ -0,0 +1,316 @@
+package com.netdatel.documentserviceapi.service.impl;
+
+import com.netdatel.documentserviceapi.config.AuditProperties;
+import com.netdatel.documentserviceapi.model.enums.ActionType;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.AllArgsConstructor;
+import lombok.EqualsAndHashCode;
+import lombok.Getter;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.sql.Timestamp;
+import java.sql.Types;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.LockSupport;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Escritor asíncrono del historial de accesos. Las peticiones solo encolan el evento en un buffer acotado
+ * sin bloquearse entre ellas (el lock de lectura solo las excluye del cierre); un único hilo lo vacía
+ * en lotes JDBC cada flushInterval o al acumular batchSize eventos.
+ * Si el buffer está lleno el evento se descarta (DROP) o se espera hasta maxBlockTime (BLOCK).
+ * Cada lote actualiza también los resúmenes diarios de file_access_daily_rollups.
+ */
+@Component
+@Slf4j
+public class AuditEventWriter {
+    private static final String INSERT_SQL = "INSERT INTO document.file_access_history " +
+            "(file_id, user_id, action_type, action_date, ip_address, device_info, additional_info) " +
+            "VALUES (?, ?, ?, ?, ?, ?, CAST(? AS jsonb))";
+    private static final String ROLLUP_SQL = "INSERT INTO document.file_access_daily_rollups " +
+            "(access_date, file_id, user_id, action_type, access_count, last_action_at) " +
+            "VALUES (?, ?, ?, ?, ?, ?) " +
+            "ON CONFLICT (access_date, file_id, user_id, action_type) DO UPDATE " +
+            "SET access_count = file_access_daily_rollups.access_count + EXCLUDED.access_count, " +
+            "last_action_at = GREATEST(file_access_daily_rollups.last_action_at, EXCLUDED.last_action_at)";
+    // Orden fijo de las filas de resumen para que lotes concurrentes no se bloqueen mutuamente
+    private static final Comparator<RollupRow> ROLLUP_ORDER = Comparator
+            .comparing((RollupRow row) -> row.accessDate)
+            .thenComparing(row -> row.fileId)
+            .thenComparing(row -> row.userId)
+            .thenComparing(row -> row.actionType);
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final AuditProperties properties;
+    private final Queue<AuditEvent> queue = new ConcurrentLinkedQueue<>();
+    private final AtomicInteger depth = new AtomicInteger();
+    private final Counter written;
+    private final Counter dropped;
+    private final Counter failed;
+    private final Thread writerThread;
+    // Encolar toma el lock de lectura y el cierre el de escritura: ningún evento entra tras el vaciado final
+    private final ReentrantReadWriteLock closeLock = new ReentrantReadWriteLock();
+    private volatile boolean running = true;
+
+    public AuditEventWriter(JdbcTemplate jdbcTemplate, TransactionTemplate transactionTemplate,
+                            AuditProperties properties, MeterRegistry meterRegistry) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = transactionTemplate;
+        this.properties = properties;
+        this.written = meterRegistry.counter("audit.events.written");
+        this.dropped = meterRegistry.counter("audit.events.dropped");
+        this.failed = meterRegistry.counter("audit.events.failed");
+        Gauge.builder("audit.queue.depth", depth, AtomicInteger::get)
+                .description("Eventos de auditoría pendientes de escribir")
+                .register(meterRegistry);
+
+        this.writerThread = new Thread(this::run, "AuditWriter");
+        this.writerThread.setDaemon(true);
+    }
+
+    @PostConstruct
+    public void start() {
+        writerThread.start();
+    }
+
+    /**
+     * Encola un evento sin acceder a la base de datos.
+     *
+     * @return false si el evento se descartó por desbordamiento o porque el escritor ya se detuvo
+     */
+    public boolean enqueue(AuditEvent event) {
+        Lock lock = closeLock.readLock();
+        lock.lock();
+        try {
+            if (!running) {
+                dropped.increment();
+                log.warn("Audit writer stopped, dropping {} event for file: {}", event.getActionType(),
+                        event.getFileId());
+                return false;
+            }
+
+            if (!tryReserveSlot()) {
+                dropped.increment();
+                log.warn("Audit queue full, dropping {} event for file: {}", event.getActionType(),
+                        event.getFileId());
+                return false;
+            }
+
+            queue.offer(event);
+        } finally {
+            lock.unlock();
+        }
+
+        // Despertar al escritor en cuanto haya un lote completo
+        if (depth.get() >= properties.getBatchSize()) {
+            LockSupport.unpark(writerThread);
+        }
+        return true;
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        // Espera a los enqueue en curso: lo que ya pasó la comprobación queda en la cola antes del vaciado final
+        Lock lock = closeLock.writeLock();
+        lock.lock();
+        try {
+            running = false;
+        } finally {
+            lock.unlock();
+        }
+        LockSupport.unpark(writerThread);
+
+        try {
+            writerThread.join(properties.getShutdownTimeout().toMillis());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+
+        if (depth.get() > 0) {
+            log.warn("Audit writer stopped with {} pending events", depth.get());
+        }
+    }
+
+    // Helper methods
+
+    private boolean tryReserveSlot() {
+        long deadline = System.nanoTime() + properties.getMaxBlockTime().toNanos();
+
+        while (true) {
+            int current = depth.get();
+            if (current < properties.getQueueCapacity()) {
+                if (depth.compareAndSet(current, current + 1)) {
+                    return true;
+                }
+                continue;
+            }
+
+            if (properties.getOverflowPolicy() == AuditProperties.OverflowPolicy.DROP
+                    || System.nanoTime() >= deadline) {
+                return false;
+            }
+
+            // BLOCK: forzar un vaciado y esperar a que se libere espacio
+            LockSupport.unpark(writerThread);
+            LockSupport.parkNanos(TimeUnit.MILLISECONDS.toNanos(1));
+        }
+    }
+
+    private void run() {
+        long flushNanos = properties.getFlushInterval().toNanos();
+
+        while (running) {
+            if (depth.get() < properties.getBatchSize()) {
+                LockSupport.parkNanos(this, flushNanos);
+            }
+            drain();
+        }
+
+        // Vaciado final al apagar el nodo
+        drain();
+    }
+
+    private void drain() {
+        List<AuditEvent> batch = new ArrayList<>(properties.getBatchSize());
+        AuditEvent event;
+
+        while ((event = queue.poll()) != null) {
+            batch.add(event);
+            if (batch.size() >= properties.getBatchSize()) {
+                write(batch);
+                batch.clear();
+            }
+        }
+
+        if (!batch.isEmpty()) {
+            write(batch);
+        }
+    }
+
+    private void write(List<AuditEvent> batch) {
+        try {
+            // Historial y resumen diario en la misma transacción para que los conteos no se desvíen
+            transactionTemplate.executeWithoutResult(status -> {
+                insertEvents(batch);
+                upsertRollups(batch);
+            });
+            written.increment(batch.size());
+        } catch (Exception e) {
+            // Un evento inválido (p. ej. archivo ya eliminado) no debe hacer perder el resto del lote
+            log.warn("Audit batch of {} events failed, retrying one by one", batch.size(), e);
+            batch.forEach(this::writeSingle);
+        } finally {
+            depth.addAndGet(-batch.size());
+        }
+    }
+
+    private void writeSingle(AuditEvent event) {
+        try {
+            List<AuditEvent> single = List.of(event);
+            transactionTemplate.executeWithoutResult(status -> {
+                insertEvents(single);
+                upsertRollups(single);
+            });
+            written.increment();
+        } catch (Exception e) {
+            failed.increment();
+            log.error("Error writing audit event for file: {}", event.getFileId(), e);
+        }
+    }
+
+    private void insertEvents(List<AuditEvent> events) {
+        jdbcTemplate.batchUpdate(INSERT_SQL, events, events.size(), (ps, event) -> {
+            ps.setObject(1, event.getFileId(), Types.INTEGER);
+            ps.setObject(2, event.getUserId(), Types.INTEGER);
+            ps.setString(3, event.getActionType().name());
+            ps.setTimestamp(4, Timestamp.valueOf(event.getActionDate()));
+            ps.setString(5, event.getIpAddress());
+            ps.setString(6, event.getDeviceInfo());
+            ps.setObject(7, event.getAdditionalInfo(), Types.VARCHAR);
+        });
+    }
+
+    private void upsertRollups(List<AuditEvent> events) {
+        // Agregar el lote en memoria: una fila por (día, archivo, usuario, acción)
+        Map<RollupRow, RollupRow> rows = new HashMap<>();
+        for (AuditEvent event : events) {
+            // La clave del resumen no admite nulos: esos eventos solo quedan en el historial
+            if (event.getFileId() == null || event.getUserId() == null) {
+                continue;
+            }
+
+            RollupRow key = new RollupRow(event.getActionDate().toLocalDate(), event.getFileId(),
+                    event.getUserId(), event.getActionType().name());
+            RollupRow row = rows.computeIfAbsent(key, k -> k);
+            row.count++;
+            if (row.lastActionAt == null || event.getActionDate().isAfter(row.lastActionAt)) {
+                row.lastActionAt = event.getActionDate();
+            }
+        }
+
+        if (rows.isEmpty()) {
+            return;
+        }
+
+        List<RollupRow> sorted = new ArrayList<>(rows.keySet());
+        sorted.sort(ROLLUP_ORDER);
+
+        jdbcTemplate.batchUpdate(ROLLUP_SQL, sorted, sorted.size(), (ps, row) -> {
+            ps.setObject(1, row.accessDate);
+            ps.setInt(2, row.fileId);
+            ps.setInt(3, row.userId);
+            ps.setString(4, row.actionType);
+            ps.setLong(5, row.count);
+            ps.setTimestamp(6, Timestamp.valueOf(row.lastActionAt));
+        });
+    }
+
+    @EqualsAndHashCode(of = {"accessDate", "fileId", "userId", "actionType"})
+    private static class RollupRow {
+        private final LocalDate accessDate;
+        private final Integer fileId;
+        private final Integer userId;
+        private final String actionType;
+        private long count;
+        private LocalDateTime lastActionAt;
+
+        private RollupRow(LocalDate accessDate, Integer fileId, Integer userId, String actionType) {
+            this.accessDate = accessDate;
+            this.fileId = fileId;
+            this.userId = userId;
+            this.actionType = actionType;
+        }
+    }
+
+    @Getter
+    @AllArgsConstructor
+    public static class AuditEvent {
+        private final Integer fileId;
+        private final Integer userId;
+        private final ActionType actionType;
+        private final LocalDateTime actionDate;
+        private final String ipAddress;
+        private final String deviceInfo;
+        // JSON ya serializado
+        private final String additionalInfo;
+    }
+}
@@ -0,0 +1,167 @@
+package com.netdatel.documentserviceapi.service.impl;
+
+import com.netdatel.documentserviceapi.config.AuditProperties;
+import com.netdatel.documentserviceapi.repository.FileAccessDailyRollupRepository;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.YearMonth;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Mantenimiento de las particiones mensuales de file_access_history: crea las de los próximos meses y
+ * elimina las que superan la retención, además de purgar los resúmenes diarios antiguos. Cada paso va en
+ * su propia transacción bajo un advisory lock de PostgreSQL, de modo que varios nodos no lo ejecutan a la
+ * vez y el fallo de un mes no impide crear los demás ni aplicar la retención.
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class AuditPartitionMaintenance {
+    private static final String TABLE = "file_access_history";
+    private static final Pattern PARTITION_NAME = Pattern.compile(TABLE + "_p(\\d{6})");
+    private static final DateTimeFormatter SUFFIX = DateTimeFormatter.ofPattern("yyyyMM");
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final FileAccessDailyRollupRepository fileAccessDailyRollupRepository;
+    private final AuditProperties properties;
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void onStartup() {
+        maintain();
+    }
+
+    @Scheduled(cron = "${audit.maintenance-cron:0 30 2 * * *}")
+    public void maintain() {
+        YearMonth current = YearMonth.now();
+        for (int i = 0; i <= properties.getPartitionsAhead(); i++) {
+            YearMonth month = current.plusMonths(i);
+            try {
+                inLockedTransaction(() -> createPartition(month));
+            } catch (Exception e) {
+                log.error("Error creating access history partition for {}", month, e);
+            }
+        }
+
+        YearMonth oldestKept = current.minusMonths(properties.getRetentionMonths());
+        List<String> expired;
+        try {
+            expired = findExpiredPartitions(oldestKept);
+        } catch (Exception e) {
+            log.error("Error listing access history partitions", e);
+            expired = List.of();
+        }
+
+        for (String partition : expired) {
+            try {
+                inLockedTransaction(() -> {
+                    // Eliminar la partición completa es instantáneo frente a un DELETE fila a fila
+                    jdbcTemplate.execute("DROP TABLE IF EXISTS document." + partition);
+                    log.info("Dropped expired access history partition: {}", partition);
+                });
+            } catch (Exception e) {
+                log.error("Error dropping access history partition {}", partition, e);
+            }
+        }
+
+        try {
+            inLockedTransaction(() -> purgeDefaultPartition(oldestKept));
+
+            LocalDate rollupCutoff = YearMonth.now().minusMonths(properties.getRollupRetentionMonths()).atDay(1);
+            int purged = fileAccessDailyRollupRepository.deleteOlderThan(rollupCutoff);
+            if (purged > 0) {
+                log.info("Purged {} access rollups older than {}", purged, rollupCutoff);
+            }
+        } catch (Exception e) {
+            log.error("Error maintaining file access history partitions", e);
+        }
+    }
+
+    // Helper methods
+
+    // Serializa cada paso entre nodos; el lock se libera con la transacción
+    private void inLockedTransaction(Runnable step) {
+        transactionTemplate.executeWithoutResult(status -> {
+            jdbcTemplate.queryForObject(
+                    "SELECT 1 FROM pg_advisory_xact_lock(hashtext('document.file_access_history'))", Integer.class);
+            step.run();
+        });
+    }
+
+    /**
+     * Crea la partición del mes. Si la partición por defecto ya tiene filas de ese mes (el escritor de
+     * auditoría pudo registrar accesos antes de existir la partición), PostgreSQL rechaza la creación:
+     * se desengancha la partición por defecto, se crea la mensual, se mueven las filas y se vuelve a
+     * enganchar. El DETACH bloquea la tabla, así que las inserciones concurrentes esperan al commit.
+     */
+    private void createPartition(YearMonth month) {
+        String name = TABLE + "_p" + month.format(SUFFIX);
+        Boolean exists = jdbcTemplate.queryForObject("SELECT to_regclass(?) IS NOT NULL", Boolean.class,
+                "document." + name);
+        if (Boolean.TRUE.equals(exists)) {
+            return;
+        }
+
+        LocalDateTime from = month.atDay(1).atStartOfDay();
+        LocalDateTime to = month.plusMonths(1).atDay(1).atStartOfDay();
+        String createSql = "CREATE TABLE document." + name + " PARTITION OF document." + TABLE +
+                " FOR VALUES FROM ('" + from.toLocalDate() + "') TO ('" + to.toLocalDate() + "')";
+
+        Boolean hasDefaultRows = jdbcTemplate.queryForObject("SELECT EXISTS (SELECT 1 FROM document." + TABLE +
+                "_default WHERE action_date >= ? AND action_date < ?)", Boolean.class, from, to);
+        if (!Boolean.TRUE.equals(hasDefaultRows)) {
+            jdbcTemplate.execute(createSql);
+            return;
+        }
+
+        jdbcTemplate.execute("ALTER TABLE document." + TABLE + " DETACH PARTITION document." + TABLE + "_default");
+        jdbcTemplate.execute(createSql);
+        int moved = jdbcTemplate.update("INSERT INTO document." + TABLE +
+                " SELECT * FROM document." + TABLE + "_default WHERE action_date >= ? AND action_date < ?", from, to);
+        jdbcTemplate.update("DELETE FROM document." + TABLE + "_default WHERE action_date >= ? AND action_date < ?",
+                from, to);
+        jdbcTemplate.execute("ALTER TABLE document." + TABLE + " ATTACH PARTITION document." + TABLE +
+                "_default DEFAULT");
+        log.info("Created access history partition {} and moved {} rows from the default partition", name, moved);
+    }
+
+    private List<String> findExpiredPartitions(YearMonth oldestKept) {
+        List<String> partitions = jdbcTemplate.queryForList(
+                "SELECT c.relname FROM pg_inherits i " +
+                "JOIN pg_class c ON c.oid = i.inhrelid " +
+                "JOIN pg_class p ON p.oid = i.inhparent " +
+                "JOIN pg_namespace n ON n.oid = p.relnamespace " +
+                "WHERE n.nspname = 'document' AND p.relname = ?", String.class, TABLE);
+
+        List<String> expired = new ArrayList<>();
+        for (String partition : partitions) {
+            Matcher matcher = PARTITION_NAME.matcher(partition);
+            if (matcher.matches() && YearMonth.parse(matcher.group(1), SUFFIX).isBefore(oldestKept)) {
+                expired.add(partition);
+            }
+        }
+        return expired;
+    }
+
+    // Filas que cayeron en la partición por defecto antes de existir la mensual
+    private void purgeDefaultPartition(YearMonth oldestKept) {
+        int purged = jdbcTemplate.update("DELETE FROM document." + TABLE + "_default WHERE action_date < ?",
+                oldestKept.atDay(1).atStartOfDay());
+        if (purged > 0) {
+            log.info("Purged {} expired rows from the default access history partition", purged);
+        }
+    }
+}
@@ -2,17 +2,23 @@ package com.netdatel.documentserviceapi.service.impl;
 
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.netdatel.documentserviceapi.exception.ResourceNotFoundException;
-import com.netdatel.documentserviceapi.model.entity.File;
 import com.netdatel.documentserviceapi.model.entity.FileAccessHistory;
 import com.netdatel.documentserviceapi.model.enums.ActionType;
+import com.netdatel.documentserviceapi.model.projection.ActionCount;
+import com.netdatel.documentserviceapi.model.projection.DailyAccessCount;
+import com.netdatel.documentserviceapi.repository.FileAccessDailyRollupRepository;
 import com.netdatel.documentserviceapi.repository.FileAccessHistoryRepository;
 import com.netdatel.documentserviceapi.repository.FileRepository;
 import com.netdatel.documentserviceapi.service.AuditService;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
 import org.springframework.stereotype.Service;
 
+import java.time.LocalDate;
 import java.time.LocalDateTime;
+import java.util.EnumMap;
 import java.util.List;
 import java.util.Map;
 
@@ -22,7 +28,10 @@ import java.util.Map;
 public class AuditServiceImpl implements AuditService {
 
     private final FileAccessHistoryRepository fileAccessHistoryRepository;
+    private final FileAccessDailyRollupRepository fileAccessDailyRollupRepository;
     private final FileRepository fileRepository;
+    private final AuditEventWriter auditEventWriter;
+    private final ObjectMapper objectMapper;
 
     @Override
     public void logFileAccess(Integer fileId, Integer userId, ActionType actionType) {
@@ -40,31 +49,19 @@ public class AuditServiceImpl implements AuditService {
         try {
             log.debug("Logging file access: {}, user: {}, action: {}", fileId, userId, actionType);
 
-            // Verificar que el archivo existe
-            File file = fileRepository.findById(fileId)
-                    .orElseThrow(() -> new ResourceNotFoundException("Archivo no encontrado"));
-
             // Convertir additionalInfo a JSON si existe
             String additionalInfoJson = null;
             if (additionalInfo != null && !additionalInfo.isEmpty()) {
                 try {
-                    additionalInfoJson = new ObjectMapper().writeValueAsString(additionalInfo);
+                    additionalInfoJson = objectMapper.writeValueAsString(additionalInfo);
                 } catch (Exception e) {
                     log.warn("Error converting additionalInfo to JSON", e);
                 }
             }
 
-            // Crear y guardar el registro de acceso
-            FileAccessHistory accessHistory = FileAccessHistory.builder()
-                    .file(file)
-                    .userId(userId)
-                    .actionType(actionType)
-                    .ipAddress(ipAddress)
-                    .deviceInfo(deviceInfo)
-                    .additionalInfo(additionalInfoJson)
-                    .build();
-
-            fileAccessHistoryRepository.save(accessHistory);
+            // Encolar el registro; se inserta en lote en segundo plano por referencia al archivo
+            auditEventWriter.enqueue(new AuditEventWriter.AuditEvent(fileId, userId, actionType,
+                    LocalDateTime.now(), ipAddress, deviceInfo, additionalInfoJson));
         } catch (Exception e) {
             log.error("Error logging file access", e);
             // No lanzar excepción para evitar interrumpir la operación principal
@@ -97,4 +94,46 @@ public class AuditServiceImpl implements AuditService {
 
         return fileAccessHistoryRepository.findByUserIdAndDateRange(userId, startDate, endDate);
     }
-}
\ No newline at end of file
+
+    @Override
+    public Page<FileAccessHistory> getFileAccessHistory(Integer fileId, Pageable pageable) {
+        if (!fileRepository.existsById(fileId)) {
+            throw new ResourceNotFoundException("Archivo no encontrado");
+        }
+
+        return fileAccessHistoryRepository.findByFileIdOrderByActionDateDesc(fileId, pageable);
+    }
+
+    @Override
+    public Page<FileAccessHistory> getUserAccessHistory(Integer userId, Pageable pageable) {
+        return fileAccessHistoryRepository.findByUserIdOrderByActionDateDesc(userId, pageable);
+    }
+
+    @Override
+    public List<DailyAccessCount> getFileDailyAccessCounts(Integer fileId, LocalDate startDate, LocalDate endDate) {
+        return fileAccessDailyRollupRepository.findDailyCountsByFile(fileId, startDate, endDate);
+    }
+
+    @Override
+    public List<DailyAccessCount> getUserDailyAccessCounts(Integer userId, LocalDate startDate, LocalDate endDate) {
+        return fileAccessDailyRollupRepository.findDailyCountsByUser(userId, startDate, endDate);
+    }
+
+    @Override
+    public Map<ActionType, Long> getFileAccessTotals(Integer fileId, LocalDate startDate, LocalDate endDate) {
+        return toTotals(fileAccessDailyRollupRepository.findActionCountsByFile(fileId, startDate, endDate));
+    }
+
+    @Override
+    public Map<ActionType, Long> getUserAccessTotals(Integer userId, LocalDate startDate, LocalDate endDate) {
+        return toTotals(fileAccessDailyRollupRepository.findActionCountsByUser(userId, startDate, endDate));
+    }
+
+    private Map<ActionType, Long> toTotals(List<ActionCount> counts) {
+        Map<ActionType, Long> totals = new EnumMap<>(ActionType.class);
+        for (ActionCount count : counts) {
+            totals.put(count.getActionType(), count.getAccessCount());
+        }
+        return totals;
+    }
+}
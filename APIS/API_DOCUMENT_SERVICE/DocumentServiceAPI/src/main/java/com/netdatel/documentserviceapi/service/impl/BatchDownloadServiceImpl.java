@@ -1,8 +1,10 @@
 package com.netdatel.documentserviceapi.service.impl;
 
+import com.netdatel.documentserviceapi.config.BatchDownloadProperties;
 import com.netdatel.documentserviceapi.exception.PermissionDeniedException;
 import com.netdatel.documentserviceapi.exception.ResourceNotFoundException;
 import com.netdatel.documentserviceapi.model.dto.request.BatchDownloadRequest;
+import com.netdatel.documentserviceapi.model.dto.response.CursorPageResponse;
 import com.netdatel.documentserviceapi.model.entity.BatchDownload;
 import com.netdatel.documentserviceapi.model.entity.File;
 import com.netdatel.documentserviceapi.model.entity.Folder;
@@ -10,28 +12,29 @@ import com.netdatel.documentserviceapi.model.enums.BatchStatus;
 import com.netdatel.documentserviceapi.model.enums.FileStatus;
 import com.netdatel.documentserviceapi.model.enums.ViewStatus;
 import com.netdatel.documentserviceapi.model.enums.ViewStatusColor;
+import com.netdatel.documentserviceapi.model.projection.FolderNode;
+import com.netdatel.documentserviceapi.model.projection.SubtreeFile;
+import com.netdatel.documentserviceapi.model.projection.SubtreeStats;
 import com.netdatel.documentserviceapi.repository.BatchDownloadRepository;
 import com.netdatel.documentserviceapi.repository.FileRepository;
 import com.netdatel.documentserviceapi.repository.FolderRepository;
 import com.netdatel.documentserviceapi.service.BatchDownloadService;
-import com.netdatel.documentserviceapi.service.FileService;
 import com.netdatel.documentserviceapi.service.StorageService;
+import com.netdatel.documentserviceapi.utils.KeysetCursor;
+import com.netdatel.documentserviceapi.utils.MultipartUploadOutputStream;
+import com.netdatel.documentserviceapi.utils.ZipStreamWriter;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
-import org.springframework.scheduling.annotation.Async;
 import org.springframework.stereotype.Service;
 
-import java.io.FileInputStream;
-import java.io.FileOutputStream;
-import java.io.InputStream;
-import java.nio.file.Files;
-import java.nio.file.Path;
+import java.io.IOException;
+import java.io.OutputStream;
 import java.time.LocalDateTime;
-import java.util.Collections;
+import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.UUID;
-import java.util.zip.ZipEntry;
-import java.util.zip.ZipOutputStream;
 
 @Service
 @RequiredArgsConstructor
@@ -42,9 +45,9 @@ public class BatchDownloadServiceImpl implements BatchDownloadService {
     private final FolderRepository folderRepository;
     private final FileRepository fileRepository;
     private final StorageService storageService;
-    private final FileService fileService;
+    private final ZipStreamWriter zipStreamWriter;
+    private final BatchDownloadProperties batchDownloadProperties;
 
-    @Async
     @Override
     public BatchDownload startBatchDownload(BatchDownloadRequest request, Integer userId) {
         log.info("Starting batch download for folder: {} by user: {}", request.getFolderId(), userId);
@@ -53,25 +56,23 @@ public class BatchDownloadServiceImpl implements BatchDownloadService {
                 .orElseThrow(() -> new ResourceNotFoundException("Carpeta no encontrada"));
 
         // Contar archivos a procesar
-        int totalFiles = countFilesToDownload(folder, request.isIncludeSubfolders());
+        int totalFiles = (int) getFileStats(folder, request.isIncludeSubfolders()).getFileCount();
 
         // Crear registro de descarga masiva
         BatchDownload batchDownload = BatchDownload.builder()
                 .folder(folder)
+                .clientSpaceId(folder.getClientSpace().getId())
                 .userId(userId)
                 .status(BatchStatus.PENDING)
                 .totalFiles(totalFiles)
                 .processedFiles(0)
                 .includeSubfolders(request.isIncludeSubfolders())
                 .expirationTime(LocalDateTime.now().plusHours(24))
+                .attempts(0)
                 .build();
 
-        BatchDownload savedBatchDownload = batchDownloadRepository.save(batchDownload);
-
-        // Procesar en segundo plano
-        processDownloadAsync(savedBatchDownload);
-
-        return savedBatchDownload;
+        // El trabajo queda en cola; BatchDownloadWorker lo reclama y procesa en segundo plano
+        return batchDownloadRepository.save(batchDownload);
     }
 
     @Override
@@ -88,126 +89,138 @@ public class BatchDownloadServiceImpl implements BatchDownloadService {
     }
 
     @Override
-    public List<BatchDownload> getUserBatchDownloads(Integer userId) {
-        return batchDownloadRepository.findByUserIdOrderByCreatedAtDesc(userId);
+    public CursorPageResponse<BatchDownload> getUserBatchDownloads(Integer userId, String cursor, int size,
+                                                                   boolean withCount) {
+        KeysetCursor.checkPageSize(size);
+
+        // Se pide un elemento de más para saber si hay otra página
+        KeysetCursor before = KeysetCursor.decode(cursor);
+        List<BatchDownload> batchDownloads = before == null
+                ? batchDownloadRepository.findByUserPage(userId, size + 1)
+                : batchDownloadRepository.findByUserPageBefore(userId, before.dateValue(), before.id(), size + 1);
+
+        CursorPageResponse<BatchDownload> page = KeysetCursor.toPage(batchDownloads, size,
+                batchDownload -> new KeysetCursor(batchDownload.getCreatedAt().toString(), batchDownload.getId()));
+        if (withCount) {
+            page.setTotalCount(batchDownloadRepository.countByUserId(userId));
+        }
+        return page;
     }
 
-    @Async
-    protected void processDownloadAsync(BatchDownload batchDownload) {
-        try {
-            log.info("Processing batch download: {}", batchDownload.getId());
+    @Override
+    public boolean isStreamable(Integer folderId, boolean includeSubfolders) {
+        Folder folder = folderRepository.findById(folderId)
+                .orElseThrow(() -> new ResourceNotFoundException("Carpeta no encontrada"));
+
+        SubtreeStats stats = getFileStats(folder, includeSubfolders);
+
+        return stats.getFileCount() <= batchDownloadProperties.getStreamMaxFiles()
+                && stats.getTotalBytes() <= batchDownloadProperties.getStreamMaxBytes();
+    }
 
-            // Actualizar estado
-            batchDownload.setStatus(BatchStatus.PROCESSING);
-            batchDownloadRepository.save(batchDownload);
+    @Override
+    public int streamFolderZip(Integer folderId, boolean includeSubfolders, OutputStream outputStream)
+            throws IOException {
+        Folder folder = folderRepository.findById(folderId)
+                .orElseThrow(() -> new ResourceNotFoundException("Carpeta no encontrada"));
 
-            // Crear archivo ZIP temporal
-            Path tempFile = Files.createTempFile("batch-download-", ".zip");
+        log.info("Streaming ZIP for folder: {}", folderId);
 
-            try (ZipOutputStream zipOut = new ZipOutputStream(new FileOutputStream(tempFile.toFile()))) {
-                // Agregar archivos al ZIP
-                int processedFiles = addFilesToZip(batchDownload.getFolder(), "", zipOut,
-                        batchDownload.isIncludeSubfolders());
+        List<ZipStreamWriter.ZipItem> items = collectZipItems(folder, includeSubfolders);
 
-                batchDownload.setProcessedFiles(processedFiles);
-            }
+        List<Integer> writtenFileIds = zipStreamWriter.writeZip(items, outputStream, null);
 
-            // Subir archivo ZIP a MinIO
-            String objectKey = "batch-downloads/" + UUID.randomUUID() + "/download.zip";
-            try (InputStream inputStream = new FileInputStream(tempFile.toFile())) {
-                storageService.uploadFile(
-                        inputStream,
-                        Files.size(tempFile),
-                        objectKey,
-                        "application/zip",
-                        Collections.singletonMap("Content-Disposition", "attachment; filename=\"download.zip\"")
-                );
-            }
+        // El ZIP llegó completo al cliente: marcar como descargados solo los archivos que contiene
+        if (!writtenFileIds.isEmpty()) {
+            fileRepository.markDownloaded(writtenFileIds, ViewStatus.DOWNLOADED, ViewStatusColor.GREEN,
+                    LocalDateTime.now());
+        }
+
+        return writtenFileIds.size();
+    }
 
-            // Generar URL prefirmada
-            String downloadUrl = storageService.generatePresignedUrl(objectKey, 24 * 60); // 24 horas
+    @Override
+    public void buildBatchDownload(BatchDownload batchDownload, ZipStreamWriter.ProgressListener progressListener)
+            throws IOException {
+        log.info("Processing batch download: {}", batchDownload.getId());
 
-            // Actualizar registro de descarga
-            batchDownload.setStatus(BatchStatus.COMPLETED);
-            batchDownload.setDownloadUrl(downloadUrl);
-            batchDownload.setCompletedAt(LocalDateTime.now());
-            batchDownload.setFileSize(Files.size(tempFile));
+        List<ZipStreamWriter.ZipItem> items = collectZipItems(batchDownload.getFolder(),
+                batchDownload.isIncludeSubfolders());
 
-            // Actualizar estado de archivos a DOWNLOADED
-            updateFilesViewStatus(batchDownload.getFolder(), batchDownload.isIncludeSubfolders());
-            Files.delete(tempFile);
+        // El ZIP se genera en streaming directamente hacia un multipart upload, sin archivo temporal
+        String objectKey = "batch-downloads/" + UUID.randomUUID() + "/download.zip";
+        MultipartUploadOutputStream zipUpload = new MultipartUploadOutputStream(storageService, objectKey,
+                "application/zip", batchDownloadProperties.getPartSize());
 
-        } catch (Exception e) {
-            log.error("Error processing batch download", e);
-            batchDownload.setStatus(BatchStatus.FAILED);
-            batchDownload.setErrorMessage(e.getMessage());
+        try {
+            List<Integer> writtenFileIds = zipStreamWriter.writeZip(items, zipUpload, progressListener);
+            zipUpload.close();
+            batchDownload.setProcessedFiles(writtenFileIds.size());
+        } catch (IOException | RuntimeException e) {
+            zipUpload.abort();
+            throw e;
         }
 
-        batchDownloadRepository.save(batchDownload);
-    }
+        // Generar URL prefirmada
+        String downloadUrl = storageService.generatePresignedUrl(objectKey, 24 * 60); // 24 horas
+
+        batchDownload.setDownloadUrl(downloadUrl);
+        batchDownload.setFileSize(zipUpload.getBytesWritten());
 
-    private int countFilesToDownload(Folder folder, boolean includeSubfolders) {
-        int count = fileRepository.countByFolderIdAndStatus(folder.getId(), FileStatus.ACTIVE);
+        // Actualizar estado de archivos a DOWNLOADED
+        updateFilesViewStatus(batchDownload.getFolder(), batchDownload.isIncludeSubfolders());
+    }
 
+    private SubtreeStats getFileStats(Folder folder, boolean includeSubfolders) {
         if (includeSubfolders) {
-            List<Folder> subfolders = folderRepository.findByParentId(folder.getId());
-            for (Folder subfolder : subfolders) {
-                count += countFilesToDownload(subfolder, true);
-            }
+            return fileRepository.getSubtreeStats(folder.getTreePath(), FileStatus.ACTIVE);
         }
 
-        return count;
+        return fileRepository.getFolderStats(folder.getId(), FileStatus.ACTIVE);
     }
 
-    private int addFilesToZip(Folder folder, String pathPrefix, ZipOutputStream zipOut, boolean includeSubfolders) {
-        int processedFiles = 0;
-
-        // Agregar archivos de la carpeta actual
-        List<File> files = fileRepository.findByFolderIdAndStatus(folder.getId(), FileStatus.ACTIVE);
-        for (File file : files) {
-            try {
-                String entryPath = pathPrefix + file.getName();
-                ZipEntry zipEntry = new ZipEntry(entryPath);
-                zipOut.putNextEntry(zipEntry);
-
-                byte[] fileContent = storageService.downloadFile(file.getStorageKey());
-                zipOut.write(fileContent, 0, fileContent.length);
-                zipOut.closeEntry();
-
-                processedFiles++;
-            } catch (Exception e) {
-                log.error("Error adding file to ZIP: {}", file.getId(), e);
-                // Continuar con el siguiente archivo
+    private List<ZipStreamWriter.ZipItem> collectZipItems(Folder folder, boolean includeSubfolders) {
+        List<ZipStreamWriter.ZipItem> items = new ArrayList<>();
+
+        if (!includeSubfolders) {
+            List<File> files = fileRepository.findByFolderIdAndStatus(folder.getId(), FileStatus.ACTIVE);
+            for (File file : files) {
+                items.add(new ZipStreamWriter.ZipItem(file.getId(), file.getName(), file.getStorageKey()));
             }
+            return items;
         }
 
-        // Procesar subcarpetas si es necesario
-        if (includeSubfolders) {
-            List<Folder> subfolders = folderRepository.findByParentId(folder.getId());
-            for (Folder subfolder : subfolders) {
-                String newPathPrefix = pathPrefix + subfolder.getName() + "/";
-                processedFiles += addFilesToZip(subfolder, newPathPrefix, zipOut, true);
+        // Ruta de cada carpeta dentro del ZIP; el subárbol llega ordenado con cada padre antes que sus hijos
+        Map<Integer, String> entryPrefixes = new HashMap<>();
+        entryPrefixes.put(folder.getId(), "");
+        for (FolderNode node : folderRepository.findSubtreeNodes(folder.getTreePath())) {
+            if (!node.getId().equals(folder.getId())) {
+                String parentPrefix = entryPrefixes.get(parentIdOf(node.getTreePath()));
+                entryPrefixes.put(node.getId(), parentPrefix + node.getName() + "/");
             }
         }
 
-        return processedFiles;
+        for (SubtreeFile file : fileRepository.findSubtreeFiles(folder.getTreePath(), FileStatus.ACTIVE)) {
+            items.add(new ZipStreamWriter.ZipItem(file.getId(),
+                    entryPrefixes.get(file.getFolderId()) + file.getName(), file.getStorageKey()));
+        }
+
+        return items;
     }
 
-    private void updateFilesViewStatus(Folder folder, boolean includeSubfolders) {
-        // Actualizar archivos de la carpeta actual
-        List<File> files = fileRepository.findByFolderIdAndStatus(folder.getId(), FileStatus.ACTIVE);
-        for (File file : files) {
-            if (file.getViewStatus() != ViewStatus.DOWNLOADED) {
-                fileService.updateFileViewStatus(file.getId(), ViewStatus.NOT_DOWNLOADED, ViewStatusColor.RED);
-            }
-        }
+    // "/1/5/12/" -> 5
+    private Integer parentIdOf(String treePath) {
+        String[] ids = treePath.split("/");
+        return Integer.valueOf(ids[ids.length - 2]);
+    }
 
-        // Procesar subcarpetas si es necesario
+    private void updateFilesViewStatus(Folder folder, boolean includeSubfolders) {
         if (includeSubfolders) {
-            List<Folder> subfolders = folderRepository.findByParentId(folder.getId());
-            for (Folder subfolder : subfolders) {
-                updateFilesViewStatus(subfolder, true);
-            }
+            fileRepository.updateViewStatusInSubtree(folder.getTreePath(), FileStatus.ACTIVE,
+                    ViewStatus.DOWNLOADED, ViewStatus.NOT_DOWNLOADED, ViewStatusColor.RED);
+        } else {
+            fileRepository.updateViewStatusInFolder(folder.getId(), FileStatus.ACTIVE,
+                    ViewStatus.DOWNLOADED, ViewStatus.NOT_DOWNLOADED, ViewStatusColor.RED);
         }
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,182 @@
+package com.netdatel.documentserviceapi.service.impl;
+
+import com.netdatel.documentserviceapi.config.BatchDownloadProperties;
+import com.netdatel.documentserviceapi.model.entity.BatchDownload;
+import com.netdatel.documentserviceapi.model.enums.BatchStatus;
+import com.netdatel.documentserviceapi.repository.BatchDownloadRepository;
+import com.netdatel.documentserviceapi.service.BatchDownloadService;
+import com.netdatel.documentserviceapi.utils.ZipStreamWriter;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.net.InetAddress;
+import java.net.UnknownHostException;
+import java.time.LocalDateTime;
+import java.util.UUID;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Motor de trabajos de descarga masiva. Cada nodo reclama trabajos PENDING de la tabla
+ * batch_downloads con FOR UPDATE SKIP LOCKED, de modo que varias instancias comparten la cola.
+ * Los trabajos en proceso mantienen un latido; los de nodos caídos se devuelven a la cola.
+ */
+@Component
+@Slf4j
+public class BatchDownloadWorker {
+    private final BatchDownloadRepository batchDownloadRepository;
+    private final BatchDownloadService batchDownloadService;
+    private final BatchDownloadProperties properties;
+    private final TransactionTemplate transactionTemplate;
+    private final Executor executor;
+    private final Semaphore slots;
+    private final String workerId;
+    private volatile boolean running = true;
+
+    public BatchDownloadWorker(BatchDownloadRepository batchDownloadRepository,
+                               BatchDownloadService batchDownloadService,
+                               BatchDownloadProperties properties,
+                               TransactionTemplate transactionTemplate,
+                               @Qualifier("batchDownloadExecutor") Executor executor) {
+        this.batchDownloadRepository = batchDownloadRepository;
+        this.batchDownloadService = batchDownloadService;
+        this.properties = properties;
+        this.transactionTemplate = transactionTemplate;
+        this.executor = executor;
+        this.slots = new Semaphore(properties.getWorkerThreads());
+        this.workerId = resolveHostName() + "-" + UUID.randomUUID().toString().substring(0, 8);
+    }
+
+    @Scheduled(fixedDelayString = "${batch-download.poll-interval:PT2S}")
+    public void dispatch() {
+        // Solo se reclaman tantos trabajos como hilos libres tenga este nodo
+        while (running && slots.tryAcquire()) {
+            BatchDownload job;
+            try {
+                job = claimNext();
+            } catch (RuntimeException e) {
+                slots.release();
+                log.error("Error claiming batch download job", e);
+                return;
+            }
+
+            if (job == null) {
+                slots.release();
+                return;
+            }
+
+            executor.execute(() -> {
+                try {
+                    process(job);
+                } finally {
+                    slots.release();
+                }
+            });
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${batch-download.heartbeat-interval:PT30S}")
+    public void heartbeat() {
+        if (slots.availablePermits() < properties.getWorkerThreads()) {
+            batchDownloadRepository.heartbeat(workerId, LocalDateTime.now());
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${batch-download.heartbeat-interval:PT30S}")
+    public void recoverOrphanedJobs() {
+        LocalDateTime now = LocalDateTime.now();
+        LocalDateTime staleBefore = now.minus(properties.getOrphanTimeout());
+
+        int requeued = batchDownloadRepository.requeueOrphaned(staleBefore, properties.getMaxAttempts());
+        int failed = batchDownloadRepository.failOrphaned(staleBefore, properties.getMaxAttempts(),
+                "El proceso de descarga se interrumpió demasiadas veces", now);
+
+        if (requeued > 0 || failed > 0) {
+            log.warn("Recovered orphaned batch downloads: {} requeued, {} failed", requeued, failed);
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        running = false;
+        // Devolver a la cola los trabajos en curso para que otro nodo los retome sin esperar el timeout
+        int released = batchDownloadRepository.releaseByWorker(workerId);
+        if (released > 0) {
+            log.info("Released {} batch download jobs on shutdown", released);
+        }
+    }
+
+    // Helper methods
+
+    private BatchDownload claimNext() {
+        return transactionTemplate.execute(status -> batchDownloadRepository
+                .lockNextPending(properties.getMaxJobsPerClientSpace())
+                .filter(this::withinClientSpaceLimit)
+                .map(job -> {
+                    LocalDateTime now = LocalDateTime.now();
+                    job.setStatus(BatchStatus.PROCESSING);
+                    job.setWorkerId(workerId);
+                    job.setStartedAt(now);
+                    job.setHeartbeatAt(now);
+                    job.setAttempts(job.getAttempts() + 1);
+                    job.setProcessedFiles(0);
+                    job.setErrorMessage(null);
+                    return batchDownloadRepository.save(job);
+                })
+                .orElse(null));
+    }
+
+    /**
+     * Vuelve a contar los trabajos en proceso del espacio bajo un advisory lock por espacio: otro nodo que
+     * esté arrancando un trabajo del mismo espacio termina su transacción antes, y su conteo ya es visible.
+     * Si se alcanzó el límite, el trabajo queda pendiente para la siguiente ronda.
+     */
+    private boolean withinClientSpaceLimit(BatchDownload job) {
+        batchDownloadRepository.lockClientSpace(job.getClientSpaceId());
+        long processing = batchDownloadRepository.countByClientSpaceIdAndStatus(job.getClientSpaceId(),
+                BatchStatus.PROCESSING);
+        return processing < properties.getMaxJobsPerClientSpace();
+    }
+
+    private void process(BatchDownload job) {
+        try {
+            batchDownloadService.buildBatchDownload(job, throttledProgress(job.getId()));
+
+            int updated = batchDownloadRepository.markCompleted(job.getId(), workerId, job.getProcessedFiles(),
+                    job.getDownloadUrl(), job.getFileSize(), LocalDateTime.now());
+            if (updated == 0) {
+                log.warn("Batch download {} was reassigned before completion, result discarded", job.getId());
+            }
+        } catch (Exception e) {
+            log.error("Error processing batch download", e);
+            batchDownloadRepository.markFailed(job.getId(), workerId, e.getMessage(), LocalDateTime.now());
+        }
+    }
+
+    // El progreso se escribe como máximo una vez por intervalo; cada escritura también sirve de latido
+    private ZipStreamWriter.ProgressListener throttledProgress(Integer jobId) {
+        long intervalNanos = properties.getProgressUpdateInterval().toNanos();
+        AtomicLong lastWrite = new AtomicLong(System.nanoTime());
+
+        return processedFiles -> {
+            long now = System.nanoTime();
+            if (now - lastWrite.get() >= intervalNanos) {
+                lastWrite.set(now);
+                batchDownloadRepository.updateProgress(jobId, workerId, processedFiles, LocalDateTime.now());
+            }
+        };
+    }
+
+    private static String resolveHostName() {
+        try {
+            return InetAddress.getLocalHost().getHostName();
+        } catch (UnknownHostException e) {
+            return "node";
+        }
+    }
+}
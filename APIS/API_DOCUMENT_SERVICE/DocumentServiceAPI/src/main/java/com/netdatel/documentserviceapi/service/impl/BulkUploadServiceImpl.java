@@ -0,0 +1,366 @@
+package com.netdatel.documentserviceapi.service.impl;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.netdatel.documentserviceapi.config.QuotaProperties;
+import com.netdatel.documentserviceapi.config.UploadProperties;
+import com.netdatel.documentserviceapi.exception.InvalidRequestException;
+import com.netdatel.documentserviceapi.exception.ResourceNotFoundException;
+import com.netdatel.documentserviceapi.exception.StorageException;
+import com.netdatel.documentserviceapi.model.dto.request.BulkUploadFile;
+import com.netdatel.documentserviceapi.model.dto.response.BulkUploadResponse;
+import com.netdatel.documentserviceapi.model.entity.File;
+import com.netdatel.documentserviceapi.model.entity.Folder;
+import com.netdatel.documentserviceapi.model.enums.FileStatus;
+import com.netdatel.documentserviceapi.model.enums.ViewStatus;
+import com.netdatel.documentserviceapi.model.enums.ViewStatusColor;
+import com.netdatel.documentserviceapi.repository.FileRepository;
+import com.netdatel.documentserviceapi.repository.FolderRepository;
+import com.netdatel.documentserviceapi.repository.StorageBlobRepositoryCustom.BlobReference;
+import com.netdatel.documentserviceapi.service.BulkUploadService;
+import com.netdatel.documentserviceapi.service.ClientSpaceService;
+import com.netdatel.documentserviceapi.service.QuotaService;
+import com.netdatel.documentserviceapi.service.StorageBlobService;
+import com.netdatel.documentserviceapi.service.StorageService;
+import com.netdatel.documentserviceapi.utils.MinioUtil;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.security.DigestInputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.HexFormat;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+
+/**
+ * Subida de varios archivos a una carpeta en una sola petición. Nombres y cuota se validan una vez para
+ * todo el lote, los objetos se escriben en almacenamiento en paralelo (acotado por bulkUploadExecutor y,
+ * dentro de cada petición, por bulkParallelismPerRequest) y
+ * el registro se hace en una transacción: un UPDATE de uso, un upsert de blobs y un INSERT por lotes.
+ * Los archivos que fallan individualmente se informan en la respuesta sin afectar al resto.
+ */
+@Service
+@Slf4j
+public class BulkUploadServiceImpl implements BulkUploadService {
+    private final FolderRepository folderRepository;
+    private final FileRepository fileRepository;
+    private final StorageService storageService;
+    private final StorageBlobService storageBlobService;
+    private final ClientSpaceService clientSpaceService;
+    private final QuotaService quotaService;
+    private final QuotaProperties quotaProperties;
+    private final UploadProperties uploadProperties;
+    private final MinioUtil minioUtil;
+    private final ObjectMapper objectMapper;
+    private final TransactionTemplate transactionTemplate;
+    private final Executor executor;
+
+    public BulkUploadServiceImpl(FolderRepository folderRepository,
+                                 FileRepository fileRepository,
+                                 StorageService storageService,
+                                 StorageBlobService storageBlobService,
+                                 ClientSpaceService clientSpaceService,
+                                 QuotaService quotaService,
+                                 QuotaProperties quotaProperties,
+                                 UploadProperties uploadProperties,
+                                 MinioUtil minioUtil,
+                                 ObjectMapper objectMapper,
+                                 TransactionTemplate transactionTemplate,
+                                 @Qualifier("bulkUploadExecutor") Executor executor) {
+        this.folderRepository = folderRepository;
+        this.fileRepository = fileRepository;
+        this.storageService = storageService;
+        this.storageBlobService = storageBlobService;
+        this.clientSpaceService = clientSpaceService;
+        this.quotaService = quotaService;
+        this.quotaProperties = quotaProperties;
+        this.uploadProperties = uploadProperties;
+        this.minioUtil = minioUtil;
+        this.objectMapper = objectMapper;
+        this.transactionTemplate = transactionTemplate;
+        this.executor = executor;
+    }
+
+    @Override
+    public BulkUploadResponse<File> uploadFiles(Integer folderId, List<BulkUploadFile> files,
+                                                Map<String, Object> metadata, Integer userId) {
+        if (files == null || files.isEmpty()) {
+            throw new InvalidRequestException("Debe enviar al menos un archivo");
+        }
+        if (files.size() > uploadProperties.getBulkMaxFiles()) {
+            throw new InvalidRequestException("No se pueden subir más de "
+                    + uploadProperties.getBulkMaxFiles() + " archivos a la vez");
+        }
+
+        log.info("Bulk uploading {} files to folder: {}", files.size(), folderId);
+
+        Folder folder = folderRepository.findById(folderId)
+                .orElseThrow(() -> new ResourceNotFoundException("Carpeta no encontrada"));
+        Integer clientSpaceId = folder.getClientSpace().getId();
+
+        File[] created = new File[files.size()];
+        String[] errors = new String[files.size()];
+        List<PendingUpload> accepted = validateNames(folder, files, errors);
+        if (accepted.isEmpty()) {
+            return buildResponse(files, created, errors);
+        }
+
+        String metadataJson = toJson(metadata);
+
+        // Una sola reserva para todo el lote; falla sin transferir nada si no cabe
+        String reservationKey = "bulk:" + UUID.randomUUID();
+        long requestedBytes = accepted.stream().mapToLong(upload -> upload.file.getSize()).sum();
+        quotaService.reserve(reservationKey, clientSpaceId, requestedBytes,
+                LocalDateTime.now().plus(quotaProperties.getReservationTtl()));
+
+        List<PendingUpload> stored = transferAll(accepted, errors);
+        if (stored.isEmpty()) {
+            quotaService.release(reservationKey);
+            return buildResponse(files, created, errors);
+        }
+
+        long storedBytes = stored.stream().mapToLong(upload -> upload.file.getSize()).sum();
+        List<File> registered;
+        try {
+            registered = transactionTemplate.execute(status ->
+                    register(folder, stored, storedBytes, metadataJson, userId));
+        } catch (RuntimeException e) {
+            // Nada quedó registrado: los objetos subidos sobran
+            quotaService.release(reservationKey);
+            deleteQuietly(stored.stream().map(upload -> upload.storageKey).toList());
+            throw e;
+        }
+        quotaService.commit(reservationKey, storedBytes);
+
+        // Contenido repetido: el registro apunta al blob existente y la copia recién subida sobra
+        List<String> duplicates = new ArrayList<>();
+        for (int i = 0; i < stored.size(); i++) {
+            PendingUpload upload = stored.get(i);
+            File file = registered.get(i);
+            created[upload.index] = file;
+            if (!upload.storageKey.equals(file.getStorageKey())) {
+                duplicates.add(upload.storageKey);
+            }
+        }
+        deleteQuietly(duplicates);
+
+        return buildResponse(files, created, errors);
+    }
+
+    // Helper methods
+
+    private List<PendingUpload> validateNames(Folder folder, List<BulkUploadFile> files, String[] errors) {
+        Set<String> names = new HashSet<>();
+        for (int i = 0; i < files.size(); i++) {
+            String name = files.get(i).getName();
+            if (name == null || name.isBlank()) {
+                errors[i] = "El nombre del archivo no puede estar vacío";
+            } else if (name.length() > 255) {
+                errors[i] = "El nombre no puede exceder los 255 caracteres";
+            } else if (!names.add(name)) {
+                errors[i] = "El nombre está repetido en la subida";
+            }
+        }
+
+        // Una sola consulta para los nombres que ya existen en la carpeta
+        Set<String> existing = names.isEmpty() ? Collections.emptySet()
+                : new HashSet<>(fileRepository.findExistingNames(folder.getId(), names));
+
+        List<PendingUpload> accepted = new ArrayList<>();
+        for (int i = 0; i < files.size(); i++) {
+            if (errors[i] != null) {
+                continue;
+            }
+
+            BulkUploadFile file = files.get(i);
+            if (existing.contains(file.getName())) {
+                errors[i] = "Ya existe un archivo con ese nombre en la carpeta";
+            } else {
+                String storageKey = minioUtil.generateStorageKey(folder.getClientSpace().getId(),
+                        folder.getClientSpace().getModuleId(), file.getName());
+                accepted.add(new PendingUpload(i, file, storageKey));
+            }
+        }
+        return accepted;
+    }
+
+    private List<PendingUpload> transferAll(List<PendingUpload> accepted, String[] errors) {
+        // Cada petición mantiene a lo sumo bulkParallelismPerRequest transferencias en curso: el resto
+        // del lote espera aquí y no en la cola compartida, donde retrasaría a las demás peticiones
+        Semaphore inFlight = new Semaphore(uploadProperties.getBulkParallelismPerRequest());
+        List<CompletableFuture<String>> transfers = new ArrayList<>(accepted.size());
+        for (PendingUpload upload : accepted) {
+            try {
+                inFlight.acquire();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                transfers.add(CompletableFuture.failedFuture(e));
+                continue;
+            }
+
+            CompletableFuture<String> transfer;
+            try {
+                transfer = CompletableFuture.supplyAsync(() -> transfer(upload), executor);
+            } catch (RejectedExecutionException e) {
+                // Pool saturado: la petición transfiere en su propio hilo y así frena su ritmo
+                transfer = transferInCaller(upload);
+            }
+            transfer.whenComplete((hash, error) -> inFlight.release());
+            transfers.add(transfer);
+        }
+
+        // Esperar todas las transferencias: el contenido de la petición deja de existir al responder
+        List<PendingUpload> stored = new ArrayList<>();
+        for (int i = 0; i < accepted.size(); i++) {
+            PendingUpload upload = accepted.get(i);
+            try {
+                upload.contentHash = transfers.get(i).join();
+                stored.add(upload);
+            } catch (CompletionException e) {
+                log.error("Error uploading file {} in bulk upload", upload.file.getName(), e.getCause());
+                errors[upload.index] = "No se pudo subir el archivo";
+            }
+        }
+        return stored;
+    }
+
+    private CompletableFuture<String> transferInCaller(PendingUpload upload) {
+        try {
+            return CompletableFuture.completedFuture(transfer(upload));
+        } catch (RuntimeException e) {
+            return CompletableFuture.failedFuture(e);
+        }
+    }
+
+    private String transfer(PendingUpload upload) {
+        BulkUploadFile file = upload.file;
+        try (InputStream content = file.getContent().getInputStream()) {
+            // Calcular el SHA-256 mientras se transfiere para deduplicar el contenido
+            DigestInputStream digestStream = new DigestInputStream(content, MessageDigest.getInstance("SHA-256"));
+            storageService.uploadFile(digestStream, file.getSize(), upload.storageKey,
+                    file.getContentType(), Collections.emptyMap());
+            return HexFormat.of().formatHex(digestStream.getMessageDigest().digest());
+        } catch (IOException | NoSuchAlgorithmException e) {
+            throw new StorageException("Could not read uploaded file", e);
+        }
+    }
+
+    private List<File> register(Folder folder, List<PendingUpload> stored, long storedBytes,
+                                String metadataJson, Integer userId) {
+        // Falla de forma atómica si se supera la cuota; el rollback deshace también los blobs
+        Integer clientSpaceId = folder.getClientSpace().getId();
+        clientSpaceService.addUsedBytes(clientSpaceId, storedBytes);
+
+        // Archivos iguales dentro del lote comparten blob: se agrupan antes del upsert
+        Map<String, BlobReference> references = new LinkedHashMap<>();
+        for (PendingUpload upload : stored) {
+            references.merge(upload.contentHash,
+                    new BlobReference(upload.contentHash, upload.storageKey, upload.file.getSize(), 1),
+                    (existing, added) -> new BlobReference(existing.contentHash(), existing.storageKey(),
+                            existing.size(), existing.references() + 1));
+        }
+        Map<String, String> blobKeys = storageBlobService.acquireAll(clientSpaceId, references.values());
+
+        LocalDateTime now = LocalDateTime.now();
+        List<File> files = stored.stream()
+                .map(upload -> File.builder()
+                        .folder(folder)
+                        .name(upload.file.getName())
+                        .originalName(upload.file.getName())
+                        .fileSize(upload.file.getSize())
+                        .mimeType(upload.file.getContentType())
+                        .storagePath(folder.getPath())
+                        .storageKey(blobKeys.get(upload.contentHash))
+                        .hashValue(upload.contentHash)
+                        .status(FileStatus.ACTIVE)
+                        .viewStatus(ViewStatus.NEW)
+                        .viewStatusColor(ViewStatusColor.BLUE)
+                        .uploadDate(now)
+                        .uploadedBy(userId)
+                        .version(1)
+                        .metadata(metadataJson)
+                        .build())
+                .toList();
+
+        fileRepository.insertAll(files);
+        return files;
+    }
+
+    private BulkUploadResponse<File> buildResponse(List<BulkUploadFile> files, File[] created, String[] errors) {
+        List<BulkUploadResponse.Item<File>> items = new ArrayList<>();
+        int uploaded = 0;
+        for (int i = 0; i < files.size(); i++) {
+            if (created[i] != null) {
+                uploaded++;
+            }
+            items.add(BulkUploadResponse.Item.<File>builder()
+                    .name(files.get(i).getName())
+                    .file(created[i])
+                    .error(created[i] == null ? errors[i] : null)
+                    .build());
+        }
+
+        return BulkUploadResponse.<File>builder()
+                .items(items)
+                .uploaded(uploaded)
+                .failed(files.size() - uploaded)
+                .build();
+    }
+
+    private String toJson(Map<String, Object> metadata) {
+        if (metadata == null || metadata.isEmpty()) {
+            return null;
+        }
+
+        try {
+            return objectMapper.writeValueAsString(metadata);
+        } catch (Exception e) {
+            log.warn("Error converting metadata to JSON", e);
+            return "{}";
+        }
+    }
+
+    private void deleteQuietly(List<String> storageKeys) {
+        if (storageKeys.isEmpty()) {
+            return;
+        }
+
+        try {
+            List<String> failed = storageService.deleteFiles(storageKeys);
+            if (!failed.isEmpty()) {
+                log.warn("Could not delete {} unreferenced uploads", failed.size());
+            }
+        } catch (RuntimeException e) {
+            log.warn("Could not delete {} unreferenced uploads", storageKeys.size(), e);
+        }
+    }
+
+    private static class PendingUpload {
+        private final int index;
+        private final BulkUploadFile file;
+        private final String storageKey;
+        private String contentHash;
+
+        private PendingUpload(int index, BulkUploadFile file, String storageKey) {
+            this.index = index;
+            this.file = file;
+            this.storageKey = storageKey;
+        }
+    }
+}
@@ -0,0 +1,440 @@
+package com.netdatel.documentserviceapi.service.impl;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.netdatel.documentserviceapi.config.StorageCacheProperties;
+import com.netdatel.documentserviceapi.exception.StorageException;
+import com.netdatel.documentserviceapi.service.StorageService;
+import com.netdatel.documentserviceapi.utils.FileRegionInputStream;
+import io.minio.GetObjectResponse;
+import io.minio.StatObjectResponse;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import jakarta.annotation.PostConstruct;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnExpression;
+import org.springframework.context.annotation.Primary;
+import org.springframework.stereotype.Service;
+
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Collection;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * Caché de lectura en disco local delante de MinIO. Las claves de almacenamiento son inmutables
+ * (cada versión tiene la suya), así que una entrada nunca queda obsoleta y solo se invalida al borrar.
+ * <p>
+ * La primera lectura completa de un objeto lo copia a un temporal mientras se envía al cliente y lo publica
+ * con un move atómico al terminar; las lecturas concurrentes de la misma clave esperan ese llenado en vez de
+ * ir también a MinIO. Los aciertos se sirven con FileRegionInputStream. El índice es una caché Caffeine
+ * (W-TinyLFU) ponderada por tamaño que borra el archivo al desalojar la entrada.
+ */
+@Service
+@Primary
+@ConditionalOnExpression("${storage.cache.enabled:false} and '${storage.type:minio}' == 'minio'")
+@Slf4j
+public class CachingStorageService implements StorageService {
+    private final StorageService delegate;
+    private final StorageCacheProperties properties;
+    private final MeterRegistry meterRegistry;
+    private final Map<String, CompletableFuture<Path>> fills = new ConcurrentHashMap<>();
+
+    private Cache<String, Long> index;
+    private Path objectsDir;
+    private Path tempDir;
+
+    public CachingStorageService(MinioStorageServiceImpl delegate, StorageCacheProperties properties,
+                                 MeterRegistry meterRegistry) {
+        this.delegate = delegate;
+        this.properties = properties;
+        this.meterRegistry = meterRegistry;
+    }
+
+    @PostConstruct
+    public void init() {
+        Path root = Paths.get(properties.getDir()).toAbsolutePath().normalize();
+        objectsDir = root.resolve("objects");
+        tempDir = root.resolve("tmp");
+
+        // El peso va en KiB para que objetos de varios GB quepan en un int
+        index = Caffeine.newBuilder()
+                .maximumWeight(Math.max(1, properties.getMaxSize() / 1024))
+                .<String, Long>weigher((hash, size) -> (int) Math.min(Integer.MAX_VALUE, Math.max(1, (size + 1023) / 1024)))
+                .evictionListener((hash, size, cause) -> deleteQuietly(cachePath(hash)))
+                .recordStats()
+                .build();
+
+        CaffeineCacheMetrics.monitor(meterRegistry, index, "storageObjects");
+
+        try {
+            Files.createDirectories(objectsDir);
+            Files.createDirectories(tempDir);
+            try (DirectoryStream<Path> stale = Files.newDirectoryStream(tempDir)) {
+                for (Path path : stale) {
+                    Files.deleteIfExists(path);
+                }
+            }
+
+            // Recuperar lo cacheado antes del reinicio; los archivos solo se publican completos
+            try (DirectoryStream<Path> cached = Files.newDirectoryStream(objectsDir)) {
+                for (Path path : cached) {
+                    index.put(path.getFileName().toString(), Files.size(path));
+                }
+            }
+        } catch (IOException e) {
+            log.error("Error initializing storage cache at {}", root, e);
+            throw new StorageException("Could not initialize storage cache", e);
+        }
+
+        log.info("Storage cache initialized at {} with {} objects", root, index.estimatedSize());
+    }
+
+    @Override
+    public InputStream getFileStream(String objectKey) {
+        String hash = sha256Hex(objectKey);
+
+        InputStream cached = openCached(hash, 0, Long.MAX_VALUE);
+        if (cached != null) {
+            return cached;
+        }
+
+        CompletableFuture<Path> fill = new CompletableFuture<>();
+        CompletableFuture<Path> inFlight = fills.putIfAbsent(hash, fill);
+        if (inFlight != null) {
+            return awaitFill(objectKey, hash, inFlight);
+        }
+
+        try {
+            InputStream source = delegate.getFileStream(objectKey);
+            long size = contentLength(source);
+            if (size < 0 || size > properties.getMaxObjectSize()) {
+                finishFill(hash, fill, null);
+                return source;
+            }
+            return new CacheFillInputStream(source, hash, size, fill);
+        } catch (RuntimeException | IOException e) {
+            finishFill(hash, fill, null);
+            if (e instanceof RuntimeException runtimeException) {
+                throw runtimeException;
+            }
+            throw new StorageException("Could not download file", e);
+        }
+    }
+
+    @Override
+    public InputStream getFileStream(String objectKey, long offset, long length) {
+        // Los rangos no llenan la caché: un visor pediría el objeto a trozos y nunca completo
+        InputStream cached = openCached(sha256Hex(objectKey), offset, length);
+        return cached != null ? cached : delegate.getFileStream(objectKey, offset, length);
+    }
+
+    // Las lecturas asíncronas (ZIP por lotes) recorren carpetas enteras: usan la caché pero no la llenan
+    @Override
+    public CompletableFuture<InputStream> getFileStreamAsync(String objectKey) {
+        InputStream cached = openCached(sha256Hex(objectKey), 0, Long.MAX_VALUE);
+        return cached != null ? CompletableFuture.completedFuture(cached) : delegate.getFileStreamAsync(objectKey);
+    }
+
+    @Override
+    public CompletableFuture<InputStream> getFileStreamAsync(String objectKey, long offset, long length) {
+        InputStream cached = openCached(sha256Hex(objectKey), offset, length);
+        return cached != null ? CompletableFuture.completedFuture(cached)
+                : delegate.getFileStreamAsync(objectKey, offset, length);
+    }
+
+    @Override
+    public CompletableFuture<Long> getFileSizeAsync(String objectKey) {
+        Long size = index.getIfPresent(sha256Hex(objectKey));
+        return size != null ? CompletableFuture.completedFuture(size) : delegate.getFileSizeAsync(objectKey);
+    }
+
+    @Override
+    public byte[] downloadFile(String objectKey) {
+        try (InputStream in = getFileStream(objectKey)) {
+            return in.readAllBytes();
+        } catch (IOException e) {
+            log.error("Error reading file through storage cache", e);
+            throw new StorageException("Could not download file", e);
+        }
+    }
+
+    @Override
+    public String uploadFile(InputStream fileData, long size, String objectKey, String contentType, Map<String, String> metadata) {
+        invalidate(objectKey);
+        return delegate.uploadFile(fileData, size, objectKey, contentType, metadata);
+    }
+
+    @Override
+    public String generatePresignedUrl(String objectKey, int expiryMinutes) {
+        return delegate.generatePresignedUrl(objectKey, expiryMinutes);
+    }
+
+    @Override
+    public void deleteFile(String objectKey) {
+        invalidate(objectKey);
+        delegate.deleteFile(objectKey);
+    }
+
+    @Override
+    public List<String> deleteFiles(Collection<String> objectKeys) {
+        objectKeys.forEach(this::invalidate);
+        return delegate.deleteFiles(objectKeys);
+    }
+
+    @Override
+    public Iterable<StoredObject> listObjects(String prefix) {
+        return delegate.listObjects(prefix);
+    }
+
+    @Override
+    public boolean bucketExists(String bucketName) {
+        return delegate.bucketExists(bucketName);
+    }
+
+    @Override
+    public void createBucket(String bucketName) {
+        delegate.createBucket(bucketName);
+    }
+
+    @Override
+    public long getFileSize(String objectKey) throws StorageException {
+        Long size = index.getIfPresent(sha256Hex(objectKey));
+        return size != null ? size : delegate.getFileSize(objectKey);
+    }
+
+    @Override
+    public StatObjectResponse getObjectStat(String objectKey) throws StorageException {
+        return delegate.getObjectStat(objectKey);
+    }
+
+    @Override
+    public String createMultipartUpload(String objectKey, String contentType) {
+        return delegate.createMultipartUpload(objectKey, contentType);
+    }
+
+    @Override
+    public String uploadPart(String objectKey, String uploadId, int partNumber, InputStream data, long size) {
+        return delegate.uploadPart(objectKey, uploadId, partNumber, data, size);
+    }
+
+    @Override
+    public void completeMultipartUpload(String objectKey, String uploadId, Map<Integer, String> partEtags) {
+        invalidate(objectKey);
+        delegate.completeMultipartUpload(objectKey, uploadId, partEtags);
+    }
+
+    @Override
+    public void abortMultipartUpload(String objectKey, String uploadId) {
+        delegate.abortMultipartUpload(objectKey, uploadId);
+    }
+
+    // Helper methods
+
+    private InputStream openCached(String hash, long offset, long length) {
+        if (index.getIfPresent(hash) == null) {
+            return null;
+        }
+
+        try {
+            return FileRegionInputStream.open(cachePath(hash), offset, length);
+        } catch (NoSuchFileException e) {
+            // Desalojado entre la consulta y la apertura
+            index.invalidate(hash);
+            return null;
+        } catch (IOException e) {
+            log.warn("Could not read cached object {}: {}", hash, e.getMessage());
+            return null;
+        }
+    }
+
+    private InputStream awaitFill(String objectKey, String hash, CompletableFuture<Path> inFlight) {
+        try {
+            Path path = inFlight.get(properties.getFillWaitTimeout().toMillis(), TimeUnit.MILLISECONDS);
+            if (path != null) {
+                InputStream cached = openCached(hash, 0, Long.MAX_VALUE);
+                if (cached != null) {
+                    return cached;
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (ExecutionException | TimeoutException e) {
+            // El llenado falló o va lento (cliente lento): leer directamente sin esperar más
+        }
+        return delegate.getFileStream(objectKey);
+    }
+
+    private void finishFill(String hash, CompletableFuture<Path> fill, Path path) {
+        fills.remove(hash, fill);
+        fill.complete(path);
+    }
+
+    private void invalidate(String objectKey) {
+        String hash = sha256Hex(objectKey);
+        index.invalidate(hash);
+        deleteQuietly(cachePath(hash));
+    }
+
+    private long contentLength(InputStream source) {
+        if (source instanceof GetObjectResponse response) {
+            String contentLength = response.headers().get("Content-Length");
+            if (contentLength != null) {
+                return Long.parseLong(contentLength);
+            }
+        }
+        return -1;
+    }
+
+    private Path cachePath(String hash) {
+        return objectsDir.resolve(hash);
+    }
+
+    private void deleteQuietly(Path path) {
+        try {
+            Files.deleteIfExists(path);
+        } catch (IOException e) {
+            log.warn("Could not delete cached object {}: {}", path, e.getMessage());
+        }
+    }
+
+    private String sha256Hex(String value) {
+        try {
+            return HexFormat.of().formatHex(MessageDigest.getInstance("SHA-256")
+                    .digest(value.getBytes(StandardCharsets.UTF_8)));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 not available", e);
+        }
+    }
+
+    /**
+     * Copia al temporal lo que lee el cliente. Solo se publica si se leyó el objeto completo;
+     * si el cliente corta la descarga el temporal se descarta y la siguiente lectura reintenta.
+     */
+    private class CacheFillInputStream extends FilterInputStream {
+        private final String hash;
+        private final long expectedSize;
+        private final CompletableFuture<Path> fill;
+        private final Path temp;
+        private final FileChannel out;
+        private long copied = 0;
+        private boolean finished = false;
+
+        CacheFillInputStream(InputStream source, String hash, long expectedSize,
+                             CompletableFuture<Path> fill) throws IOException {
+            super(source);
+            this.hash = hash;
+            this.expectedSize = expectedSize;
+            this.fill = fill;
+            this.temp = Files.createTempFile(tempDir, "fill-", ".tmp");
+            this.out = FileChannel.open(temp, StandardOpenOption.WRITE);
+        }
+
+        @Override
+        public int read() throws IOException {
+            byte[] single = new byte[1];
+            return read(single, 0, 1) == -1 ? -1 : single[0] & 0xFF;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            int read = in.read(b, off, len);
+            if (read == -1) {
+                complete();
+            } else if (read > 0 && !finished) {
+                try {
+                    ByteBuffer buffer = ByteBuffer.wrap(b, off, read);
+                    while (buffer.hasRemaining()) {
+                        out.write(buffer);
+                    }
+                    copied += read;
+                } catch (IOException e) {
+                    // Un fallo del disco de caché no debe cortar la descarga del cliente
+                    log.warn("Could not write cache fill for {}: {}", hash, e.getMessage());
+                    abort();
+                }
+            }
+            return read;
+        }
+
+        @Override
+        public long skip(long n) throws IOException {
+            // Saltar bytes dejaría huecos en la copia
+            abort();
+            return super.skip(n);
+        }
+
+        @Override
+        public boolean markSupported() {
+            return false;
+        }
+
+        @Override
+        public void close() throws IOException {
+            try {
+                abort();
+            } finally {
+                super.close();
+            }
+        }
+
+        private void complete() {
+            if (finished) {
+                return;
+            }
+            if (copied != expectedSize) {
+                abort();
+                return;
+            }
+
+            finished = true;
+            Path target = cachePath(hash);
+            try {
+                out.force(true);
+                out.close();
+                Files.move(temp, target, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+                index.put(hash, copied);
+                finishFill(hash, fill, target);
+            } catch (IOException e) {
+                log.warn("Could not publish cache fill for {}: {}", hash, e.getMessage());
+                deleteQuietly(temp);
+                finishFill(hash, fill, null);
+            }
+        }
+
+        private void abort() {
+            if (finished) {
+                return;
+            }
+
+            finished = true;
+            try {
+                out.close();
+            } catch (IOException e) {
+                log.debug("Error closing cache fill for {}", hash, e);
+            }
+            deleteQuietly(temp);
+            finishFill(hash, fill, null);
+        }
+    }
+}
@@ -2,6 +2,7 @@ package com.netdatel.documentserviceapi.service.impl;
 
 import com.netdatel.documentserviceapi.exception.InvalidRequestException;
 import com.netdatel.documentserviceapi.exception.ResourceNotFoundException;
+import com.netdatel.documentserviceapi.exception.StorageException;
 import com.netdatel.documentserviceapi.model.dto.request.ClientSpaceRequest;
 import com.netdatel.documentserviceapi.model.entity.ClientSpace;
 import com.netdatel.documentserviceapi.repository.ClientSpaceRepository;
@@ -32,6 +33,10 @@ public class ClientSpaceServiceImpl implements ClientSpaceService {
                 .storagePath(generateStoragePath(request.getClientId(), request.getModuleId()))
                 .totalQuotaBytes(request.getTotalQuotaBytes())
                 .usedBytes(0L)
+                .physicalUsedBytes(0L)
+                .deletedRetentionDays(request.getDeletedRetentionDays())
+                .versionKeepCount(request.getVersionKeepCount())
+                .versionRetentionDays(request.getVersionRetentionDays())
                 .isActive(true)
                 .createdBy(userId)
                 .build();
@@ -62,8 +67,11 @@ public class ClientSpaceServiceImpl implements ClientSpaceService {
 
         ClientSpace clientSpace = getClientSpace(id);
 
-        // No permitir cambiar cliente o módulo, solo actualizar la cuota
+        // No permitir cambiar cliente o módulo, solo actualizar la cuota y la retención
         clientSpace.setTotalQuotaBytes(request.getTotalQuotaBytes());
+        clientSpace.setDeletedRetentionDays(request.getDeletedRetentionDays());
+        clientSpace.setVersionKeepCount(request.getVersionKeepCount());
+        clientSpace.setVersionRetentionDays(request.getVersionRetentionDays());
         clientSpace.setUpdatedBy(userId);
 
         return clientSpaceRepository.save(clientSpace);
@@ -76,13 +84,20 @@ public class ClientSpaceServiceImpl implements ClientSpaceService {
     }
 
     @Override
-    public void updateUsedBytes(Integer id, Long usedBytes) {
-        log.info("Updating used bytes for client space id: {} to {}", id, usedBytes);
+    public void addUsedBytes(Integer id, long delta) {
+        if (delta == 0) {
+            return;
+        }
 
-        ClientSpace clientSpace = getClientSpace(id);
-        clientSpace.setUsedBytes(usedBytes);
+        log.info("Adding {} used bytes to client space id: {}", delta, id);
 
-        clientSpaceRepository.save(clientSpace);
+        // Verificación de cuota y actualización en una sola escritura atómica
+        if (clientSpaceRepository.addUsedBytes(id, delta) == 0) {
+            if (!clientSpaceRepository.existsById(id)) {
+                throw new ResourceNotFoundException("Espacio de cliente no encontrado");
+            }
+            throw new StorageException("Cuota de almacenamiento excedida");
+        }
     }
 
     private String generateStoragePath(Integer clientId, Integer moduleId) {
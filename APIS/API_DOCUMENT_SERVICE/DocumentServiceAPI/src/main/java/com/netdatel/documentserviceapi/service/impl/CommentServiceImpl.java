@@ -3,11 +3,13 @@ package com.netdatel.documentserviceapi.service.impl;
 import com.netdatel.documentserviceapi.exception.InvalidRequestException;
 import com.netdatel.documentserviceapi.exception.ResourceNotFoundException;
 import com.netdatel.documentserviceapi.model.dto.request.CommentRequest;
+import com.netdatel.documentserviceapi.model.dto.response.CursorPageResponse;
 import com.netdatel.documentserviceapi.model.entity.File;
 import com.netdatel.documentserviceapi.model.entity.FileComment;
 import com.netdatel.documentserviceapi.repository.FileCommentRepository;
 import com.netdatel.documentserviceapi.repository.FileRepository;
 import com.netdatel.documentserviceapi.service.CommentService;
+import com.netdatel.documentserviceapi.utils.KeysetCursor;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.stereotype.Service;
@@ -53,14 +55,27 @@ public class CommentServiceImpl implements CommentService {
     }
 
     @Override
-    public List<FileComment> getFileComments(Integer fileId) {
+    public CursorPageResponse<FileComment> getFileComments(Integer fileId, String cursor, int size,
+                                                           boolean withCount) {
         log.info("Getting comments for file: {}", fileId);
 
+        KeysetCursor.checkPageSize(size);
         if (!fileRepository.existsById(fileId)) {
             throw new ResourceNotFoundException("Archivo no encontrado");
         }
 
-        return fileCommentRepository.findByFileIdAndIsActiveOrderByCreatedAtAsc(fileId, true);
+        // Se pide un elemento de más para saber si hay otra página
+        KeysetCursor after = KeysetCursor.decode(cursor);
+        List<FileComment> comments = after == null
+                ? fileCommentRepository.findActiveByFilePage(fileId, size + 1)
+                : fileCommentRepository.findActiveByFilePageAfter(fileId, after.dateValue(), after.id(), size + 1);
+
+        CursorPageResponse<FileComment> page = KeysetCursor.toPage(comments, size,
+                comment -> new KeysetCursor(comment.getCreatedAt().toString(), comment.getId()));
+        if (withCount) {
+            page.setTotalCount(fileCommentRepository.countByFileIdAndIsActive(fileId, true));
+        }
+        return page;
     }
 
     @Override
@@ -3,12 +3,14 @@ package com.netdatel.documentserviceapi.service.impl;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.netdatel.documentserviceapi.exception.InvalidRequestException;
 import com.netdatel.documentserviceapi.exception.ResourceNotFoundException;
-import com.netdatel.documentserviceapi.exception.StorageException;
+import com.netdatel.documentserviceapi.config.QuotaProperties;
 import com.netdatel.documentserviceapi.model.dto.request.FileUploadRequest;
-import com.netdatel.documentserviceapi.model.entity.ClientSpace;
+import com.netdatel.documentserviceapi.model.dto.request.MetadataSearchRequest;
+import com.netdatel.documentserviceapi.model.dto.response.CursorPageResponse;
 import com.netdatel.documentserviceapi.model.entity.File;
 import com.netdatel.documentserviceapi.model.entity.FileVersion;
 import com.netdatel.documentserviceapi.model.entity.Folder;
+import com.netdatel.documentserviceapi.model.enums.FileSortField;
 import com.netdatel.documentserviceapi.model.enums.FileStatus;
 import com.netdatel.documentserviceapi.model.enums.ViewStatus;
 import com.netdatel.documentserviceapi.model.enums.ViewStatusColor;
@@ -17,19 +19,32 @@ import com.netdatel.documentserviceapi.repository.FileVersionRepository;
 import com.netdatel.documentserviceapi.repository.FolderRepository;
 import com.netdatel.documentserviceapi.service.ClientSpaceService;
 import com.netdatel.documentserviceapi.service.FileService;
+import com.netdatel.documentserviceapi.service.QuotaService;
+import com.netdatel.documentserviceapi.service.StorageBlobService;
 import com.netdatel.documentserviceapi.service.StorageService;
+import com.netdatel.documentserviceapi.utils.KeysetCursor;
+import com.netdatel.documentserviceapi.utils.MinioUtil;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
 import org.springframework.stereotype.Service;
 
 import java.io.IOException;
 import java.io.InputStream;
+import java.security.DigestInputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
 import java.time.LocalDateTime;
+import java.util.Arrays;
 import java.util.Collections;
+import java.util.HexFormat;
 import java.util.List;
-import java.util.UUID;
+import java.util.Map;
+import java.util.Objects;
+import java.util.function.Function;
+import java.util.stream.Collectors;
 
 @Service
 @RequiredArgsConstructor
@@ -40,6 +55,11 @@ public class FileServiceImpl implements FileService {
     private final FolderRepository folderRepository;
     private final StorageService storageService;
     private final ClientSpaceService clientSpaceService;
+    private final StorageBlobService storageBlobService;
+    private final QuotaService quotaService;
+    private final QuotaProperties quotaProperties;
+    private final MinioUtil minioUtil;
+    private final ObjectMapper objectMapper;
 
     @Override
     public File uploadFile(FileUploadRequest request, InputStream fileContent,
@@ -50,71 +70,103 @@ public class FileServiceImpl implements FileService {
         Folder folder = folderRepository.findById(request.getFolderId())
                 .orElseThrow(() -> new ResourceNotFoundException("Carpeta no encontrada"));
 
-        // Verificar espacio disponible
-        checkStorageQuota(folder.getClientSpace().getId(), fileSize);
-
         // Verificar si el nombre ya existe en la carpeta
         if (fileRepository.existsByFolderIdAndName(request.getFolderId(), request.getName())) {
             throw new InvalidRequestException("Ya existe un archivo con ese nombre en la carpeta");
         }
 
         // Generar clave única para almacenamiento
-        String storageKey = generateStorageKey(folder.getClientSpace().getId(),
+        String storageKey = minioUtil.generateStorageKey(folder.getClientSpace().getId(),
                 folder.getClientSpace().getModuleId(),
                 request.getName());
 
-        // Subir archivo a MinIO
-        storageService.uploadFile(fileContent, fileSize, storageKey, contentType, Collections.emptyMap());
+        // Reservar espacio antes de transferir, así las subidas concurrentes no superan la cuota
+        quotaService.reserve(storageKey, folder.getClientSpace().getId(), fileSize, reservationExpiry());
+
+        // Calcular el SHA-256 mientras se transfiere para deduplicar el contenido
+        DigestInputStream digestStream = new DigestInputStream(fileContent, newContentDigest());
+        try {
+            // Subir archivo a MinIO
+            storageService.uploadFile(digestStream, fileSize, storageKey, contentType, Collections.emptyMap());
+        } catch (RuntimeException e) {
+            quotaService.release(storageKey);
+            throw e;
+        }
 
-        // Convertir metadatos a JSON
-        String metadataJson = null;
-        if (request.getMetadata() != null && !request.getMetadata().isEmpty()) {
-            try {
-                metadataJson = new ObjectMapper().writeValueAsString(request.getMetadata());
-            } catch (Exception e) {
-                log.warn("Error converting metadata to JSON", e);
-                metadataJson = "{}";
-            }
+        String contentHash = HexFormat.of().formatHex(digestStream.getMessageDigest().digest());
+
+        File file;
+        try {
+            file = registerUploadedFile(request, folder, storageKey, contentHash, fileSize, contentType, userId);
+        } catch (RuntimeException e) {
+            // El objeto no quedó referenciado (p. ej. la cuota se agotó en otro nodo): eliminarlo
+            quotaService.release(storageKey);
+            storageService.deleteFile(storageKey);
+            throw e;
         }
 
-        // Crear registro en la base de datos
-        File file = File.builder()
-                .folder(folder)
-                .name(request.getName())
-                .originalName(request.getName())
-                .fileSize(fileSize)
-                .mimeType(contentType)
-                .storagePath(folder.getPath())
-                .storageKey(storageKey)
-                .status(FileStatus.ACTIVE)
-                .viewStatus(ViewStatus.NEW)
-                .viewStatusColor(ViewStatusColor.BLUE)
-                .uploadedBy(userId)
-                .version(1)
-                .metadata(metadataJson)
-                .build();
+        quotaService.commit(storageKey);
+        return file;
+    }
 
-        File savedFile = fileRepository.save(file);
+    @Override
+    public File registerUploadedFile(FileUploadRequest request, String storageKey, String contentHash,
+                                     long fileSize, String contentType, Integer userId) {
+        Folder folder = folderRepository.findById(request.getFolderId())
+                .orElseThrow(() -> new ResourceNotFoundException("Carpeta no encontrada"));
 
-        // Actualizar espacio utilizado
-        updateClientSpaceUsedBytes(folder.getClientSpace().getId(), fileSize, true);
+        if (fileRepository.existsByFolderIdAndName(request.getFolderId(), request.getName())) {
+            throw new InvalidRequestException("Ya existe un archivo con ese nombre en la carpeta");
+        }
 
-        return savedFile;
+        return registerUploadedFile(request, folder, storageKey, contentHash, fileSize, contentType, userId);
     }
 
     @Override
     public File getFile(Integer id) {
+        // Un archivo purgado solo se conserva como registro de auditoría
         return fileRepository.findById(id)
+                .filter(file -> file.getStatus() != FileStatus.PURGED)
                 .orElseThrow(() -> new ResourceNotFoundException("Archivo no encontrado"));
     }
 
     @Override
-    public List<File> getFilesByFolder(Integer folderId, FileStatus status) {
+    public CursorPageResponse<File> getFilesByFolder(Integer folderId, FileStatus status, FileSortField sort,
+                                                     Sort.Direction direction, String cursor, int size,
+                                                     boolean withCount) {
+        KeysetCursor.checkPageSize(size);
         if (!folderRepository.existsById(folderId)) {
             throw new ResourceNotFoundException("Carpeta no encontrada");
         }
 
-        return fileRepository.findByFolderIdAndStatus(folderId, status);
+        KeysetCursor after = KeysetCursor.decode(cursor);
+        Object afterValue = null;
+        if (after != null) {
+            try {
+                afterValue = sort.parse(after.value());
+            } catch (RuntimeException e) {
+                // Cursor emitido con otra clave de orden
+                throw new InvalidRequestException("Cursor inválido");
+            }
+        }
+
+        // Se pide un elemento de más para saber si hay otra página
+        List<Integer> ids = fileRepository.findIdsInFolder(folderId, status, sort, direction, afterValue,
+                after != null ? after.id() : null, size + 1);
+
+        Map<Integer, File> filesById = fileRepository.findAllById(ids).stream()
+                .collect(Collectors.toMap(File::getId, Function.identity()));
+        List<File> files = ids.stream()
+                .map(filesById::get)
+                .filter(Objects::nonNull)
+                .collect(Collectors.toList());
+
+        CursorPageResponse<File> page = KeysetCursor.toPage(files, size,
+                file -> new KeysetCursor(sort.valueOf(file), file.getId()));
+        if (withCount) {
+            page.setTotalCount((long) fileRepository.countByFolderIdAndStatus(folderId, status));
+        }
+        return page;
     }
 
     @Override
@@ -136,7 +188,7 @@ public class FileServiceImpl implements FileService {
         // Actualizar metadatos si se proporcionan
         if (request.getMetadata() != null) {
             try {
-                String metadataJson = new ObjectMapper().writeValueAsString(request.getMetadata());
+                String metadataJson = objectMapper.writeValueAsString(request.getMetadata());
                 file.setMetadata(metadataJson);
             } catch (Exception e) {
                 log.warn("Error converting metadata to JSON", e);
@@ -154,53 +206,54 @@ public class FileServiceImpl implements FileService {
 
         File file = getFile(id);
 
-        // Verificar espacio disponible
-        checkStorageQuota(file.getFolder().getClientSpace().getId(), fileSize);
-
-        // Guardar versión anterior
-        FileVersion fileVersion = FileVersion.builder()
-                .file(file)
-                .versionNumber(file.getVersion())
-                .fileSize(file.getFileSize())
-                .storagePath(file.getStoragePath())
-                .storageKey(file.getStorageKey())
-                .createdBy(userId)
-                .changeComments(comments)
-                .build();
-
-        fileVersionRepository.save(fileVersion);
-
         // Generar nueva clave de almacenamiento
-        String newStorageKey = generateStorageKey(file.getFolder().getClientSpace().getId(),
+        String newStorageKey = minioUtil.generateStorageKey(file.getFolder().getClientSpace().getId(),
                 file.getFolder().getClientSpace().getModuleId(),
                 file.getName());
 
-        // Subir nueva versión a MinIO
-        storageService.uploadFile(fileContent, fileSize, newStorageKey, contentType, Collections.emptyMap());
-
-        // Actualizar registro en la base de datos
-        long oldSize = file.getFileSize();
-        file.setFileSize(fileSize);
-        file.setStorageKey(newStorageKey);
-        file.setMimeType(contentType);
-        file.setVersion(file.getVersion() + 1);
+        // Reservar solo el crecimiento respecto a la versión actual
+        quotaService.reserve(newStorageKey, file.getFolder().getClientSpace().getId(),
+                fileSize - file.getFileSize(), reservationExpiry());
+
+        DigestInputStream digestStream = new DigestInputStream(fileContent, newContentDigest());
+        try {
+            // Subir nueva versión a MinIO
+            storageService.uploadFile(digestStream, fileSize, newStorageKey, contentType, Collections.emptyMap());
+        } catch (RuntimeException e) {
+            quotaService.release(newStorageKey);
+            throw e;
+        }
 
-        File updatedFile = fileRepository.save(file);
+        String contentHash = HexFormat.of().formatHex(digestStream.getMessageDigest().digest());
 
-        // Actualizar espacio utilizado (restar tamaño anterior y sumar nuevo)
-        updateClientSpaceUsedBytes(file.getFolder().getClientSpace().getId(), fileSize - oldSize, true);
+        File updatedFile;
+        try {
+            updatedFile = registerNewVersion(file, newStorageKey, contentHash, fileSize, contentType, comments, userId);
+        } catch (RuntimeException e) {
+            quotaService.release(newStorageKey);
+            storageService.deleteFile(newStorageKey);
+            throw e;
+        }
 
+        quotaService.commit(newStorageKey);
         return updatedFile;
     }
 
+    @Override
+    public File registerNewVersion(Integer id, String storageKey, String contentHash, long fileSize,
+                                   String contentType, String comments, Integer userId) {
+        return registerNewVersion(getFile(id), storageKey, contentHash, fileSize, contentType, comments, userId);
+    }
+
     @Override
     public void deleteFile(Integer id, Integer userId) {
         log.info("Deleting file: {}", id);
 
         File file = getFile(id);
 
-        // Cambiar estado a DELETED
+        // Cambiar estado a DELETED; la purga lo elimina de MinIO al vencer la retención
         file.setStatus(FileStatus.DELETED);
+        file.setDeletedAt(LocalDateTime.now());
 
         fileRepository.save(file);
 
@@ -208,7 +261,7 @@ public class FileServiceImpl implements FileService {
         // Esto permite recuperación y cumple con requisitos de auditoría
 
         // Actualizar espacio utilizado
-        updateClientSpaceUsedBytes(file.getFolder().getClientSpace().getId(), -file.getFileSize(), true);
+        clientSpaceService.addUsedBytes(file.getFolder().getClientSpace().getId(), -file.getFileSize());
     }
 
     @Override
@@ -239,47 +292,221 @@ public class FileServiceImpl implements FileService {
 
     @Override
     public Page<File> searchFiles(String query, Integer clientId, Pageable pageable) {
+        String term = query != null ? query.trim() : "";
+        if (term.isEmpty()) {
+            throw new InvalidRequestException("Debe indicar un texto de búsqueda");
+        }
+
+        String tsQuery = toPrefixTsQuery(term);
+        String pattern = "%" + escapeLike(term) + "%";
+
         if (clientId != null) {
-            return fileRepository.searchByNameAndClientId(clientId, query, pageable);
+            return fileRepository.searchByClientId(clientId, term, tsQuery, pattern, pageable);
         } else {
-            return fileRepository.findByNameContainingIgnoreCase(query, pageable);
+            return fileRepository.search(term, tsQuery, pattern, pageable);
+        }
+    }
+
+    @Override
+    public CursorPageResponse<File> searchByMetadata(MetadataSearchRequest request) {
+        String treePath = null;
+        if (request.getFolderId() != null) {
+            Folder folder = folderRepository.findById(request.getFolderId())
+                    .orElseThrow(() -> new ResourceNotFoundException("Carpeta no encontrada"));
+
+            if (!folder.getClientSpace().getId().equals(request.getClientSpaceId())) {
+                throw new InvalidRequestException("La carpeta no pertenece al espacio de cliente indicado");
+            }
+            treePath = folder.getTreePath();
+        }
+
+        String containsJson = null;
+        if (request.getContains() != null && !request.getContains().isEmpty()) {
+            try {
+                containsJson = objectMapper.writeValueAsString(request.getContains());
+            } catch (Exception e) {
+                throw new InvalidRequestException("Filtro de metadatos inválido");
+            }
+        }
+
+        // Se pide un elemento de más para saber si hay otra página
+        int size = request.getSize();
+        List<Integer> ids = fileRepository.findIdsByMetadata(request, treePath, containsJson, size + 1);
+        boolean hasMore = ids.size() > size;
+        if (hasMore) {
+            ids = ids.subList(0, size);
         }
+
+        Map<Integer, File> filesById = fileRepository.findAllById(ids).stream()
+                .collect(Collectors.toMap(File::getId, Function.identity()));
+        List<File> files = ids.stream()
+                .map(filesById::get)
+                .filter(Objects::nonNull)
+                .collect(Collectors.toList());
+
+        return CursorPageResponse.<File>builder()
+                .items(files)
+                .nextCursor(hasMore ? String.valueOf(ids.get(ids.size() - 1)) : null)
+                .hasMore(hasMore)
+                .build();
     }
 
     // Helper methods
 
-    private String generateStorageKey(Integer clientSpaceId, Integer moduleId, String fileName) {
-        LocalDateTime now = LocalDateTime.now();
-        String datePath = String.format("%d/%02d/%02d", now.getYear(), now.getMonthValue(), now.getDayOfMonth());
-        String uniqueId = UUID.randomUUID().toString();
+    private File registerNewVersion(File file, String newStorageKey, String contentHash, long fileSize,
+                                    String contentType, String comments, Integer userId) {
+        // Reservar la diferencia de tamaño; falla de forma atómica si se supera la cuota
+        Integer clientSpaceId = file.getFolder().getClientSpace().getId();
+        long sizeDelta = fileSize - file.getFileSize();
+        clientSpaceService.addUsedBytes(clientSpaceId, sizeDelta);
+
+        String blobKey = acquireBlob(clientSpaceId, contentHash, newStorageKey, fileSize);
+
+        File updatedFile;
+        try {
+            updatedFile = saveNewVersion(file, blobKey, contentHash, fileSize, contentType, comments, userId);
+        } catch (RuntimeException e) {
+            releaseBlob(clientSpaceId, blobKey, newStorageKey, fileSize);
+            clientSpaceService.addUsedBytes(clientSpaceId, -sizeDelta);
+            throw e;
+        }
 
-        return String.format("clients/%d/module_%d/%s/%s_%s",
-                clientSpaceId, moduleId, datePath, uniqueId, fileName);
+        discardDuplicate(blobKey, newStorageKey);
+        return updatedFile;
     }
 
-    private void checkStorageQuota(Integer clientSpaceId, long fileSize) {
-        ClientSpace clientSpace = clientSpaceService.getClientSpace(clientSpaceId);
+    private File saveNewVersion(File file, String newStorageKey, String contentHash, long fileSize,
+                                String contentType, String comments, Integer userId) {
+        // Guardar versión anterior
+        FileVersion fileVersion = FileVersion.builder()
+                .file(file)
+                .versionNumber(file.getVersion())
+                .fileSize(file.getFileSize())
+                .storagePath(file.getStoragePath())
+                .storageKey(file.getStorageKey())
+                .hashValue(file.getHashValue())
+                .createdBy(userId)
+                .changeComments(comments)
+                .build();
+
+        fileVersionRepository.save(fileVersion);
+
+        // Actualizar registro en la base de datos
+        file.setFileSize(fileSize);
+        file.setStorageKey(newStorageKey);
+        file.setHashValue(contentHash);
+        file.setMimeType(contentType);
+        file.setVersion(file.getVersion() + 1);
 
-        if (clientSpace.getUsedBytes() + fileSize > clientSpace.getTotalQuotaBytes()) {
-            throw new StorageException("Cuota de almacenamiento excedida");
+        return fileRepository.save(file);
+    }
+
+    private File registerUploadedFile(FileUploadRequest request, Folder folder, String storageKey,
+                                      String contentHash, long fileSize, String contentType, Integer userId) {
+        // Sumar el tamaño al espacio utilizado; falla de forma atómica si se supera la cuota
+        Integer clientSpaceId = folder.getClientSpace().getId();
+        clientSpaceService.addUsedBytes(clientSpaceId, fileSize);
+
+        String blobKey = acquireBlob(clientSpaceId, contentHash, storageKey, fileSize);
+
+        File file;
+        try {
+            file = saveUploadedFile(request, folder, blobKey, contentHash, fileSize, contentType, userId);
+        } catch (RuntimeException e) {
+            releaseBlob(clientSpaceId, blobKey, storageKey, fileSize);
+            clientSpaceService.addUsedBytes(clientSpaceId, -fileSize);
+            throw e;
         }
+
+        discardDuplicate(blobKey, storageKey);
+        return file;
     }
 
-    private void updateClientSpaceUsedBytes(Integer clientSpaceId, long bytesChange, boolean absolute) {
-        ClientSpace clientSpace = clientSpaceService.getClientSpace(clientSpaceId);
+    private File saveUploadedFile(FileUploadRequest request, Folder folder, String storageKey,
+                                  String contentHash, long fileSize, String contentType, Integer userId) {
+        // Convertir metadatos a JSON
+        String metadataJson = null;
+        if (request.getMetadata() != null && !request.getMetadata().isEmpty()) {
+            try {
+                metadataJson = objectMapper.writeValueAsString(request.getMetadata());
+            } catch (Exception e) {
+                log.warn("Error converting metadata to JSON", e);
+                metadataJson = "{}";
+            }
+        }
 
-        long newUsedBytes;
-        if (absolute) {
-            newUsedBytes = clientSpace.getUsedBytes() + bytesChange;
-        } else {
-            newUsedBytes = bytesChange;
+        // Crear registro en la base de datos
+        File file = File.builder()
+                .folder(folder)
+                .name(request.getName())
+                .originalName(request.getName())
+                .fileSize(fileSize)
+                .mimeType(contentType)
+                .storagePath(folder.getPath())
+                .storageKey(storageKey)
+                .hashValue(contentHash)
+                .status(FileStatus.ACTIVE)
+                .viewStatus(ViewStatus.NEW)
+                .viewStatusColor(ViewStatusColor.BLUE)
+                .uploadedBy(userId)
+                .version(1)
+                .metadata(metadataJson)
+                .build();
+
+        return fileRepository.save(file);
+    }
+
+    // Blob del contenido: si ya existía uno igual en el espacio se reutiliza su objeto
+    private String acquireBlob(Integer clientSpaceId, String contentHash, String storageKey, long fileSize) {
+        try {
+            return storageBlobService.acquire(clientSpaceId, contentHash, storageKey, fileSize);
+        } catch (RuntimeException e) {
+            clientSpaceService.addUsedBytes(clientSpaceId, -fileSize);
+            throw e;
+        }
+    }
+
+    private void releaseBlob(Integer clientSpaceId, String blobKey, String uploadedKey, long fileSize) {
+        // El objeto subido lo elimina quien llama; aquí solo el blob reutilizado si quedó sin referencias
+        if (storageBlobService.release(clientSpaceId, blobKey, fileSize) && !blobKey.equals(uploadedKey)) {
+            storageService.deleteFile(blobKey);
+        }
+    }
+
+    // Contenido repetido: el registro apunta al blob existente y la copia recién subida sobra
+    private void discardDuplicate(String blobKey, String uploadedKey) {
+        if (blobKey.equals(uploadedKey)) {
+            return;
         }
 
-        // Asegurar que no sea negativo
-        if (newUsedBytes < 0) {
-            newUsedBytes = 0;
+        try {
+            storageService.deleteFile(uploadedKey);
+        } catch (RuntimeException e) {
+            log.warn("Could not delete duplicate upload: {}", uploadedKey, e);
         }
+    }
+
+    private MessageDigest newContentDigest() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 not available", e);
+        }
+    }
+
+    // Cada palabra de la búsqueda se trata como prefijo: "inf 2024" -> "inf:* & 2024:*"
+    private String toPrefixTsQuery(String term) {
+        return Arrays.stream(term.toLowerCase().split("[^\\p{L}\\p{N}]+"))
+                .filter(token -> !token.isEmpty())
+                .map(token -> token + ":*")
+                .collect(Collectors.joining(" & "));
+    }
+
+    private String escapeLike(String term) {
+        return term.replace("\\", "\\\\").replace("%", "\\%").replace("_", "\\_");
+    }
 
-        clientSpaceService.updateUsedBytes(clientSpaceId, newUsedBytes);
+    private LocalDateTime reservationExpiry() {
+        return LocalDateTime.now().plus(quotaProperties.getReservationTtl());
     }
 }
@@ -3,20 +3,28 @@ package com.netdatel.documentserviceapi.service.impl;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.netdatel.documentserviceapi.exception.InvalidRequestException;
 import com.netdatel.documentserviceapi.exception.ResourceNotFoundException;
+import com.netdatel.documentserviceapi.model.dto.request.FolderMoveRequest;
 import com.netdatel.documentserviceapi.model.dto.request.FolderRequest;
+import com.netdatel.documentserviceapi.model.dto.response.CursorPageResponse;
 import com.netdatel.documentserviceapi.model.entity.ClientSpace;
-import com.netdatel.documentserviceapi.model.entity.File;
 import com.netdatel.documentserviceapi.model.entity.Folder;
 import com.netdatel.documentserviceapi.model.enums.FileStatus;
+import com.netdatel.documentserviceapi.model.projection.StoredObject;
+import com.netdatel.documentserviceapi.model.projection.SubtreeStats;
 import com.netdatel.documentserviceapi.repository.ClientSpaceRepository;
 import com.netdatel.documentserviceapi.repository.FileRepository;
 import com.netdatel.documentserviceapi.repository.FolderRepository;
+import com.netdatel.documentserviceapi.security.EffectivePermissionCache;
 import com.netdatel.documentserviceapi.service.FolderService;
+import com.netdatel.documentserviceapi.service.StorageBlobService;
+import com.netdatel.documentserviceapi.utils.KeysetCursor;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 
 import java.util.List;
+import java.util.Objects;
 
 @Service
 @RequiredArgsConstructor
@@ -25,8 +33,11 @@ public class FolderServiceImpl implements FolderService {
     private final FolderRepository folderRepository;
     private final ClientSpaceRepository clientSpaceRepository;
     private final FileRepository fileRepository;
+    private final EffectivePermissionCache permissionCache;
+    private final StorageBlobService storageBlobService;
 
     @Override
+    @Transactional
     public Folder createFolder(FolderRequest request, Integer userId) {
         log.info("Creating folder: {}", request.getName());
 
@@ -88,18 +99,24 @@ public class FolderServiceImpl implements FolderService {
         }
 
         // Crear y guardar la carpeta
+        String parentTreePath = parent != null ? parent.getTreePath() : "/";
         Folder folder = Folder.builder()
                 .clientSpace(clientSpace)
                 .name(request.getName())
                 .description(request.getDescription())
                 .parent(parent)
                 .path(path)
+                .treePath(parentTreePath)
                 .createdBy(userId)
                 .isActive(true)
                 .attributes(attributesJson)
                 .build();
 
-        return folderRepository.save(folder);
+        // La ruta de IDs incluye el ID propio, que solo se conoce tras insertar
+        Folder savedFolder = folderRepository.save(folder);
+        savedFolder.setTreePath(parentTreePath + savedFolder.getId() + "/");
+
+        return folderRepository.save(savedFolder);
     }
 
     @Override
@@ -109,24 +126,49 @@ public class FolderServiceImpl implements FolderService {
     }
 
     @Override
-    public List<Folder> getRootFolders(Integer clientSpaceId) {
+    public CursorPageResponse<Folder> getRootFolders(Integer clientSpaceId, String cursor, int size,
+                                                     boolean withCount) {
+        KeysetCursor.checkPageSize(size);
         if (!clientSpaceRepository.existsById(clientSpaceId)) {
             throw new ResourceNotFoundException("Espacio de cliente no encontrado");
         }
 
-        return folderRepository.findByClientSpaceIdAndParentIsNull(clientSpaceId);
+        // Se pide un elemento de más para saber si hay otra página
+        KeysetCursor after = KeysetCursor.decode(cursor);
+        List<Folder> folders = after == null
+                ? folderRepository.findRootFoldersPage(clientSpaceId, size + 1)
+                : folderRepository.findRootFoldersPageAfter(clientSpaceId, after.value(), after.id(), size + 1);
+
+        CursorPageResponse<Folder> page = KeysetCursor.toPage(folders, size,
+                folder -> new KeysetCursor(folder.getName(), folder.getId()));
+        if (withCount) {
+            page.setTotalCount(folderRepository.countByClientSpaceIdAndParentIsNull(clientSpaceId));
+        }
+        return page;
     }
 
     @Override
-    public List<Folder> getSubfolders(Integer parentId) {
+    public CursorPageResponse<Folder> getSubfolders(Integer parentId, String cursor, int size, boolean withCount) {
+        KeysetCursor.checkPageSize(size);
         if (!folderRepository.existsById(parentId)) {
             throw new ResourceNotFoundException("Carpeta padre no encontrada");
         }
 
-        return folderRepository.findByParentId(parentId);
+        KeysetCursor after = KeysetCursor.decode(cursor);
+        List<Folder> folders = after == null
+                ? folderRepository.findSubfoldersPage(parentId, size + 1)
+                : folderRepository.findSubfoldersPageAfter(parentId, after.value(), after.id(), size + 1);
+
+        CursorPageResponse<Folder> page = KeysetCursor.toPage(folders, size,
+                folder -> new KeysetCursor(folder.getName(), folder.getId()));
+        if (withCount) {
+            page.setTotalCount(folderRepository.countByParentId(parentId));
+        }
+        return page;
     }
 
     @Override
+    @Transactional
     public Folder updateFolder(Integer id, FolderRequest request, Integer userId) {
         log.info("Updating folder: {}", id);
 
@@ -142,15 +184,8 @@ public class FolderServiceImpl implements FolderService {
                 throw new InvalidRequestException("Ya existe una carpeta con ese nombre en este nivel");
             }
 
-            // Actualizar nombre y ruta
-            String oldPath = folder.getPath();
-            String newPath = oldPath.substring(0, oldPath.lastIndexOf('/') + 1) + request.getName();
-
-            folder.setName(request.getName());
-            folder.setPath(newPath);
-
-            // También actualizar rutas de subcarpetas
-            updateSubfolderPaths(folder, oldPath, newPath);
+            // Actualizar nombre y ruta, también de las subcarpetas
+            relocate(folder, folder.getParent(), request.getName());
         }
 
         // Actualizar descripción si se proporciona
@@ -174,26 +209,69 @@ public class FolderServiceImpl implements FolderService {
     }
 
     @Override
+    @Transactional
+    public int moveFolder(Integer id, FolderMoveRequest request, Integer userId) {
+        log.info("Moving folder: {} to parent: {}", id, request.getParentId());
+
+        Folder folder = getFolder(id);
+        String newName = (request.getName() != null && !request.getName().trim().isEmpty())
+                ? request.getName() : folder.getName();
+
+        Folder newParent = null;
+        if (request.getParentId() != null) {
+            newParent = folderRepository.findById(request.getParentId())
+                    .orElseThrow(() -> new ResourceNotFoundException("Carpeta destino no encontrada"));
+
+            if (!newParent.getClientSpace().getId().equals(folder.getClientSpace().getId())) {
+                throw new InvalidRequestException("No se puede mover una carpeta a otro espacio de cliente");
+            }
+
+            // El destino no puede ser la propia carpeta ni uno de sus descendientes
+            if (newParent.getTreePath().startsWith(folder.getTreePath())) {
+                throw new InvalidRequestException("No se puede mover una carpeta dentro de sí misma");
+            }
+        }
+
+        Integer newParentId = newParent != null ? newParent.getId() : null;
+        Integer currentParentId = folder.getParent() != null ? folder.getParent().getId() : null;
+        if (Objects.equals(newParentId, currentParentId) && newName.equals(folder.getName())) {
+            return 0;
+        }
+
+        if (folderRepository.existsByClientSpaceIdAndParentIdAndName(
+                folder.getClientSpace().getId(), newParentId, newName)) {
+            throw new InvalidRequestException("Ya existe una carpeta con ese nombre en el destino");
+        }
+
+        int updatedDescendants = relocate(folder, newParent, newName);
+        folder.setUpdatedBy(userId);
+        folderRepository.save(folder);
+
+        return updatedDescendants;
+    }
+
+    @Override
+    @Transactional
     public void deleteFolder(Integer id) {
         log.info("Deleting folder: {}", id);
 
         Folder folder = getFolder(id);
+        Integer clientSpaceId = folder.getClientSpace().getId();
+        SubtreeStats activeFiles = fileRepository.getSubtreeStats(folder.getTreePath(), FileStatus.ACTIVE);
 
-        // Eliminar subcarpetas primero (recursivo)
-        List<Folder> subfolders = folderRepository.findByParentId(id);
-        for (Folder subfolder : subfolders) {
-            deleteFolder(subfolder.getId());
+        // Archivos y versiones se eliminan en cascada con las carpetas: liberar sus objetos en la misma transacción
+        List<StoredObject> objects = fileRepository.findSubtreeStoredObjects(folder.getTreePath());
+        for (StoredObject object : objects) {
+            storageBlobService.releaseForPurge(clientSpaceId, object.getStorageKey(), object.getFileSize());
         }
 
-        // Eliminar archivos en la carpeta
-        List<File> files = fileRepository.findByFolderId(id);
-        for (File file : files) {
-            file.setStatus(FileStatus.DELETED);
-            fileRepository.save(file);
-        }
+        // Eliminar la carpeta y sus subcarpetas
+        int deletedFolders = folderRepository.deleteSubtree(folder.getTreePath());
+        clientSpaceRepository.addUsedBytes(clientSpaceId, -activeFiles.getTotalBytes());
+        permissionCache.invalidateSubtree(folder.getTreePath());
 
-        // Eliminar la carpeta
-        folderRepository.delete(folder);
+        log.info("Deleted folder {}: {} folders, {} files, {} stored objects", id, deletedFolders,
+                activeFiles.getFileCount(), objects.size());
     }
 
     @Override
@@ -203,18 +281,29 @@ public class FolderServiceImpl implements FolderService {
 
     // Helper methods
 
-    private void updateSubfolderPaths(Folder folder, String oldBasePath, String newBasePath) {
-        List<Folder> subfolders = folderRepository.findByParentId(folder.getId());
+    // Asigna nuevo padre y nombre a la carpeta y reescribe las rutas de su subárbol con un UPDATE masivo
+    private int relocate(Folder folder, Folder newParent, String newName) {
+        String oldPath = folder.getPath();
+        String oldTreePath = folder.getTreePath();
+        String newPath = (newParent != null ? newParent.getPath() : "") + "/" + newName;
+        String newTreePath = (newParent != null ? newParent.getTreePath() : "/") + folder.getId() + "/";
 
-        for (Folder subfolder : subfolders) {
-            String currentPath = subfolder.getPath();
-            String newPath = currentPath.replace(oldBasePath, newBasePath);
+        // Al cambiar de padre cambian los permisos heredados de todo el subárbol
+        if (!newTreePath.equals(oldTreePath)) {
+            permissionCache.invalidateSubtree(oldTreePath);
+        }
 
-            subfolder.setPath(newPath);
-            folderRepository.save(subfolder);
+        int updatedDescendants = folderRepository.rewriteDescendantPaths(
+                folder.getId(), oldPath, newPath, oldTreePath, newTreePath);
 
-            // Procesamiento recursivo para subcarpetas
-            updateSubfolderPaths(subfolder, currentPath, newPath);
-        }
+        folder.setParent(newParent);
+        folder.setName(newName);
+        folder.setPath(newPath);
+        folder.setTreePath(newTreePath);
+
+        log.info("Folder {} relocated to {}: {} descendant paths rewritten", folder.getId(), newPath,
+                updatedDescendants);
+
+        return updatedDescendants;
     }
 }
\ No newline at end of file
@@ -0,0 +1,463 @@
+package com.netdatel.documentserviceapi.service.impl;
+
+import com.netdatel.documentserviceapi.config.LocalStorageProperties;
+import com.netdatel.documentserviceapi.exception.StorageException;
+import com.netdatel.documentserviceapi.service.StorageService;
+import com.netdatel.documentserviceapi.utils.FileRegionInputStream;
+import io.minio.StatObjectResponse;
+import io.minio.Time;
+import jakarta.annotation.PostConstruct;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import okhttp3.Headers;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Service;
+
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URLEncoder;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.security.DigestInputStream;
+import java.security.InvalidKeyException;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZonedDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.UUID;
+import java.util.stream.Stream;
+
+/**
+ * Almacenamiento en el sistema de archivos local para instalaciones de un solo nodo y pruebas de rendimiento.
+ * Cada objeto se guarda en objects/ bajo la ruta derivada del SHA-256 de su clave, repartido en subdirectorios.
+ * Las escrituras van a un temporal en el mismo volumen y se publican con un move atómico, de modo que un lector
+ * nunca ve un objeto a medias. Junto a cada objeto, un archivo {hash}.key guarda la clave original para poder
+ * listarlos; los objetos anteriores a este índice no tienen .key y no aparecen en el listado. Las partes de un multipart upload se guardan en uploads/{uploadId}/.
+ */
+@Service
+@RequiredArgsConstructor
+@ConditionalOnProperty(name = "storage.type", havingValue = "local")
+@Slf4j
+public class LocalStorageServiceImpl implements StorageService {
+    private static final String PART_PREFIX = "part-";
+    private static final String KEY_SUFFIX = ".key";
+    private static final String SIGNATURE_ALGORITHM = "HmacSHA256";
+    // Endpoint que sirve los objetos a partir de una URL firmada (LocalStorageController)
+    public static final String DOWNLOAD_PATH = "/api/storage/local/objects";
+
+    private final LocalStorageProperties properties;
+
+    private Path rootDir;
+    private Path objectsDir;
+    private Path uploadsDir;
+    private Path tempDir;
+
+    @PostConstruct
+    public void init() {
+        rootDir = Paths.get(properties.getRootDir()).toAbsolutePath().normalize();
+        objectsDir = rootDir.resolve("objects");
+        uploadsDir = rootDir.resolve("uploads");
+        tempDir = rootDir.resolve("tmp");
+
+        try {
+            Files.createDirectories(objectsDir);
+            Files.createDirectories(uploadsDir);
+            Files.createDirectories(tempDir);
+
+            // Temporales de escrituras interrumpidas por un reinicio
+            try (DirectoryStream<Path> stale = Files.newDirectoryStream(tempDir)) {
+                for (Path path : stale) {
+                    Files.deleteIfExists(path);
+                }
+            }
+        } catch (IOException e) {
+            log.error("Error initializing local storage at {}", rootDir, e);
+            throw new StorageException("Could not initialize local storage", e);
+        }
+
+        log.info("Local storage initialized at {}", rootDir);
+    }
+
+    @Override
+    public String uploadFile(InputStream fileData, long size, String objectKey,
+                             String contentType, Map<String, String> metadata) {
+        try {
+            // El stream pertenece al llamador, igual que en MinIO: no se cierra aquí
+            writeKeyIndex(objectKey);
+            publish(writeTemp(fileData, size), objectPath(objectKey));
+            log.info("File stored successfully in local storage: {}", objectKey);
+            return objectKey;
+        } catch (IOException e) {
+            log.error("Error storing file in local storage", e);
+            throw new StorageException("Could not upload file", e);
+        }
+    }
+
+    @Override
+    public byte[] downloadFile(String objectKey) {
+        try {
+            return Files.readAllBytes(objectPath(objectKey));
+        } catch (IOException e) {
+            log.error("Error reading file from local storage", e);
+            throw new StorageException("Could not download file", e);
+        }
+    }
+
+    @Override
+    public InputStream getFileStream(String objectKey) {
+        return getFileStream(objectKey, 0, Long.MAX_VALUE);
+    }
+
+    @Override
+    public InputStream getFileStream(String objectKey, long offset, long length) {
+        try {
+            return FileRegionInputStream.open(objectPath(objectKey), offset, length);
+        } catch (IOException e) {
+            log.error("Error opening file from local storage", e);
+            throw new StorageException("Could not download file", e);
+        }
+    }
+
+    // Igual que una URL prefirmada de MinIO: firma HMAC de la clave y el vencimiento, verificada al servirla
+    @Override
+    public String generatePresignedUrl(String objectKey, int expiryMinutes) {
+        if (isBlank(properties.getPublicBaseUrl()) || isBlank(properties.getSigningKey())) {
+            throw new StorageException("Download URLs require storage.local.public-base-url and storage.local.signing-key");
+        }
+
+        long expires = Instant.now().plus(Duration.ofMinutes(expiryMinutes)).getEpochSecond();
+        return properties.getPublicBaseUrl().replaceAll("/+$", "") + DOWNLOAD_PATH
+                + "?key=" + URLEncoder.encode(objectKey, StandardCharsets.UTF_8)
+                + "&expires=" + expires
+                + "&signature=" + sign(objectKey, expires);
+    }
+
+    // La URL es válida si no ha vencido y la firma coincide; la comparación es de tiempo constante
+    public boolean isValidDownloadSignature(String objectKey, long expires, String signature) {
+        if (isBlank(properties.getSigningKey()) || signature == null
+                || Instant.now().getEpochSecond() > expires) {
+            return false;
+        }
+
+        return MessageDigest.isEqual(sign(objectKey, expires).getBytes(StandardCharsets.US_ASCII),
+                signature.getBytes(StandardCharsets.US_ASCII));
+    }
+
+    @Override
+    public void deleteFile(String objectKey) {
+        try {
+            deleteObject(objectKey);
+            log.info("File deleted successfully from local storage: {}", objectKey);
+        } catch (IOException e) {
+            log.error("Error deleting file from local storage", e);
+            throw new StorageException("Could not delete file", e);
+        }
+    }
+
+    @Override
+    public List<String> deleteFiles(Collection<String> objectKeys) {
+        List<String> failed = new ArrayList<>();
+        for (String objectKey : objectKeys) {
+            try {
+                deleteObject(objectKey);
+            } catch (IOException e) {
+                log.warn("Could not delete object {}: {}", objectKey, e.getMessage());
+                failed.add(objectKey);
+            }
+        }
+
+        log.info("Deleted {} objects from local storage", objectKeys.size() - failed.size());
+        return failed;
+    }
+
+    // Las rutas derivan del hash de la clave: la clave se recupera de su archivo .key
+    @Override
+    public Iterable<StoredObject> listObjects(String prefix) {
+        List<StoredObject> objects = new ArrayList<>();
+        try (Stream<Path> paths = Files.walk(objectsDir)) {
+            for (Path keyPath : paths.filter(path -> path.getFileName().toString().endsWith(KEY_SUFFIX)).toList()) {
+                String objectKey = Files.readString(keyPath, StandardCharsets.UTF_8);
+                Path objectPath = objectPath(objectKey);
+                if (!objectKey.startsWith(prefix) || !Files.exists(objectPath)) {
+                    continue;
+                }
+
+                ZonedDateTime lastModified = Files.getLastModifiedTime(objectPath).toInstant().atZone(Time.UTC);
+                objects.add(new StoredObject(objectKey, lastModified));
+            }
+        } catch (IOException e) {
+            log.error("Error listing objects in local storage", e);
+            throw new StorageException("Could not list objects", e);
+        }
+        return objects;
+    }
+
+    // El almacenamiento local tiene un único contenedor: el directorio raíz
+    @Override
+    public boolean bucketExists(String bucketName) {
+        return Files.isDirectory(objectsDir);
+    }
+
+    @Override
+    public void createBucket(String bucketName) {
+        try {
+            Files.createDirectories(objectsDir);
+        } catch (IOException e) {
+            log.error("Error creating local storage directory", e);
+            throw new StorageException("Could not create bucket", e);
+        }
+    }
+
+    @Override
+    public long getFileSize(String objectKey) throws StorageException {
+        try {
+            return Files.size(objectPath(objectKey));
+        } catch (IOException e) {
+            log.error("Error getting file size", e);
+            throw new StorageException("Could not get file size", e);
+        }
+    }
+
+    @Override
+    public StatObjectResponse getObjectStat(String objectKey) throws StorageException {
+        try {
+            BasicFileAttributes attributes = Files.readAttributes(objectPath(objectKey), BasicFileAttributes.class);
+            ZonedDateTime lastModified = attributes.lastModifiedTime().toInstant().atZone(Time.UTC);
+
+            Headers headers = Headers.of(
+                    "Content-Length", String.valueOf(attributes.size()),
+                    "Last-Modified", lastModified.format(Time.HTTP_HEADER_DATE_FORMAT),
+                    "ETag", "\"" + Long.toHexString(attributes.size()) + "-"
+                            + Long.toHexString(attributes.lastModifiedTime().toMillis()) + "\"");
+
+            return new StatObjectResponse(headers, rootDir.getFileName().toString(), null, objectKey);
+        } catch (IOException e) {
+            log.error("Error getting object stats", e);
+            throw new StorageException("Could not get object stats", e);
+        }
+    }
+
+    @Override
+    public String createMultipartUpload(String objectKey, String contentType) {
+        String uploadId = UUID.randomUUID().toString();
+        try {
+            Files.createDirectories(uploadsDir.resolve(uploadId));
+            log.info("Multipart upload created in local storage: {} ({})", objectKey, uploadId);
+            return uploadId;
+        } catch (IOException e) {
+            log.error("Error creating multipart upload in local storage", e);
+            throw new StorageException("Could not create multipart upload", e);
+        }
+    }
+
+    @Override
+    public String uploadPart(String objectKey, String uploadId, int partNumber, InputStream data, long size) {
+        try {
+            Path uploadDir = uploadDir(uploadId);
+            if (!Files.isDirectory(uploadDir)) {
+                throw new NoSuchFileException(uploadDir.toString(), null, "Unknown upload " + uploadId);
+            }
+
+            // Igual que S3, el ETag de una parte es el MD5 de su contenido
+            MessageDigest md5 = MessageDigest.getInstance("MD5");
+            Path temp = writeTemp(new DigestInputStream(data, md5), size);
+            publish(temp, uploadDir.resolve(partFileName(partNumber)));
+
+            return HexFormat.of().formatHex(md5.digest());
+        } catch (IOException | NoSuchAlgorithmException e) {
+            log.error("Error uploading part {} to local storage", partNumber, e);
+            throw new StorageException("Could not upload part", e);
+        }
+    }
+
+    @Override
+    public void completeMultipartUpload(String objectKey, String uploadId, Map<Integer, String> partEtags) {
+        Path uploadDir = uploadDir(uploadId);
+        Path temp = null;
+        try {
+            temp = Files.createTempFile(tempDir, "complete-", ".tmp");
+
+            // Concatenar las partes en orden; entre archivos transferTo no pasa por el espacio de usuario
+            try (FileChannel out = FileChannel.open(temp, StandardOpenOption.WRITE)) {
+                for (Integer partNumber : new TreeMap<>(partEtags).keySet()) {
+                    try (FileChannel in = FileChannel.open(uploadDir.resolve(partFileName(partNumber)),
+                            StandardOpenOption.READ)) {
+                        long position = 0;
+                        long partSize = in.size();
+                        while (position < partSize) {
+                            position += in.transferTo(position, partSize - position, out);
+                        }
+                    }
+                }
+                if (properties.isFsync()) {
+                    out.force(true);
+                }
+            }
+
+            writeKeyIndex(objectKey);
+            publish(temp, objectPath(objectKey));
+            temp = null;
+            deleteRecursively(uploadDir);
+            log.info("Multipart upload completed in local storage: {}", objectKey);
+        } catch (IOException e) {
+            log.error("Error completing multipart upload in local storage", e);
+            throw new StorageException("Could not complete multipart upload", e);
+        } finally {
+            deleteQuietly(temp);
+        }
+    }
+
+    @Override
+    public void abortMultipartUpload(String objectKey, String uploadId) {
+        try {
+            deleteRecursively(uploadDir(uploadId));
+            log.info("Multipart upload aborted in local storage: {}", objectKey);
+        } catch (IOException e) {
+            log.error("Error aborting multipart upload in local storage", e);
+            throw new StorageException("Could not abort multipart upload", e);
+        }
+    }
+
+    // Helper methods
+
+    /**
+     * Ruta del objeto: objects/ab/cd/abcd... a partir del SHA-256 de la clave. El hash evita que la clave
+     * (que incluye el nombre del usuario) pueda salir del directorio raíz o exceder el largo de nombre permitido.
+     */
+    private Path objectPath(String objectKey) {
+        String hash = sha256Hex(objectKey);
+        Path path = objectsDir;
+        for (int level = 0; level < properties.getShardDepth(); level++) {
+            path = path.resolve(hash.substring(level * 2, level * 2 + 2));
+        }
+        return path.resolve(hash);
+    }
+
+    private Path keyIndexPath(String objectKey) {
+        Path objectPath = objectPath(objectKey);
+        return objectPath.resolveSibling(objectPath.getFileName() + KEY_SUFFIX);
+    }
+
+    // Se escribe antes de publicar el objeto; si la publicación falla, el .key sin objeto se ignora al listar
+    private void writeKeyIndex(String objectKey) throws IOException {
+        Path keyPath = keyIndexPath(objectKey);
+        Files.createDirectories(keyPath.getParent());
+        Files.writeString(keyPath, objectKey, StandardCharsets.UTF_8);
+    }
+
+    private void deleteObject(String objectKey) throws IOException {
+        Files.deleteIfExists(objectPath(objectKey));
+        Files.deleteIfExists(keyIndexPath(objectKey));
+    }
+
+    private Path uploadDir(String uploadId) {
+        // Validar el formato impide rutas arbitrarias a partir del identificador recibido
+        return uploadsDir.resolve(UUID.fromString(uploadId).toString());
+    }
+
+    private String partFileName(int partNumber) {
+        return String.format("%s%05d", PART_PREFIX, partNumber);
+    }
+
+    private Path writeTemp(InputStream data, long size) throws IOException {
+        Path temp = Files.createTempFile(tempDir, "put-", ".tmp");
+        try (FileChannel out = FileChannel.open(temp, StandardOpenOption.WRITE)) {
+            ReadableByteChannel in = Channels.newChannel(data);
+            long written = 0;
+            while (written < size) {
+                long count = out.transferFrom(in, written, size - written);
+                if (count <= 0) {
+                    break;
+                }
+                written += count;
+            }
+
+            if (written != size) {
+                throw new IOException("Expected " + size + " bytes but received " + written);
+            }
+            if (properties.isFsync()) {
+                out.force(true);
+            }
+            return temp;
+        } catch (IOException e) {
+            deleteQuietly(temp);
+            throw e;
+        }
+    }
+
+    private void publish(Path temp, Path target) throws IOException {
+        try {
+            Files.createDirectories(target.getParent());
+            Files.move(temp, target, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        } catch (IOException e) {
+            deleteQuietly(temp);
+            throw e;
+        }
+    }
+
+    private void deleteRecursively(Path dir) throws IOException {
+        if (!Files.exists(dir)) {
+            return;
+        }
+        try (Stream<Path> paths = Files.walk(dir)) {
+            for (Path path : paths.sorted(Comparator.reverseOrder()).toList()) {
+                Files.deleteIfExists(path);
+            }
+        }
+    }
+
+    private void deleteQuietly(Path path) {
+        if (path == null) {
+            return;
+        }
+        try {
+            Files.deleteIfExists(path);
+        } catch (IOException e) {
+            log.warn("Could not delete temporary file {}: {}", path, e.getMessage());
+        }
+    }
+
+    private String sign(String objectKey, long expires) {
+        try {
+            Mac mac = Mac.getInstance(SIGNATURE_ALGORITHM);
+            mac.init(new SecretKeySpec(properties.getSigningKey().getBytes(StandardCharsets.UTF_8), SIGNATURE_ALGORITHM));
+            return HexFormat.of().formatHex(mac.doFinal((objectKey + "\n" + expires).getBytes(StandardCharsets.UTF_8)));
+        } catch (NoSuchAlgorithmException | InvalidKeyException e) {
+            throw new IllegalStateException("Could not sign download URL", e);
+        }
+    }
+
+    private boolean isBlank(String value) {
+        return value == null || value.isBlank();
+    }
+
+    private String sha256Hex(String value) {
+        try {
+            return HexFormat.of().formatHex(MessageDigest.getInstance("SHA-256")
+                    .digest(value.getBytes(StandardCharsets.UTF_8)));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 not available", e);
+        }
+    }
+}
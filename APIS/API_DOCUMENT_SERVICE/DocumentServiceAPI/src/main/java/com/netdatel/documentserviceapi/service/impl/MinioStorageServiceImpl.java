@@ -1,10 +1,15 @@
 package com.netdatel.documentserviceapi.service.impl;
 
+import com.netdatel.documentserviceapi.config.MinioAsyncStorageClient;
 import com.netdatel.documentserviceapi.config.MinioProperties;
 import com.netdatel.documentserviceapi.exception.StorageException;
 import com.netdatel.documentserviceapi.service.StorageService;
 import io.minio.*;
 import io.minio.http.Method;
+import io.minio.messages.DeleteError;
+import io.minio.messages.DeleteObject;
+import io.minio.messages.Item;
+import io.minio.messages.Part;
 import jakarta.annotation.PostConstruct;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
@@ -13,16 +18,24 @@ import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
 import org.springframework.stereotype.Service;
 
 import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.List;
 import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
 import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
 
 @Service
 @RequiredArgsConstructor
-@ConditionalOnProperty(name = "minio.enabled", havingValue = "true", matchIfMissing = false)
+@ConditionalOnProperty(name = "storage.type", havingValue = "minio", matchIfMissing = true)
 @Slf4j
 public class MinioStorageServiceImpl implements StorageService {
     private final MinioClient minioClient;
     private final MinioProperties minioProperties;
+    private final MinioAsyncStorageClient minioAsyncStorageClient;
 
     @PostConstruct
     public void init() {
@@ -81,6 +94,79 @@ public class MinioStorageServiceImpl implements StorageService {
         }
     }
 
+    @Override
+    public InputStream getFileStream(String objectKey) {
+        try {
+            GetObjectArgs args = GetObjectArgs.builder()
+                    .bucket(minioProperties.getBucketName())
+                    .object(objectKey)
+                    .build();
+
+            // El llamador es responsable de cerrar el stream para liberar la conexión HTTP
+            return minioClient.getObject(args);
+        } catch (Exception e) {
+            log.error("Error opening file stream from MinIO", e);
+            throw new StorageException("Could not download file", e);
+        }
+    }
+
+    @Override
+    public InputStream getFileStream(String objectKey, long offset, long length) {
+        try {
+            GetObjectArgs args = GetObjectArgs.builder()
+                    .bucket(minioProperties.getBucketName())
+                    .object(objectKey)
+                    .offset(offset)
+                    .length(length)
+                    .build();
+
+            return minioClient.getObject(args);
+        } catch (Exception e) {
+            log.error("Error opening file range from MinIO", e);
+            throw new StorageException("Could not download file range", e);
+        }
+    }
+
+    @Override
+    public CompletableFuture<InputStream> getFileStreamAsync(String objectKey) {
+        return getObjectAsync(GetObjectArgs.builder()
+                .bucket(minioProperties.getBucketName())
+                .object(objectKey)
+                .build());
+    }
+
+    @Override
+    public CompletableFuture<InputStream> getFileStreamAsync(String objectKey, long offset, long length) {
+        return getObjectAsync(GetObjectArgs.builder()
+                .bucket(minioProperties.getBucketName())
+                .object(objectKey)
+                .offset(offset)
+                .length(length)
+                .build());
+    }
+
+    @Override
+    public CompletableFuture<Long> getFileSizeAsync(String objectKey) {
+        try {
+            StatObjectArgs args = StatObjectArgs.builder()
+                    .bucket(minioProperties.getBucketName())
+                    .object(objectKey)
+                    .build();
+
+            return minioAsyncStorageClient.statObject(args)
+                    .handle((stat, error) -> {
+                        if (error != null) {
+                            log.error("Error getting file size", unwrap(error));
+                            throw new StorageException("Could not get file size", unwrap(error));
+                        }
+                        return stat.size();
+                    });
+        } catch (Exception e) {
+            log.error("Error getting file size", e);
+            return CompletableFuture.failedFuture(new StorageException("Could not get file size", e));
+        }
+    }
+
     @Override
     public String generatePresignedUrl(String objectKey, int expiryMinutes) {
         try {
@@ -114,6 +200,92 @@ public class MinioStorageServiceImpl implements StorageService {
         }
     }
 
+    @Override
+    public List<String> deleteFiles(Collection<String> objectKeys) {
+        List<String> failed = new ArrayList<>();
+        if (objectKeys.isEmpty()) {
+            return failed;
+        }
+
+        List<DeleteObject> objects = objectKeys.stream()
+                .map(DeleteObject::new)
+                .collect(Collectors.toList());
+
+        RemoveObjectsArgs args = RemoveObjectsArgs.builder()
+                .bucket(minioProperties.getBucketName())
+                .objects(objects)
+                .build();
+
+        try {
+            // El resultado es perezoso: las peticiones (hasta 1000 claves cada una) se envían al recorrerlo
+            for (Result<DeleteError> result : minioClient.removeObjects(args)) {
+                DeleteError error = result.get();
+                if (!"NoSuchKey".equals(error.code())) {
+                    log.warn("Could not delete object {}: {}", error.objectName(), error.message());
+                    failed.add(error.objectName());
+                }
+            }
+        } catch (Exception e) {
+            log.error("Error deleting objects from MinIO", e);
+            throw new StorageException("Could not delete files", e);
+        }
+
+        log.info("Deleted {} objects from MinIO", objectKeys.size() - failed.size());
+        return failed;
+    }
+
+    @Override
+    public Iterable<StoredObject> listObjects(String prefix) {
+        ListObjectsArgs args = ListObjectsArgs.builder()
+                .bucket(minioProperties.getBucketName())
+                .prefix(prefix)
+                .recursive(true)
+                .build();
+
+        // MinIO pide las páginas (hasta 1000 claves) a medida que se recorre el resultado
+        Iterable<Result<Item>> results = minioClient.listObjects(args);
+        return () -> new Iterator<>() {
+            private final Iterator<Result<Item>> delegate = results.iterator();
+
+            @Override
+            public boolean hasNext() {
+                return delegate.hasNext();
+            }
+
+            @Override
+            public StoredObject next() {
+                try {
+                    Item item = delegate.next().get();
+                    return new StoredObject(item.objectName(), item.lastModified());
+                } catch (Exception e) {
+                    log.error("Error listing objects from MinIO", e);
+                    throw new StorageException("Could not list objects", e);
+                }
+            }
+        };
+    }
+
+    // El cliente asíncrono completa el futuro al recibir las cabeceras; el cuerpo se lee luego del stream
+    private CompletableFuture<InputStream> getObjectAsync(GetObjectArgs args) {
+        try {
+            return minioAsyncStorageClient.getObject(args)
+                    .handle((response, error) -> {
+                        if (error != null) {
+                            log.error("Error opening file stream from MinIO", unwrap(error));
+                            throw new StorageException("Could not download file", unwrap(error));
+                        }
+                        return response;
+                    });
+        } catch (Exception e) {
+            log.error("Error opening file stream from MinIO", e);
+            return CompletableFuture.failedFuture(new StorageException("Could not download file", e));
+        }
+    }
+
+    private Throwable unwrap(Throwable error) {
+        return error instanceof CompletionException && error.getCause() != null ? error.getCause() : error;
+    }
+
     @Override
     public boolean bucketExists(String bucketName) {
         try {
@@ -160,4 +332,56 @@ public class MinioStorageServiceImpl implements StorageService {
             throw new StorageException("Could not get object stats", e);
         }
     }
+
+    @Override
+    public String createMultipartUpload(String objectKey, String contentType) {
+        try {
+            String uploadId = minioAsyncStorageClient.createMultipartUpload(
+                    minioProperties.getBucketName(), objectKey, contentType);
+            log.info("Multipart upload created in MinIO: {} ({})", objectKey, uploadId);
+            return uploadId;
+        } catch (Exception e) {
+            log.error("Error creating multipart upload in MinIO", e);
+            throw new StorageException("Could not create multipart upload", e);
+        }
+    }
+
+    @Override
+    public String uploadPart(String objectKey, String uploadId, int partNumber, InputStream data, long size) {
+        try {
+            return minioAsyncStorageClient.uploadPart(minioProperties.getBucketName(), objectKey,
+                    uploadId, partNumber, data, size);
+        } catch (Exception e) {
+            log.error("Error uploading part {} to MinIO", partNumber, e);
+            throw new StorageException("Could not upload part", e);
+        }
+    }
+
+    @Override
+    public void completeMultipartUpload(String objectKey, String uploadId, Map<Integer, String> partEtags) {
+        try {
+            // S3 exige las partes ordenadas por número
+            Part[] parts = partEtags.entrySet().stream()
+                    .sorted(Map.Entry.comparingByKey())
+                    .map(entry -> new Part(entry.getKey(), entry.getValue()))
+                    .toArray(Part[]::new);
+
+            minioAsyncStorageClient.completeMultipartUpload(minioProperties.getBucketName(), objectKey, uploadId, parts);
+            log.info("Multipart upload completed in MinIO: {}", objectKey);
+        } catch (Exception e) {
+            log.error("Error completing multipart upload in MinIO", e);
+            throw new StorageException("Could not complete multipart upload", e);
+        }
+    }
+
+    @Override
+    public void abortMultipartUpload(String objectKey, String uploadId) {
+        try {
+            minioAsyncStorageClient.abortMultipartUpload(minioProperties.getBucketName(), objectKey, uploadId);
+            log.info("Multipart upload aborted in MinIO: {}", objectKey);
+        } catch (Exception e) {
+            log.error("Error aborting multipart upload in MinIO", e);
+            throw new StorageException("Could not abort multipart upload", e);
+        }
+    }
 }
\ No newline at end of file
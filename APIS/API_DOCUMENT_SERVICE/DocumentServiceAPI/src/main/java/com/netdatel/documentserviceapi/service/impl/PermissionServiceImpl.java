@@ -6,17 +6,28 @@ import com.netdatel.documentserviceapi.model.entity.File;
 import com.netdatel.documentserviceapi.model.entity.FilePermission;
 import com.netdatel.documentserviceapi.model.entity.Folder;
 import com.netdatel.documentserviceapi.model.entity.FolderPermission;
+import com.netdatel.documentserviceapi.model.enums.PermissionBit;
+import com.netdatel.documentserviceapi.model.projection.ResolvedPermission;
+import com.netdatel.documentserviceapi.model.projection.ResourcePermission;
 import com.netdatel.documentserviceapi.repository.FilePermissionRepository;
 import com.netdatel.documentserviceapi.repository.FileRepository;
 import com.netdatel.documentserviceapi.repository.FolderPermissionRepository;
 import com.netdatel.documentserviceapi.repository.FolderRepository;
+import com.netdatel.documentserviceapi.security.EffectivePermissionCache;
+import com.netdatel.documentserviceapi.security.EffectivePermissionCache.EffectivePermission;
 import com.netdatel.documentserviceapi.service.PermissionService;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.Set;
 
 @Service
 @RequiredArgsConstructor
@@ -26,10 +37,12 @@ public class PermissionServiceImpl implements PermissionService {
     private final FileRepository fileRepository;
     private final FolderPermissionRepository folderPermissionRepository;
     private final FilePermissionRepository filePermissionRepository;
+    private final EffectivePermissionCache permissionCache;
 
     // Folder permissions
 
     @Override
+    @Transactional
     public FolderPermission assignFolderPermission(Integer folderId, PermissionRequest request, Integer grantedBy) {
         log.info("Assigning folder permission for user: {} to folder: {}", request.getUserId(), folderId);
 
@@ -40,27 +53,31 @@ public class PermissionServiceImpl implements PermissionService {
         Optional<FolderPermission> existingPermission = folderPermissionRepository
                 .findByFolderIdAndUserId(folderId, request.getUserId());
 
+        FolderPermission permission;
         if (existingPermission.isPresent()) {
-            FolderPermission permission = existingPermission.get();
+            permission = existingPermission.get();
             updatePermissionValues(permission, request);
             permission.setGrantedBy(grantedBy);
-            return folderPermissionRepository.save(permission);
+        } else {
+            // Si no existe, crear nuevo permiso
+            permission = FolderPermission.builder()
+                    .folder(folder)
+                    .userId(request.getUserId())
+                    .canRead(request.isCanRead())
+                    .canWrite(request.isCanWrite())
+                    .canDelete(request.isCanDelete())
+                    .canDownload(request.isCanDownload())
+                    .grantedBy(grantedBy)
+                    .validUntil(request.getValidUntil())
+                    .isActive(true)
+                    .build();
         }
 
-        // Si no existe, crear nuevo permiso
-        FolderPermission permission = FolderPermission.builder()
-                .folder(folder)
-                .userId(request.getUserId())
-                .canRead(request.isCanRead())
-                .canWrite(request.isCanWrite())
-                .canDelete(request.isCanDelete())
-                .canDownload(request.isCanDownload())
-                .grantedBy(grantedBy)
-                .validUntil(request.getValidUntil())
-                .isActive(true)
-                .build();
+        FolderPermission savedPermission = folderPermissionRepository.save(permission);
+        // Los permisos efectivos del usuario cambian en toda la rama de la carpeta; se invalida tras el commit
+        permissionCache.invalidateSubtree(request.getUserId(), folder.getTreePath());
 
-        return folderPermissionRepository.save(permission);
+        return savedPermission;
     }
 
     @Override
@@ -81,6 +98,7 @@ public class PermissionServiceImpl implements PermissionService {
     }
 
     @Override
+    @Transactional
     public FolderPermission updateFolderPermission(Integer id, PermissionRequest request, Integer updatedBy) {
         log.info("Updating folder permission: {}", id);
 
@@ -88,10 +106,14 @@ public class PermissionServiceImpl implements PermissionService {
         updatePermissionValues(permission, request);
         permission.setGrantedBy(updatedBy);
 
-        return folderPermissionRepository.save(permission);
+        FolderPermission savedPermission = folderPermissionRepository.save(permission);
+        permissionCache.invalidateSubtree(permission.getUserId(), permission.getFolder().getTreePath());
+
+        return savedPermission;
     }
 
     @Override
+    @Transactional
     public void revokeFolderPermission(Integer id) {
         log.info("Revoking folder permission: {}", id);
 
@@ -99,6 +121,7 @@ public class PermissionServiceImpl implements PermissionService {
         permission.setActive(false);
 
         folderPermissionRepository.save(permission);
+        permissionCache.invalidateSubtree(permission.getUserId(), permission.getFolder().getTreePath());
     }
 
     // File permissions
@@ -179,178 +202,136 @@ public class PermissionServiceImpl implements PermissionService {
 
     @Override
     public boolean userCanReadFolder(Integer userId, Integer folderId) {
-        try {
-            Folder folder = folderRepository.findById(folderId)
-                    .orElseThrow(() -> new ResourceNotFoundException("Carpeta no encontrada"));
-
-            // Verificar permiso directo en la carpeta
-            Optional<FolderPermission> permission = folderPermissionRepository.findByFolderIdAndUserId(folderId, userId);
-            if (permission.isPresent() && permission.get().isActive() && permission.get().isCanRead()) {
-                return true;
-            }
-
-            // Si no tiene permiso directo, comprobar en carpetas padres
-            if (folder.getParent() != null) {
-                return userCanReadFolder(userId, folder.getParent().getId());
-            }
-
-            return false;
-        } catch (Exception e) {
-            log.error("Error verifying read permission for user: {} in folder: {}", userId, folderId, e);
-            return false;
-        }
+        return hasFolderPermission(userId, folderId, PermissionBit.READ);
     }
 
     @Override
     public boolean userCanWriteFolder(Integer userId, Integer folderId) {
-        try {
-            Folder folder = folderRepository.findById(folderId)
-                    .orElseThrow(() -> new ResourceNotFoundException("Carpeta no encontrada"));
-
-            // Verificar permiso directo en la carpeta
-            Optional<FolderPermission> permission = folderPermissionRepository.findByFolderIdAndUserId(folderId, userId);
-            if (permission.isPresent() && permission.get().isActive() && permission.get().isCanWrite()) {
-                return true;
-            }
+        return hasFolderPermission(userId, folderId, PermissionBit.WRITE);
+    }
 
-            // Si no tiene permiso directo, comprobar en carpetas padres
-            if (folder.getParent() != null) {
-                return userCanWriteFolder(userId, folder.getParent().getId());
-            }
+    @Override
+    public boolean userCanDeleteFolder(Integer userId, Integer folderId) {
+        return hasFolderPermission(userId, folderId, PermissionBit.DELETE);
+    }
 
-            return false;
-        } catch (Exception e) {
-            log.error("Error verifying write permission for user: {} in folder: {}", userId, folderId, e);
-            return false;
-        }
+    @Override
+    public boolean userCanDownloadFolder(Integer userId, Integer folderId) {
+        return hasFolderPermission(userId, folderId, PermissionBit.DOWNLOAD);
     }
 
     @Override
-    public boolean userCanDeleteFolder(Integer userId, Integer folderId) {
-        try {
-            Folder folder = folderRepository.findById(folderId)
-                    .orElseThrow(() -> new ResourceNotFoundException("Carpeta no encontrada"));
+    public boolean userCanReadFile(Integer userId, Integer fileId) {
+        return hasFilePermission(userId, fileId, PermissionBit.READ);
+    }
 
-            // Verificar permiso directo en la carpeta
-            Optional<FolderPermission> permission = folderPermissionRepository.findByFolderIdAndUserId(folderId, userId);
-            if (permission.isPresent() && permission.get().isActive() && permission.get().isCanDelete()) {
-                return true;
-            }
+    @Override
+    public boolean userCanWriteFile(Integer userId, Integer fileId) {
+        return hasFilePermission(userId, fileId, PermissionBit.WRITE);
+    }
 
-            // Si no tiene permiso directo, comprobar en carpetas padres
-            if (folder.getParent() != null) {
-                return userCanDeleteFolder(userId, folder.getParent().getId());
-            }
+    @Override
+    public boolean userCanDeleteFile(Integer userId, Integer fileId) {
+        return hasFilePermission(userId, fileId, PermissionBit.DELETE);
+    }
 
-            return false;
-        } catch (Exception e) {
-            log.error("Error verifying delete permission for user: {} in folder: {}", userId, folderId, e);
-            return false;
-        }
+    @Override
+    public boolean userCanDownloadFile(Integer userId, Integer fileId) {
+        return hasFilePermission(userId, fileId, PermissionBit.DOWNLOAD);
     }
 
     @Override
-    public boolean userCanDownloadFolder(Integer userId, Integer folderId) {
-        try {
-            Folder folder = folderRepository.findById(folderId)
-                    .orElseThrow(() -> new ResourceNotFoundException("Carpeta no encontrada"));
+    public Map<Integer, Integer> getFolderPermissionMasks(Integer userId, Collection<Integer> folderIds) {
+        Map<Integer, Integer> masks = new HashMap<>();
+        if (folderIds == null || folderIds.isEmpty()) {
+            return masks;
+        }
 
-            // Verificar permiso directo en la carpeta
-            Optional<FolderPermission> permission = folderPermissionRepository.findByFolderIdAndUserId(folderId, userId);
-            if (permission.isPresent() && permission.get().isActive() && permission.get().isCanDownload()) {
-                return true;
-            }
+        Set<Integer> pending = new HashSet<>();
 
-            // Si no tiene permiso directo, comprobar en carpetas padres
-            if (folder.getParent() != null) {
-                return userCanDownloadFolder(userId, folder.getParent().getId());
+        for (Integer folderId : folderIds) {
+            EffectivePermission cached = permissionCache.get(userId, folderId);
+            if (cached != null) {
+                masks.put(folderId, cached.getPermissions());
+            } else {
+                pending.add(folderId);
             }
+        }
 
-            return false;
-        } catch (Exception e) {
-            log.error("Error verifying download permission for user: {} in folder: {}", userId, folderId, e);
-            return false;
+        // Las carpetas que no están en caché se resuelven juntas en una sola consulta
+        if (!pending.isEmpty()) {
+            for (ResourcePermission resolved : folderPermissionRepository.resolveEffectivePermissions(pending, userId)) {
+                int permissions = permissionsOf(resolved);
+                permissionCache.put(userId, resolved.getId(),
+                        new EffectivePermission(permissions, resolved.getTreePath(), resolved.getValidUntil()));
+                masks.put(resolved.getId(), permissions);
+            }
         }
+
+        return masks;
     }
 
     @Override
-    public boolean userCanReadFile(Integer userId, Integer fileId) {
-        try {
-            File file = fileRepository.findById(fileId)
-                    .orElseThrow(() -> new ResourceNotFoundException("Archivo no encontrado"));
-
-            // Verificar permiso directo en el archivo
-            Optional<FilePermission> permission = filePermissionRepository.findByFileIdAndUserId(fileId, userId);
-            if (permission.isPresent() && permission.get().isActive() && permission.get().isCanRead()) {
-                return true;
-            }
+    public Map<Integer, Integer> getFilePermissionMasks(Integer userId, Collection<Integer> fileIds) {
+        Map<Integer, Integer> masks = new HashMap<>();
+        if (fileIds == null || fileIds.isEmpty()) {
+            return masks;
+        }
 
-            // Si no tiene permiso directo, comprobar permiso en la carpeta contenedora
-            return userCanReadFolder(userId, file.getFolder().getId());
-        } catch (Exception e) {
-            log.error("Error verifying read permission for user: {} in file: {}", userId, fileId, e);
-            return false;
+        for (ResourcePermission resolved : filePermissionRepository.resolveEffectivePermissions(
+                new HashSet<>(fileIds), userId)) {
+            masks.put(resolved.getId(), permissionsOf(resolved));
         }
-    }
 
-    @Override
-    public boolean userCanWriteFile(Integer userId, Integer fileId) {
-        try {
-            File file = fileRepository.findById(fileId)
-                    .orElseThrow(() -> new ResourceNotFoundException("Archivo no encontrado"));
+        return masks;
+    }
 
-            // Verificar permiso directo en el archivo
-            Optional<FilePermission> permission = filePermissionRepository.findByFileIdAndUserId(fileId, userId);
-            if (permission.isPresent() && permission.get().isActive() && permission.get().isCanWrite()) {
-                return true;
-            }
+    // Helper methods
 
-            // Si no tiene permiso directo, comprobar permiso en la carpeta contenedora
-            return userCanWriteFolder(userId, file.getFolder().getId());
+    private boolean hasFolderPermission(Integer userId, Integer folderId, PermissionBit permissionBit) {
+        try {
+            return permissionBit.isSet(resolveFolderPermission(userId, folderId).getPermissions());
         } catch (Exception e) {
-            log.error("Error verifying write permission for user: {} in file: {}", userId, fileId, e);
+            log.error("Error verifying {} permission for user: {} in folder: {}", permissionBit, userId, folderId, e);
             return false;
         }
     }
 
-    @Override
-    public boolean userCanDeleteFile(Integer userId, Integer fileId) {
+    private boolean hasFilePermission(Integer userId, Integer fileId, PermissionBit permissionBit) {
         try {
-            File file = fileRepository.findById(fileId)
+            // El permiso directo del archivo y la cadena de carpetas se resuelven en una sola consulta
+            ResolvedPermission resolved = filePermissionRepository.resolveEffectivePermission(fileId, userId)
                     .orElseThrow(() -> new ResourceNotFoundException("Archivo no encontrado"));
 
-            // Verificar permiso directo en el archivo
-            Optional<FilePermission> permission = filePermissionRepository.findByFileIdAndUserId(fileId, userId);
-            if (permission.isPresent() && permission.get().isActive() && permission.get().isCanDelete()) {
-                return true;
-            }
-
-            // Si no tiene permiso directo, comprobar permiso en la carpeta contenedora
-            return userCanDeleteFolder(userId, file.getFolder().getId());
+            return permissionBit.isSet(permissionsOf(resolved));
         } catch (Exception e) {
-            log.error("Error verifying delete permission for user: {} in file: {}", userId, fileId, e);
+            log.error("Error verifying {} permission for user: {} in file: {}", permissionBit, userId, fileId, e);
             return false;
         }
     }
 
-    @Override
-    public boolean userCanDownloadFile(Integer userId, Integer fileId) {
-        try {
-            File file = fileRepository.findById(fileId)
-                    .orElseThrow(() -> new ResourceNotFoundException("Archivo no encontrado"));
+    // Permiso vigente más cercano en la cadena de carpetas; el resultado queda en caché
+    private EffectivePermission resolveFolderPermission(Integer userId, Integer folderId) {
+        EffectivePermission cached = permissionCache.get(userId, folderId);
+        if (cached != null) {
+            return cached;
+        }
 
-            // Verificar permiso directo en el archivo
-            Optional<FilePermission> permission = filePermissionRepository.findByFileIdAndUserId(fileId, userId);
-            if (permission.isPresent() && permission.get().isActive() && permission.get().isCanDownload()) {
-                return true;
-            }
+        ResolvedPermission resolved = folderPermissionRepository.resolveEffectivePermission(folderId, userId)
+                .orElseThrow(() -> new ResourceNotFoundException("Carpeta no encontrada"));
 
-            // Si no tiene permiso directo, comprobar permiso en la carpeta contenedora
-            return userCanDownloadFolder(userId, file.getFolder().getId());
-        } catch (Exception e) {
-            log.error("Error verifying download permission for user: {} in file: {}", userId, fileId, e);
-            return false;
-        }
+        EffectivePermission effective = new EffectivePermission(permissionsOf(resolved),
+                resolved.getTreePath(), resolved.getValidUntil());
+        permissionCache.put(userId, folderId, effective);
+
+        return effective;
+    }
+
+    private int permissionsOf(ResolvedPermission resolved) {
+        return PermissionBit.of(Boolean.TRUE.equals(resolved.getCanRead()),
+                Boolean.TRUE.equals(resolved.getCanWrite()),
+                Boolean.TRUE.equals(resolved.getCanDelete()),
+                Boolean.TRUE.equals(resolved.getCanDownload()));
     }
 
     private void updatePermissionValues(FolderPermission permission, PermissionRequest request) {
@@ -0,0 +1,237 @@
+package com.netdatel.documentserviceapi.service.impl;
+
+import com.netdatel.documentserviceapi.config.QuotaProperties;
+import com.netdatel.documentserviceapi.exception.ResourceNotFoundException;
+import com.netdatel.documentserviceapi.exception.StorageException;
+import com.netdatel.documentserviceapi.model.entity.ClientSpace;
+import com.netdatel.documentserviceapi.repository.ClientSpaceRepository;
+import com.netdatel.documentserviceapi.service.QuotaService;
+import lombok.AllArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Reservas de cuota para subidas en curso. Cada nodo mantiene en memoria, por espacio de cliente, la cuota,
+ * el uso confirmado y los bytes reservados, protegidos por locks repartidos en franjas para no serializar
+ * espacios distintos. El uso se reconcilia periódicamente con la base de datos, que sigue siendo la
+ * garantía final mediante la actualización atómica de ClientSpace.usedBytes al registrar el archivo.
+ */
+@Service
+@Slf4j
+public class QuotaServiceImpl implements QuotaService {
+    private final ClientSpaceRepository clientSpaceRepository;
+    private final ReentrantLock[] stripes;
+    private final Map<Integer, SpaceUsage> spaces = new ConcurrentHashMap<>();
+    private final Map<String, Reservation> reservations = new ConcurrentHashMap<>();
+
+    public QuotaServiceImpl(ClientSpaceRepository clientSpaceRepository, QuotaProperties properties) {
+        this.clientSpaceRepository = clientSpaceRepository;
+        this.stripes = new ReentrantLock[Math.max(1, properties.getLockStripes())];
+        for (int i = 0; i < stripes.length; i++) {
+            stripes[i] = new ReentrantLock();
+        }
+    }
+
+    @Override
+    public void reserve(String reservationKey, Integer clientSpaceId, long bytes, LocalDateTime expiresAt) {
+        SpaceUsage usage = getSpaceUsage(clientSpaceId);
+        long reservedBytes = Math.max(bytes, 0);
+
+        ReentrantLock lock = lockFor(clientSpaceId);
+        lock.lock();
+        try {
+            if (usage.used + usage.reserved + reservedBytes > usage.quota) {
+                throw new StorageException("Cuota de almacenamiento excedida");
+            }
+            usage.reserved += reservedBytes;
+        } finally {
+            lock.unlock();
+        }
+
+        Reservation previous = reservations.put(reservationKey,
+                new Reservation(clientSpaceId, reservedBytes, expiresAt));
+        if (previous != null) {
+            unreserve(previous, false);
+        }
+
+        log.debug("Reserved {} bytes in client space {} for {}", reservedBytes, clientSpaceId, reservationKey);
+    }
+
+    @Override
+    public void commit(String reservationKey) {
+        Reservation reservation = reservations.remove(reservationKey);
+        if (reservation != null) {
+            // Los bytes pasan de reservados a usados hasta la próxima reconciliación
+            unreserve(reservation, true);
+        }
+    }
+
+    @Override
+    public void commit(String reservationKey, long bytes) {
+        Reservation reservation = reservations.remove(reservationKey);
+        if (reservation == null) {
+            return;
+        }
+
+        ReentrantLock lock = lockFor(reservation.clientSpaceId);
+        lock.lock();
+        try {
+            SpaceUsage usage = spaces.get(reservation.clientSpaceId);
+            if (usage != null) {
+                usage.reserved = Math.max(usage.reserved - reservation.bytes, 0);
+                long committed = Math.min(Math.max(bytes, 0), reservation.bytes);
+                usage.used += committed;
+                usage.committedSinceSnapshot += committed;
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public void release(String reservationKey) {
+        Reservation reservation = reservations.remove(reservationKey);
+        if (reservation != null) {
+            unreserve(reservation, false);
+            log.debug("Released {} bytes in client space {} for {}",
+                    reservation.bytes, reservation.clientSpaceId, reservationKey);
+        }
+    }
+
+    @Override
+    @Scheduled(fixedDelayString = "${quota.reconcile-interval:PT30S}")
+    public int reconcile() {
+        // Reservas vencidas: la subida se abandonó sin confirmar ni liberar
+        LocalDateTime now = LocalDateTime.now();
+        int expired = 0;
+        for (Map.Entry<String, Reservation> entry : reservations.entrySet()) {
+            Reservation reservation = entry.getValue();
+            if (reservation.expiresAt != null && reservation.expiresAt.isBefore(now)
+                    && reservations.remove(entry.getKey(), reservation)) {
+                unreserve(reservation, false);
+                expired++;
+            }
+        }
+
+        if (expired > 0) {
+            log.info("Released {} expired quota reservations", expired);
+        }
+
+        // Refrescar cuota y uso con los valores confirmados en la base de datos, incluidos los de otros nodos
+        List<Integer> ids = new ArrayList<>(spaces.keySet());
+        if (ids.isEmpty()) {
+            return expired;
+        }
+
+        // Abrir la ventana antes de leer: lo que se confirme desde aquí puede no estar aún en la lectura
+        for (Integer id : ids) {
+            ReentrantLock lock = lockFor(id);
+            lock.lock();
+            try {
+                SpaceUsage usage = spaces.get(id);
+                if (usage != null) {
+                    usage.committedSinceSnapshot = 0;
+                }
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        Map<Integer, ClientSpace> current = new HashMap<>();
+        for (ClientSpace clientSpace : clientSpaceRepository.findAllById(ids)) {
+            current.put(clientSpace.getId(), clientSpace);
+        }
+
+        for (Integer id : ids) {
+            ClientSpace clientSpace = current.get(id);
+            ReentrantLock lock = lockFor(id);
+            lock.lock();
+            try {
+                SpaceUsage usage = spaces.get(id);
+                if (clientSpace == null) {
+                    spaces.remove(id);
+                } else if (usage != null) {
+                    usage.quota = clientSpace.getTotalQuotaBytes();
+                    // Conservar las confirmaciones hechas durante la lectura; si la base de datos ya las
+                    // incluía se cuentan dos veces hasta la siguiente reconciliación, lo que nunca excede la cuota
+                    usage.used = usedBytesOf(clientSpace) + usage.committedSinceSnapshot;
+                }
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        return expired;
+    }
+
+    // Helper methods
+
+    private SpaceUsage getSpaceUsage(Integer clientSpaceId) {
+        SpaceUsage usage = spaces.get(clientSpaceId);
+        if (usage != null) {
+            return usage;
+        }
+
+        // Primera reserva del espacio en este nodo: cargar el estado confirmado
+        ClientSpace clientSpace = clientSpaceRepository.findById(clientSpaceId)
+                .orElseThrow(() -> new ResourceNotFoundException("Espacio de cliente no encontrado"));
+
+        return spaces.computeIfAbsent(clientSpaceId,
+                id -> new SpaceUsage(clientSpace.getTotalQuotaBytes(), usedBytesOf(clientSpace)));
+    }
+
+    private void unreserve(Reservation reservation, boolean committed) {
+        ReentrantLock lock = lockFor(reservation.clientSpaceId);
+        lock.lock();
+        try {
+            SpaceUsage usage = spaces.get(reservation.clientSpaceId);
+            if (usage != null) {
+                usage.reserved = Math.max(usage.reserved - reservation.bytes, 0);
+                if (committed) {
+                    usage.used += reservation.bytes;
+                    usage.committedSinceSnapshot += reservation.bytes;
+                }
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private ReentrantLock lockFor(Integer clientSpaceId) {
+        return stripes[Math.floorMod(clientSpaceId.hashCode(), stripes.length)];
+    }
+
+    private long usedBytesOf(ClientSpace clientSpace) {
+        return clientSpace.getUsedBytes() != null ? clientSpace.getUsedBytes() : 0L;
+    }
+
+    // Estado de un espacio; sus campos solo se leen y escriben con el lock de su franja
+    private static class SpaceUsage {
+        private long quota;
+        private long used;
+        private long reserved;
+        // Bytes confirmados en este nodo desde que empezó la última lectura de la base de datos
+        private long committedSinceSnapshot;
+
+        private SpaceUsage(long quota, long used) {
+            this.quota = quota;
+            this.used = used;
+        }
+    }
+
+    @AllArgsConstructor
+    private static class Reservation {
+        private final Integer clientSpaceId;
+        private final long bytes;
+        private final LocalDateTime expiresAt;
+    }
+}
@@ -0,0 +1,86 @@
+package com.netdatel.documentserviceapi.service.impl;
+
+import com.netdatel.documentserviceapi.repository.ClientSpaceRepository;
+import com.netdatel.documentserviceapi.repository.StorageBlobRepository;
+import com.netdatel.documentserviceapi.repository.StorageBlobRepositoryCustom.AcquiredBlob;
+import com.netdatel.documentserviceapi.repository.StorageBlobRepositoryCustom.BlobReference;
+import com.netdatel.documentserviceapi.service.StorageBlobService;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Service;
+
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Almacenamiento direccionado por contenido: cada archivo o versión referencia un blob identificado por
+ * el SHA-256 de sus bytes dentro del espacio de cliente. El uso físico del espacio (physicalUsedBytes)
+ * solo cambia cuando se crea o se libera un blob, mientras que usedBytes sigue contando el tamaño lógico.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class StorageBlobServiceImpl implements StorageBlobService {
+    private final StorageBlobRepository storageBlobRepository;
+    private final ClientSpaceRepository clientSpaceRepository;
+
+    @Override
+    public String acquire(Integer clientSpaceId, String contentHash, String storageKey, long size) {
+        AcquiredBlob blob = storageBlobRepository.acquire(clientSpaceId, contentHash, storageKey, size);
+
+        if (blob.created()) {
+            clientSpaceRepository.addPhysicalUsedBytes(clientSpaceId, size);
+        } else {
+            log.debug("Deduplicated content {} in client space {} onto {}", contentHash, clientSpaceId,
+                    blob.storageKey());
+        }
+
+        return blob.storageKey();
+    }
+
+    @Override
+    public Map<String, String> acquireAll(Integer clientSpaceId, Collection<BlobReference> references) {
+        if (references.isEmpty()) {
+            return Map.of();
+        }
+
+        Map<String, AcquiredBlob> blobs = storageBlobRepository.acquireAll(clientSpaceId, references);
+
+        long createdBytes = 0;
+        Map<String, String> blobKeys = new HashMap<>();
+        for (BlobReference reference : references) {
+            AcquiredBlob blob = blobs.get(reference.contentHash());
+            if (blob.created()) {
+                createdBytes += reference.size();
+            }
+            blobKeys.put(reference.contentHash(), blob.storageKey());
+        }
+
+        if (createdBytes > 0) {
+            clientSpaceRepository.addPhysicalUsedBytes(clientSpaceId, createdBytes);
+        }
+        log.debug("Acquired {} blobs in client space {} ({} bytes new)", references.size(), clientSpaceId, createdBytes);
+
+        return blobKeys;
+    }
+
+    @Override
+    public boolean release(Integer clientSpaceId, String storageKey, long size) {
+        boolean unreferenced = storageBlobRepository.release(storageKey);
+
+        if (unreferenced) {
+            clientSpaceRepository.addPhysicalUsedBytes(clientSpaceId, -size);
+        }
+
+        return unreferenced;
+    }
+
+    @Override
+    public void releaseForPurge(Integer clientSpaceId, String storageKey, long size) {
+        // Debe ejecutarse en la transacción que elimina la fila que referenciaba el objeto
+        if (release(clientSpaceId, storageKey, size)) {
+            storageBlobRepository.enqueuePurge(storageKey);
+        }
+    }
+}
@@ -0,0 +1,316 @@
+package com.netdatel.documentserviceapi.service.impl;
+
+import com.netdatel.documentserviceapi.config.StorageGcProperties;
+import com.netdatel.documentserviceapi.service.StorageBlobService;
+import com.netdatel.documentserviceapi.service.StorageService;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.ZonedDateTime;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+/**
+ * Purga de almacenamiento en dos fases. Primero, en una sola transacción, los archivos eliminados pasan a
+ * PURGED sin clave de almacenamiento (la fila se conserva: el historial de accesos, los resúmenes y los
+ * comentarios dependen de ella en cascada), se eliminan las versiones fuera de retención, se liberan sus blobs
+ * (ajustando el uso físico) y los objetos sin referencias se encolan en storage_purge_queue. Después la cola se vacía con removeObjects de MinIO
+ * y solo se borran las entradas cuyos objetos se eliminaron, de modo que una caída en cualquier punto
+ * se recupera en la siguiente ejecución. Las filas se reclaman con SKIP LOCKED para admitir varios nodos;
+ * las de la cola se reservan con available_at y MinIO se llama sin ninguna transacción abierta.
+ * Un objeto que falla maxAttempts veces se aparta de la cola (dead_lettered_at) y se avisa por log y métrica.
+ * Aparte, un barrido periódico encola los objetos del almacenamiento que ninguna fila referencia.
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class StorageGarbageCollector {
+    private final NamedParameterJdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final StorageBlobService storageBlobService;
+    private final StorageService storageService;
+    private final StorageGcProperties properties;
+    private final MeterRegistry meterRegistry;
+
+    @Scheduled(fixedDelayString = "${storage-gc.interval:PT10M}")
+    public void collect() {
+        if (!properties.isEnabled()) {
+            return;
+        }
+
+        try {
+            int files = purgeBatches(this::purgeDeletedFiles);
+            int versions = purgeBatches(this::purgeExpiredVersions);
+            int objects = drainPurgeQueue();
+
+            if (files > 0 || versions > 0 || objects > 0) {
+                log.info("Storage purge: {} deleted files, {} old versions, {} objects removed",
+                        files, versions, objects);
+            }
+        } catch (Exception e) {
+            log.error("Error running storage purge", e);
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${storage-gc.orphan-sweep-interval:PT24H}",
+            initialDelayString = "${storage-gc.interval:PT10M}")
+    public void sweep() {
+        if (!properties.isEnabled() || !properties.isOrphanSweepEnabled()) {
+            return;
+        }
+
+        try {
+            int orphans = sweepOrphanObjects();
+            if (orphans > 0) {
+                log.info("Orphan sweep: {} unreferenced objects queued for removal", orphans);
+            }
+        } catch (Exception e) {
+            log.error("Error running orphan sweep", e);
+        }
+    }
+
+    public int drainPurgeQueue() {
+        int total = 0;
+        int removed;
+        do {
+            removed = removeQueuedObjects();
+            total += removed;
+        } while (removed > 0);
+        return total;
+    }
+
+    /**
+     * Encola los objetos bajo orphanSweepPrefix más antiguos que orphanGracePeriod que no referencia ningún
+     * archivo, versión, blob ni subida activa. La cola se encarga de borrarlos. Si dos nodos barren a la vez,
+     * una clave repetida en la cola solo provoca un borrado redundante.
+     */
+    public int sweepOrphanObjects() {
+        ZonedDateTime cutoff = ZonedDateTime.now().minus(properties.getOrphanGracePeriod());
+
+        int total = 0;
+        List<String> page = new ArrayList<>();
+        for (StorageService.StoredObject object : storageService.listObjects(properties.getOrphanSweepPrefix())) {
+            if (object.lastModified() == null || object.lastModified().isAfter(cutoff)) {
+                continue;
+            }
+
+            page.add(object.key());
+            if (page.size() >= properties.getRemoveBatchSize()) {
+                total += enqueueOrphans(page);
+                page.clear();
+            }
+        }
+        if (!page.isEmpty()) {
+            total += enqueueOrphans(page);
+        }
+
+        return total;
+    }
+
+    // Helper methods
+
+    private int purgeBatches(BatchPurge purge) {
+        int total = 0;
+        int purged;
+        do {
+            Integer batch = transactionTemplate.execute(status -> purge.run());
+            purged = batch != null ? batch : 0;
+            total += purged;
+        } while (purged >= properties.getBatchSize());
+        return total;
+    }
+
+    private int purgeDeletedFiles() {
+        List<Map<String, Object>> files = jdbcTemplate.queryForList(
+                "SELECT f.id, f.storage_key, f.file_size, d.client_space_id FROM document.files f " +
+                "JOIN document.folders d ON d.id = f.folder_id " +
+                "JOIN document.client_spaces cs ON cs.id = d.client_space_id " +
+                "WHERE f.status = 'DELETED' AND f.deleted_at < CURRENT_TIMESTAMP - " +
+                "make_interval(days => COALESCE(cs.deleted_retention_days, :retentionDays)) " +
+                "ORDER BY f.deleted_at LIMIT :limit FOR UPDATE OF f SKIP LOCKED",
+                new MapSqlParameterSource("retentionDays", properties.getDeletedRetentionDays())
+                        .addValue("limit", properties.getBatchSize()));
+
+        if (files.isEmpty()) {
+            return 0;
+        }
+
+        List<Integer> fileIds = files.stream()
+                .map(row -> ((Number) row.get("id")).intValue())
+                .collect(Collectors.toList());
+
+        // Versiones del archivo: se bloquean antes de liberarlas y se saltan las que purgeExpiredVersions ya
+        // reclamó en otro nodo, que las libera él; si su transacción falla, la siguiente ejecución las recoge
+        List<Map<String, Object>> versions = jdbcTemplate.queryForList(
+                "SELECT v.id, v.storage_key, v.file_size, d.client_space_id FROM document.file_versions v " +
+                "JOIN document.files f ON f.id = v.file_id " +
+                "JOIN document.folders d ON d.id = f.folder_id " +
+                "WHERE v.file_id IN (:ids) FOR UPDATE OF v SKIP LOCKED",
+                new MapSqlParameterSource("ids", fileIds));
+
+        files.forEach(this::releaseObject);
+        versions.forEach(this::releaseObject);
+
+        if (!versions.isEmpty()) {
+            List<Integer> versionIds = versions.stream()
+                    .map(row -> ((Number) row.get("id")).intValue())
+                    .collect(Collectors.toList());
+            jdbcTemplate.update("DELETE FROM document.file_versions WHERE id IN (:ids)",
+                    new MapSqlParameterSource("ids", versionIds));
+        }
+
+        // Lápida en lugar de DELETE: borrar la fila arrastraría en cascada el historial de auditoría
+        jdbcTemplate.update("UPDATE document.files SET status = 'PURGED', storage_key = NULL WHERE id IN (:ids)",
+                new MapSqlParameterSource("ids", fileIds));
+
+        return files.size();
+    }
+
+    private int purgeExpiredVersions() {
+        // Se conservan las keepVersions versiones anteriores más recientes y cualquiera más nueva que la retención.
+        // Las versiones que quedaron de un archivo ya purgado se liberan siempre
+        List<Map<String, Object>> versions = jdbcTemplate.queryForList(
+                "SELECT v.id, v.storage_key, v.file_size, d.client_space_id FROM document.file_versions v " +
+                "JOIN document.files f ON f.id = v.file_id " +
+                "JOIN document.folders d ON d.id = f.folder_id " +
+                "JOIN document.client_spaces cs ON cs.id = d.client_space_id " +
+                "WHERE f.status = 'PURGED' OR (v.created_at < CURRENT_TIMESTAMP - " +
+                "make_interval(days => COALESCE(cs.version_retention_days, :retentionDays)) " +
+                "AND (SELECT COUNT(*) FROM document.file_versions n " +
+                "WHERE n.file_id = v.file_id AND n.version_number > v.version_number) " +
+                ">= COALESCE(cs.version_keep_count, :keepVersions)) " +
+                "ORDER BY v.id LIMIT :limit FOR UPDATE OF v SKIP LOCKED",
+                new MapSqlParameterSource("retentionDays", properties.getVersionRetentionDays())
+                        .addValue("keepVersions", properties.getKeepVersions())
+                        .addValue("limit", properties.getBatchSize()));
+
+        if (versions.isEmpty()) {
+            return 0;
+        }
+
+        versions.forEach(this::releaseObject);
+
+        List<Integer> versionIds = versions.stream()
+                .map(row -> ((Number) row.get("id")).intValue())
+                .collect(Collectors.toList());
+        jdbcTemplate.update("DELETE FROM document.file_versions WHERE id IN (:ids)",
+                new MapSqlParameterSource("ids", versionIds));
+
+        return versions.size();
+    }
+
+    private void releaseObject(Map<String, Object> row) {
+        storageBlobService.releaseForPurge(((Number) row.get("client_space_id")).intValue(),
+                (String) row.get("storage_key"), ((Number) row.get("file_size")).longValue());
+    }
+
+    private int removeQueuedObjects() {
+        // Reserva atómica del lote; si el nodo cae, las entradas vuelven a estar disponibles tras claimTimeout
+        List<Map<String, Object>> queued = jdbcTemplate.queryForList(
+                "UPDATE document.storage_purge_queue " +
+                "SET available_at = CURRENT_TIMESTAMP + make_interval(secs => :claimSeconds) " +
+                "WHERE id IN (SELECT id FROM document.storage_purge_queue " +
+                "WHERE dead_lettered_at IS NULL AND available_at <= CURRENT_TIMESTAMP " +
+                "ORDER BY available_at, id LIMIT :limit FOR UPDATE SKIP LOCKED) " +
+                "RETURNING id, storage_key",
+                new MapSqlParameterSource("claimSeconds", properties.getClaimTimeout().toSeconds())
+                        .addValue("limit", properties.getRemoveBatchSize()));
+
+        if (queued.isEmpty()) {
+            return 0;
+        }
+
+        // Fuera de transacción: si MinIO no responde, la excepción deja las entradas reservadas sin gastar intentos
+        Set<String> keys = queued.stream()
+                .map(row -> (String) row.get("storage_key"))
+                .collect(Collectors.toSet());
+        Set<String> failed = new HashSet<>(storageService.deleteFiles(keys));
+
+        List<Long> done = queued.stream()
+                .filter(row -> !failed.contains((String) row.get("storage_key")))
+                .map(row -> ((Number) row.get("id")).longValue())
+                .collect(Collectors.toList());
+        List<Long> retry = queued.stream()
+                .filter(row -> failed.contains((String) row.get("storage_key")))
+                .map(row -> ((Number) row.get("id")).longValue())
+                .collect(Collectors.toList());
+
+        if (!done.isEmpty()) {
+            jdbcTemplate.update("DELETE FROM document.storage_purge_queue WHERE id IN (:ids)",
+                    new MapSqlParameterSource("ids", done));
+        }
+        if (!retry.isEmpty()) {
+            recordFailedRemovals(retry);
+        }
+
+        // Si todo el lote falla se detiene el vaciado hasta la próxima ejecución
+        return done.size();
+    }
+
+    private void recordFailedRemovals(List<Long> ids) {
+        List<String> deadLettered = jdbcTemplate.queryForList(
+                "WITH failed AS (UPDATE document.storage_purge_queue SET attempts = attempts + 1, " +
+                "available_at = CURRENT_TIMESTAMP + make_interval(secs => :retrySeconds), " +
+                "dead_lettered_at = CASE WHEN attempts + 1 >= :maxAttempts THEN CURRENT_TIMESTAMP END " +
+                "WHERE id IN (:ids) RETURNING storage_key, dead_lettered_at) " +
+                "SELECT storage_key FROM failed WHERE dead_lettered_at IS NOT NULL",
+                new MapSqlParameterSource("ids", ids)
+                        .addValue("retrySeconds", properties.getRetryDelay().toSeconds())
+                        .addValue("maxAttempts", properties.getMaxAttempts()),
+                String.class);
+
+        if (deadLettered.isEmpty()) {
+            return;
+        }
+
+        log.error("Giving up on {} storage objects after {} failed removal attempts: {}",
+                deadLettered.size(), properties.getMaxAttempts(), deadLettered);
+        Counter.builder("storage.purge.dead.letter")
+                .description("Objetos que no se pudieron borrar del almacenamiento tras agotar los reintentos")
+                .register(meterRegistry)
+                .increment(deadLettered.size());
+    }
+
+    private int enqueueOrphans(List<String> keys) {
+        MapSqlParameterSource params = new MapSqlParameterSource("keys", keys);
+        Set<String> referenced = new HashSet<>(jdbcTemplate.queryForList(
+                "SELECT storage_key FROM document.files WHERE storage_key IN (:keys) " +
+                "UNION SELECT storage_key FROM document.file_versions WHERE storage_key IN (:keys) " +
+                "UNION SELECT storage_key FROM document.storage_blobs WHERE storage_key IN (:keys) " +
+                "UNION SELECT storage_key FROM document.upload_sessions " +
+                "WHERE status IN ('ACTIVE', 'COMPLETING') AND storage_key IN (:keys) " +
+                "UNION SELECT storage_key FROM document.storage_purge_queue WHERE storage_key IN (:keys)",
+                params, String.class));
+
+        MapSqlParameterSource[] orphans = keys.stream()
+                .filter(key -> !referenced.contains(key))
+                .map(key -> new MapSqlParameterSource("storageKey", key))
+                .toArray(MapSqlParameterSource[]::new);
+
+        if (orphans.length == 0) {
+            return 0;
+        }
+
+        jdbcTemplate.batchUpdate("INSERT INTO document.storage_purge_queue (storage_key) " +
+                "SELECT :storageKey WHERE NOT EXISTS " +
+                "(SELECT 1 FROM document.storage_purge_queue WHERE storage_key = :storageKey)", orphans);
+
+        return orphans.length;
+    }
+
+    @FunctionalInterface
+    private interface BatchPurge {
+        int run();
+    }
+}
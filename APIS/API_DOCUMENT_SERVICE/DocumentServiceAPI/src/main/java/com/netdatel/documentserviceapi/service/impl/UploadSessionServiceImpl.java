@@ -0,0 +1,377 @@
+package com.netdatel.documentserviceapi.service.impl;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.netdatel.documentserviceapi.config.UploadProperties;
+import com.netdatel.documentserviceapi.exception.InvalidRequestException;
+import com.netdatel.documentserviceapi.exception.PermissionDeniedException;
+import com.netdatel.documentserviceapi.exception.ResourceNotFoundException;
+import com.netdatel.documentserviceapi.exception.StorageException;
+import com.netdatel.documentserviceapi.model.dto.request.FileUploadRequest;
+import com.netdatel.documentserviceapi.model.dto.request.UploadSessionRequest;
+import com.netdatel.documentserviceapi.model.entity.ClientSpace;
+import com.netdatel.documentserviceapi.model.entity.File;
+import com.netdatel.documentserviceapi.model.entity.Folder;
+import com.netdatel.documentserviceapi.model.entity.UploadSession;
+import com.netdatel.documentserviceapi.model.entity.UploadSessionPart;
+import com.netdatel.documentserviceapi.model.enums.UploadStatus;
+import com.netdatel.documentserviceapi.repository.FileRepository;
+import com.netdatel.documentserviceapi.repository.FolderRepository;
+import com.netdatel.documentserviceapi.repository.UploadSessionPartRepository;
+import com.netdatel.documentserviceapi.repository.UploadSessionRepository;
+import com.netdatel.documentserviceapi.service.FileService;
+import com.netdatel.documentserviceapi.service.QuotaService;
+import com.netdatel.documentserviceapi.service.StorageService;
+import com.netdatel.documentserviceapi.service.UploadSessionService;
+import com.netdatel.documentserviceapi.utils.MinioUtil;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.security.DigestInputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.LocalDateTime;
+import java.util.HashMap;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Map;
+
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class UploadSessionServiceImpl implements UploadSessionService {
+    private final UploadSessionRepository uploadSessionRepository;
+    private final UploadSessionPartRepository uploadSessionPartRepository;
+    private final FolderRepository folderRepository;
+    private final FileRepository fileRepository;
+    private final StorageService storageService;
+    private final FileService fileService;
+    private final QuotaService quotaService;
+    private final MinioUtil minioUtil;
+    private final UploadProperties uploadProperties;
+    private final TransactionTemplate transactionTemplate;
+    private final ObjectMapper objectMapper;
+
+    @Override
+    public UploadSession initiateUpload(UploadSessionRequest request, Integer userId) {
+        log.info("Initiating upload session for: {} by user: {}", request.getName(), userId);
+
+        // Destino: nueva versión de un archivo existente o archivo nuevo en una carpeta
+        File file = null;
+        Folder folder;
+        if (request.getFileId() != null) {
+            file = fileService.getFile(request.getFileId());
+            folder = file.getFolder();
+        } else {
+            if (request.getFolderId() == null) {
+                throw new InvalidRequestException("Debe especificar la carpeta o el archivo destino");
+            }
+
+            folder = folderRepository.findById(request.getFolderId())
+                    .orElseThrow(() -> new ResourceNotFoundException("Carpeta no encontrada"));
+
+            if (fileRepository.existsByFolderIdAndName(folder.getId(), request.getName())) {
+                throw new InvalidRequestException("Ya existe un archivo con ese nombre en la carpeta");
+            }
+        }
+
+        ClientSpace clientSpace = folder.getClientSpace();
+
+        long chunkSize = resolveChunkSize(request);
+        int totalChunks = (int) ((request.getFileSize() + chunkSize - 1) / chunkSize);
+
+        String contentType = request.getContentType() != null ? request.getContentType() : "application/octet-stream";
+        String storageKey = minioUtil.generateStorageKey(clientSpace.getId(), clientSpace.getModuleId(),
+                file != null ? file.getName() : request.getName());
+        LocalDateTime expiresAt = LocalDateTime.now().plus(uploadProperties.getSessionTtl());
+
+        // Reservar el espacio durante toda la sesión, antes de aceptar cualquier parte
+        long reservedBytes = file != null ? request.getFileSize() - file.getFileSize() : request.getFileSize();
+        quotaService.reserve(storageKey, clientSpace.getId(), reservedBytes, expiresAt);
+
+        try {
+            return createSession(request, userId, file, folder, clientSpace, chunkSize, totalChunks,
+                    contentType, storageKey, expiresAt);
+        } catch (RuntimeException e) {
+            quotaService.release(storageKey);
+            throw e;
+        }
+    }
+
+    @Override
+    public UploadSessionPart uploadChunk(Integer sessionId, int partNumber, InputStream data,
+                                         long size, Integer userId) {
+        UploadSession session = getActiveSession(sessionId, userId);
+
+        if (partNumber < 1 || partNumber > session.getTotalChunks()) {
+            throw new InvalidRequestException("Número de parte fuera de rango");
+        }
+
+        long expectedSize = expectedChunkSize(session, partNumber);
+        if (size != expectedSize) {
+            throw new InvalidRequestException("Tamaño de parte inválido: se esperaban " + expectedSize + " bytes");
+        }
+
+        // Las partes son independientes: se pueden subir en paralelo y reintentar sin afectar a las demás
+        String etag = storageService.uploadPart(session.getStorageKey(), session.getUploadId(),
+                partNumber, data, size);
+
+        // Upsert atómico: dos reintentos simultáneos de la misma parte no chocan en la restricción única
+        uploadSessionPartRepository.upsertPart(sessionId, partNumber, size, etag, LocalDateTime.now());
+
+        return uploadSessionPartRepository.findByUploadSessionIdAndPartNumber(sessionId, partNumber)
+                .orElseThrow(() -> new ResourceNotFoundException("Parte de subida no encontrada"));
+    }
+
+    @Override
+    public UploadSession getUploadSession(Integer sessionId, Integer userId) {
+        UploadSession session = uploadSessionRepository.findById(sessionId)
+                .orElseThrow(() -> new ResourceNotFoundException("Sesión de subida no encontrada"));
+
+        // Verificar que pertenezca al usuario
+        if (!session.getUserId().equals(userId)) {
+            throw new PermissionDeniedException("No tienes permiso para acceder a esta sesión de subida");
+        }
+
+        return session;
+    }
+
+    @Override
+    public List<UploadSessionPart> getUploadedParts(Integer sessionId) {
+        return uploadSessionPartRepository.findByUploadSessionIdOrderByPartNumberAsc(sessionId);
+    }
+
+    @Override
+    public File completeUpload(Integer sessionId, Integer userId) {
+        log.info("Completing upload session: {}", sessionId);
+
+        UploadSession session = getActiveSession(sessionId, userId);
+
+        // Reclamar la sesión: una finalización concurrente, un abort o la expiración ya no la tocan
+        if (uploadSessionRepository.updateStatus(sessionId, UploadStatus.ACTIVE.name(),
+                UploadStatus.COMPLETING.name()) == 0) {
+            throw new InvalidRequestException("La sesión de subida no está activa");
+        }
+
+        try {
+            assemble(session);
+        } catch (RuntimeException e) {
+            // El objeto no llegó a ensamblarse: la sesión vuelve a estar activa para reintentar
+            uploadSessionRepository.updateStatus(sessionId, UploadStatus.COMPLETING.name(), UploadStatus.ACTIVE.name());
+            throw e;
+        }
+
+        // El registro File/FileVersion solo se crea cuando el objeto ya está completo en MinIO
+        File file;
+        try {
+            // Las partes llegan en paralelo y en cualquier orden: el SHA-256 para deduplicar se calcula
+            // releyendo el objeto ensamblado
+            String contentHash = hashObject(session.getStorageKey());
+            if (session.getFile() != null) {
+                file = fileService.registerNewVersion(session.getFile().getId(), session.getStorageKey(), contentHash,
+                        session.getTotalSize(), session.getContentType(), session.getChangeComments(), userId);
+            } else {
+                FileUploadRequest request = FileUploadRequest.builder()
+                        .folderId(session.getFolder().getId())
+                        .name(session.getFileName())
+                        .metadata(parseJson(session.getMetadata()))
+                        .build();
+                file = fileService.registerUploadedFile(request, session.getStorageKey(), contentHash,
+                        session.getTotalSize(), session.getContentType(), userId);
+            }
+        } catch (RuntimeException e) {
+            // El objeto ensamblado no quedó referenciado por ningún archivo: eliminarlo
+            log.error("Error registering uploaded file for session: {}", sessionId, e);
+            storageService.deleteFile(session.getStorageKey());
+            quotaService.release(session.getStorageKey());
+            finishSession(session, UploadStatus.ABORTED);
+            throw e;
+        }
+
+        quotaService.commit(session.getStorageKey());
+        session.setFile(file);
+        finishSession(session, UploadStatus.COMPLETED);
+
+        return file;
+    }
+
+    @Override
+    public void abortUpload(Integer sessionId, Integer userId) {
+        log.info("Aborting upload session: {}", sessionId);
+
+        UploadSession session = getActiveSession(sessionId, userId);
+
+        // Un abort no puede deshacer el multipart upload de una finalización en curso
+        if (uploadSessionRepository.updateStatus(sessionId, UploadStatus.ACTIVE.name(),
+                UploadStatus.ABORTED.name()) == 0) {
+            throw new InvalidRequestException("La sesión de subida no está activa");
+        }
+
+        storageService.abortMultipartUpload(session.getStorageKey(), session.getUploadId());
+        quotaService.release(session.getStorageKey());
+        finishSession(session, UploadStatus.ABORTED);
+    }
+
+    @Override
+    @Scheduled(fixedDelayString = "${upload.cleanup-interval:PT15M}")
+    public int expireStaleSessions() {
+        // Cada nodo reclama y marca como expiradas sus sesiones en una transacción corta; MinIO se llama
+        // después, fuera de ella, y una sesión solo la procesa el nodo que la reclamó
+        List<UploadSession> expired = transactionTemplate.execute(status -> {
+            LocalDateTime now = LocalDateTime.now();
+            List<UploadSession> sessions = uploadSessionRepository.lockExpiredSessions(now,
+                    now.minus(uploadProperties.getCompletingTimeout()));
+            sessions.forEach(session -> finishSession(session, UploadStatus.EXPIRED));
+            return sessions;
+        });
+
+        int count = 0;
+        for (UploadSession session : expired) {
+            try {
+                // Liberar las partes huérfanas en MinIO
+                storageService.abortMultipartUpload(session.getStorageKey(), session.getUploadId());
+            } catch (StorageException e) {
+                log.warn("Could not abort multipart upload for expired session: {}", session.getId());
+            }
+
+            quotaService.release(session.getStorageKey());
+            count++;
+        }
+
+        if (count > 0) {
+            log.info("Expired {} abandoned upload sessions", count);
+        }
+
+        return count;
+    }
+
+    // Helper methods
+
+    private UploadSession createSession(UploadSessionRequest request, Integer userId, File file, Folder folder,
+                                        ClientSpace clientSpace, long chunkSize, int totalChunks,
+                                        String contentType, String storageKey, LocalDateTime expiresAt) {
+        String uploadId = storageService.createMultipartUpload(storageKey, contentType);
+
+        UploadSession session = UploadSession.builder()
+                .userId(userId)
+                .clientSpace(clientSpace)
+                .folder(folder)
+                .file(file)
+                .fileName(file != null ? file.getName() : request.getName())
+                .contentType(contentType)
+                .totalSize(request.getFileSize())
+                .chunkSize(chunkSize)
+                .totalChunks(totalChunks)
+                .storageKey(storageKey)
+                .uploadId(uploadId)
+                .status(UploadStatus.ACTIVE)
+                .metadata(toJson(request.getMetadata()))
+                .changeComments(request.getComment())
+                .expiresAt(expiresAt)
+                .build();
+
+        return uploadSessionRepository.save(session);
+    }
+
+    private UploadSession getActiveSession(Integer sessionId, Integer userId) {
+        UploadSession session = getUploadSession(sessionId, userId);
+
+        if (session.getStatus() != UploadStatus.ACTIVE) {
+            throw new InvalidRequestException("La sesión de subida no está activa");
+        }
+
+        if (session.getExpiresAt() != null && session.getExpiresAt().isBefore(LocalDateTime.now())) {
+            throw new InvalidRequestException("La sesión de subida ha expirado");
+        }
+
+        return session;
+    }
+
+    // Valida las partes y el nombre destino y ensambla el objeto en el almacenamiento
+    private void assemble(UploadSession session) {
+        List<UploadSessionPart> parts = getUploadedParts(session.getId());
+
+        if (parts.size() != session.getTotalChunks()) {
+            throw new InvalidRequestException("Faltan partes por subir: " + parts.size() + " de " + session.getTotalChunks());
+        }
+
+        // Validar de nuevo antes de ensamblar, el nombre pudo ocuparse durante la subida
+        if (session.getFile() == null
+                && fileRepository.existsByFolderIdAndName(session.getFolder().getId(), session.getFileName())) {
+            throw new InvalidRequestException("Ya existe un archivo con ese nombre en la carpeta");
+        }
+
+        Map<Integer, String> partEtags = new HashMap<>();
+        for (UploadSessionPart part : parts) {
+            partEtags.put(part.getPartNumber(), part.getEtag());
+        }
+
+        storageService.completeMultipartUpload(session.getStorageKey(), session.getUploadId(), partEtags);
+    }
+
+    private String hashObject(String storageKey) {
+        try (DigestInputStream content = new DigestInputStream(storageService.getFileStream(storageKey),
+                MessageDigest.getInstance("SHA-256"))) {
+            content.transferTo(OutputStream.nullOutputStream());
+            return HexFormat.of().formatHex(content.getMessageDigest().digest());
+        } catch (IOException | NoSuchAlgorithmException e) {
+            throw new StorageException("Could not read assembled upload", e);
+        }
+    }
+
+    private void finishSession(UploadSession session, UploadStatus status) {
+        session.setStatus(status);
+        session.setCompletedAt(LocalDateTime.now());
+        uploadSessionRepository.save(session);
+    }
+
+    private long resolveChunkSize(UploadSessionRequest request) {
+        long chunkSize = request.getChunkSize() != null ? request.getChunkSize() : uploadProperties.getDefaultChunkSize();
+
+        if (chunkSize < uploadProperties.getMinChunkSize() || chunkSize > uploadProperties.getMaxChunkSize()) {
+            throw new InvalidRequestException("Tamaño de parte fuera de los límites permitidos");
+        }
+
+        if ((request.getFileSize() + chunkSize - 1) / chunkSize > uploadProperties.getMaxChunks()) {
+            throw new InvalidRequestException("El archivo requiere demasiadas partes, aumente el tamaño de parte");
+        }
+
+        return chunkSize;
+    }
+
+    private long expectedChunkSize(UploadSession session, int partNumber) {
+        if (partNumber < session.getTotalChunks()) {
+            return session.getChunkSize();
+        }
+        return session.getTotalSize() - session.getChunkSize() * (session.getTotalChunks() - 1);
+    }
+
+    private String toJson(Map<String, Object> values) {
+        if (values == null || values.isEmpty()) {
+            return null;
+        }
+        try {
+            return objectMapper.writeValueAsString(values);
+        } catch (Exception e) {
+            log.warn("Error converting metadata to JSON", e);
+            return "{}";
+        }
+    }
+
+    private Map<String, Object> parseJson(String json) {
+        try {
+            if (json == null || json.isEmpty() || "{}".equals(json)) {
+                return new HashMap<>();
+            }
+            return objectMapper.readValue(json, new TypeReference<Map<String, Object>>() {});
+        } catch (Exception e) {
+            return new HashMap<>();
+        }
+    }
+}
@@ -0,0 +1,98 @@
+package com.netdatel.documentserviceapi.utils;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * InputStream sobre un rango de un archivo local. Las lecturas son posicionales, así que abrir un rango
+ * no lee los bytes previos, y transferTo copia con FileChannel.transferTo en lugar de un buffer en el heap.
+ */
+public class FileRegionInputStream extends InputStream {
+    private final FileChannel channel;
+    private final long end;
+    private long position;
+
+    private FileRegionInputStream(FileChannel channel, long offset, long length) {
+        this.channel = channel;
+        this.position = offset;
+        this.end = offset + length;
+    }
+
+    public static FileRegionInputStream open(Path path, long offset, long length) throws IOException {
+        FileChannel channel = FileChannel.open(path, StandardOpenOption.READ);
+        try {
+            long size = channel.size();
+            if (offset < 0 || offset > size) {
+                throw new IOException("Offset " + offset + " outside of file of " + size + " bytes");
+            }
+            return new FileRegionInputStream(channel, offset, Math.min(length, size - offset));
+        } catch (IOException e) {
+            channel.close();
+            throw e;
+        }
+    }
+
+    @Override
+    public int read() throws IOException {
+        byte[] single = new byte[1];
+        return read(single, 0, 1) == -1 ? -1 : single[0] & 0xFF;
+    }
+
+    @Override
+    public int read(byte[] b, int off, int len) throws IOException {
+        if (len == 0) {
+            return 0;
+        }
+        if (position >= end) {
+            return -1;
+        }
+
+        ByteBuffer buffer = ByteBuffer.wrap(b, off, (int) Math.min(len, end - position));
+        int read = channel.read(buffer, position);
+        if (read > 0) {
+            position += read;
+        }
+        return read;
+    }
+
+    @Override
+    public long skip(long n) {
+        long skipped = Math.max(0, Math.min(n, end - position));
+        position += skipped;
+        return skipped;
+    }
+
+    @Override
+    public int available() {
+        return (int) Math.min(Integer.MAX_VALUE, end - position);
+    }
+
+    @Override
+    public long transferTo(OutputStream out) throws IOException {
+        // No se cierra el canal destino: cerraría el OutputStream del llamador
+        WritableByteChannel target = Channels.newChannel(out);
+        long transferred = 0;
+        while (position < end) {
+            long count = channel.transferTo(position, end - position, target);
+            if (count <= 0) {
+                // El archivo se truncó mientras se servía
+                break;
+            }
+            position += count;
+            transferred += count;
+        }
+        return transferred;
+    }
+
+    @Override
+    public void close() throws IOException {
+        channel.close();
+    }
+}
@@ -0,0 +1,74 @@
+package com.netdatel.documentserviceapi.utils;
+
+import com.netdatel.documentserviceapi.exception.InvalidRequestException;
+import com.netdatel.documentserviceapi.model.dto.response.CursorPageResponse;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeParseException;
+import java.util.Base64;
+import java.util.List;
+import java.util.function.Function;
+
+/**
+ * Cursor opaco de la paginación por keyset: el valor de la clave de orden y el ID del último elemento
+ * de la página. El ID desempata los valores repetidos, de modo que el orden (clave, id) es estable.
+ */
+public record KeysetCursor(String value, Integer id) {
+
+    public static final int MAX_PAGE_SIZE = 200;
+
+    public String encode() {
+        // El ID va primero porque el valor puede contener el separador
+        String raw = id + ":" + value;
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+    }
+
+    // Valor de la clave de orden para listados ordenados por fecha
+    public LocalDateTime dateValue() {
+        try {
+            return LocalDateTime.parse(value);
+        } catch (DateTimeParseException e) {
+            throw new InvalidRequestException("Cursor inválido");
+        }
+    }
+
+    /**
+     * @return el cursor decodificado, o null si no se indicó (primera página)
+     */
+    public static KeysetCursor decode(String cursor) {
+        if (cursor == null || cursor.isEmpty()) {
+            return null;
+        }
+
+        try {
+            String raw = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+            int separator = raw.indexOf(':');
+            return new KeysetCursor(raw.substring(separator + 1), Integer.valueOf(raw.substring(0, separator)));
+        } catch (IllegalArgumentException | IndexOutOfBoundsException e) {
+            throw new InvalidRequestException("Cursor inválido");
+        }
+    }
+
+    public static void checkPageSize(int size) {
+        if (size < 1 || size > MAX_PAGE_SIZE) {
+            throw new InvalidRequestException("El tamaño de página debe estar entre 1 y " + MAX_PAGE_SIZE);
+        }
+    }
+
+    /**
+     * Arma la página a partir de una consulta que pidió un elemento de más para saber si hay otra página.
+     *
+     * @param cursorOf cursor de un elemento, usado con el último de la página
+     */
+    public static <T> CursorPageResponse<T> toPage(List<T> rows, int size, Function<T, KeysetCursor> cursorOf) {
+        boolean hasMore = rows.size() > size;
+        List<T> items = hasMore ? rows.subList(0, size) : rows;
+
+        return CursorPageResponse.<T>builder()
+                .items(items)
+                .nextCursor(hasMore ? cursorOf.apply(items.get(items.size() - 1)).encode() : null)
+                .hasMore(hasMore)
+                .build();
+    }
+}
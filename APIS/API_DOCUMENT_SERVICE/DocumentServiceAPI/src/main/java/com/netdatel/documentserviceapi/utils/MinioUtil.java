@@ -1,4 +1,22 @@
 package com.netdatel.documentserviceapi.utils;
 
+import org.springframework.stereotype.Component;
+
+import java.time.LocalDateTime;
+import java.util.UUID;
+
+@Component
 public class MinioUtil {
+
+    /**
+     * Genera una clave de almacenamiento única para un archivo del espacio de cliente
+     */
+    public String generateStorageKey(Integer clientSpaceId, Integer moduleId, String fileName) {
+        LocalDateTime now = LocalDateTime.now();
+        String datePath = String.format("%d/%02d/%02d", now.getYear(), now.getMonthValue(), now.getDayOfMonth());
+        String uniqueId = UUID.randomUUID().toString();
+
+        return String.format("clients/%d/module_%d/%s/%s_%s",
+                clientSpaceId, moduleId, datePath, uniqueId, fileName);
+    }
 }
@@ -0,0 +1,108 @@
+package com.netdatel.documentserviceapi.utils;
+
+import com.netdatel.documentserviceapi.service.StorageService;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * OutputStream que envía lo escrito a un multipart upload de almacenamiento, una parte a la vez.
+ * La memoria usada se limita al tamaño de parte, sin importar el tamaño total del objeto.
+ */
+public class MultipartUploadOutputStream extends OutputStream {
+    private final StorageService storageService;
+    private final String objectKey;
+    private final String uploadId;
+    private final byte[] buffer;
+    private final Map<Integer, String> partEtags = new HashMap<>();
+
+    private int position = 0;
+    private int partNumber = 1;
+    private long bytesWritten = 0;
+    private boolean closed = false;
+
+    public MultipartUploadOutputStream(StorageService storageService, String objectKey,
+                                       String contentType, int partSize) {
+        this.storageService = storageService;
+        this.objectKey = objectKey;
+        this.uploadId = storageService.createMultipartUpload(objectKey, contentType);
+        this.buffer = new byte[partSize];
+    }
+
+    @Override
+    public void write(int b) throws IOException {
+        if (position == buffer.length) {
+            flushPart();
+        }
+        buffer[position++] = (byte) b;
+        bytesWritten++;
+    }
+
+    @Override
+    public void write(byte[] data, int offset, int length) throws IOException {
+        while (length > 0) {
+            if (position == buffer.length) {
+                flushPart();
+            }
+            int count = Math.min(length, buffer.length - position);
+            System.arraycopy(data, offset, buffer, position, count);
+            position += count;
+            offset += count;
+            length -= count;
+            bytesWritten += count;
+        }
+    }
+
+    /**
+     * Sube la última parte y completa el objeto
+     */
+    @Override
+    public void close() throws IOException {
+        if (closed) {
+            return;
+        }
+        closed = true;
+
+        // Siempre se sube al menos una parte, aunque el objeto esté vacío
+        if (position > 0 || partEtags.isEmpty()) {
+            flushPart();
+        }
+        try {
+            storageService.completeMultipartUpload(objectKey, uploadId, partEtags);
+        } catch (RuntimeException e) {
+            throw new IOException("Could not complete multipart upload", e);
+        }
+    }
+
+    /**
+     * Descarta las partes subidas cuando la generación del objeto falla
+     */
+    public void abort() {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        storageService.abortMultipartUpload(objectKey, uploadId);
+    }
+
+    public long getBytesWritten() {
+        return bytesWritten;
+    }
+
+    private void flushPart() throws IOException {
+        String etag;
+        try {
+            etag = storageService.uploadPart(objectKey, uploadId, partNumber,
+                    new ByteArrayInputStream(buffer, 0, position), position);
+        } catch (RuntimeException e) {
+            // Los errores del destino se reportan como IOException, igual que cualquier OutputStream
+            throw new IOException("Could not upload part " + partNumber, e);
+        }
+        partEtags.put(partNumber, etag);
+        partNumber++;
+        position = 0;
+    }
+}
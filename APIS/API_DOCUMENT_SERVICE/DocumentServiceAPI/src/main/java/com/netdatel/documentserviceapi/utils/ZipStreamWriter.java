@@ -0,0 +1,179 @@
+package com.netdatel.documentserviceapi.utils;
+
+import com.netdatel.documentserviceapi.config.BatchDownloadProperties;
+import com.netdatel.documentserviceapi.service.StorageService;
+import jakarta.annotation.PreDestroy;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.SequenceInputStream;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+/**
+ * Genera un ZIP en streaming a partir de objetos de almacenamiento.
+ * Los objetos de la ventana de prefetch se abren con la API asíncrona, sin hilo mientras se espera a MinIO;
+ * un pool acotado solo lee su inicio una vez llegan las cabeceras, mientras un único escritor los vuelca
+ * en orden al ZipOutputStream. La memoria queda limitada por la ventana de prefetch.
+ */
+@Component
+@Slf4j
+public class ZipStreamWriter {
+    private static final int COPY_BUFFER_SIZE = 64 * 1024;
+
+    private final StorageService storageService;
+    private final BatchDownloadProperties properties;
+    private final ExecutorService prefetchExecutor;
+
+    public ZipStreamWriter(StorageService storageService, BatchDownloadProperties properties) {
+        this.storageService = storageService;
+        this.properties = properties;
+
+        AtomicInteger threadCount = new AtomicInteger();
+        this.prefetchExecutor = Executors.newFixedThreadPool(properties.getPrefetchThreads(), runnable -> {
+            Thread thread = new Thread(runnable, "ZipPrefetch-" + threadCount.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        prefetchExecutor.shutdownNow();
+    }
+
+    /**
+     * Escribe las entradas en un ZIP sobre el OutputStream indicado, que no se cierra.
+     * Los archivos que no se pueden abrir se omiten y se registran en el log. Un error de lectura con la
+     * entrada ya abierta es fatal: los bytes escritos no se pueden retirar y el ZIP quedaría con un archivo
+     * truncado pero con un CRC válido.
+     *
+     * @return IDs de los archivos agregados al ZIP, sin los omitidos
+     */
+    public List<Integer> writeZip(List<ZipItem> items, OutputStream out, ProgressListener progressListener)
+            throws IOException {
+        ZipOutputStream zipOut = new ZipOutputStream(out);
+        Deque<Prefetched> window = new ArrayDeque<>();
+        Iterator<ZipItem> pending = items.iterator();
+        List<Integer> writtenFileIds = new ArrayList<>(items.size());
+
+        try {
+            fillWindow(window, pending);
+
+            byte[] buffer = new byte[COPY_BUFFER_SIZE];
+            while (!window.isEmpty()) {
+                Prefetched next = window.poll();
+                // Mantener la ventana llena mientras se escribe el archivo actual
+                fillWindow(window, pending);
+
+                ZipItem item = next.item;
+                InputStream content;
+                try {
+                    // El prefetch ya leyó el inicio del objeto: si falla, aún no se escribió nada de esta entrada
+                    content = next.content.join();
+                } catch (CompletionException | CancellationException e) {
+                    log.error("Error opening file for ZIP, skipping it: {}", item.getFileId(), e);
+                    continue;
+                }
+
+                try {
+                    zipOut.putNextEntry(new ZipEntry(item.getEntryPath()));
+                    int read;
+                    while ((read = readSource(item, content, buffer)) != -1) {
+                        zipOut.write(buffer, 0, read);
+                    }
+                    zipOut.closeEntry();
+                } finally {
+                    closeQuietly(content);
+                }
+
+                writtenFileIds.add(item.getFileId());
+                if (progressListener != null) {
+                    progressListener.onFileAdded(writtenFileIds.size());
+                }
+            }
+
+            zipOut.finish();
+            zipOut.flush();
+        } finally {
+            // Liberar las conexiones de los archivos ya pedidos si el proceso se interrumpe
+            for (Prefetched prefetched : window) {
+                prefetched.content.thenAccept(this::closeQuietly);
+            }
+        }
+
+        return writtenFileIds;
+    }
+
+    // Con la entrada abierta no se puede omitir el archivo: el error de lectura aborta todo el ZIP
+    private int readSource(ZipItem item, InputStream content, byte[] buffer) throws IOException {
+        try {
+            return content.read(buffer);
+        } catch (IOException e) {
+            throw new IOException("Error reading file " + item.getFileId() + " while adding it to the ZIP", e);
+        }
+    }
+
+    private void fillWindow(Deque<Prefetched> window, Iterator<ZipItem> pending) {
+        while (window.size() < properties.getPrefetchWindow() && pending.hasNext()) {
+            ZipItem item = pending.next();
+            window.add(new Prefetched(item, storageService.getFileStreamAsync(item.getStorageKey())
+                    .thenApplyAsync(stream -> prefetch(item, stream), prefetchExecutor)));
+        }
+    }
+
+    private InputStream prefetch(ZipItem item, InputStream stream) {
+        try {
+            // Leer el inicio del objeto para solapar la transferencia con la escritura del archivo anterior
+            byte[] head = stream.readNBytes(properties.getPrefetchBufferSize());
+            return new SequenceInputStream(new ByteArrayInputStream(head), stream);
+        } catch (IOException e) {
+            closeQuietly(stream);
+            throw new IllegalStateException("Could not prefetch file " + item.getFileId(), e);
+        }
+    }
+
+    private void closeQuietly(InputStream stream) {
+        try {
+            stream.close();
+        } catch (IOException e) {
+            log.debug("Error closing prefetched stream", e);
+        }
+    }
+
+    @Getter
+    @AllArgsConstructor
+    public static class ZipItem {
+        private final Integer fileId;
+        private final String entryPath;
+        private final String storageKey;
+    }
+
+    @FunctionalInterface
+    public interface ProgressListener {
+        void onFileAdded(int processedFiles);
+    }
+
+    @AllArgsConstructor
+    private static class Prefetched {
+        private final ZipItem item;
+        private final CompletableFuture<InputStream> content;
+    }
+}
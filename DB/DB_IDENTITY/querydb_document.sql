@@ -13,6 +13,11 @@ CREATE TABLE client_spaces (
     storage_path VARCHAR(255) NOT NULL,
     total_quota_bytes BIGINT NOT NULL,
     used_bytes BIGINT DEFAULT 0,
+    physical_used_bytes BIGINT DEFAULT 0,
+    -- Retención de la purga de almacenamiento; NULL usa los valores por defecto de storage-gc
+    deleted_retention_days INTEGER,
+    version_keep_count INTEGER,
+    version_retention_days INTEGER,
     is_active BOOLEAN DEFAULT TRUE,
     created_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP,
     updated_at TIMESTAMP,
@@ -28,6 +33,7 @@ CREATE TABLE folders (
     description TEXT,
     parent_id INTEGER REFERENCES folders(id) ON DELETE CASCADE,
     path VARCHAR(1000) NOT NULL,
+    tree_path VARCHAR(1000) NOT NULL,
     created_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP,
     created_by INTEGER NOT NULL,
     updated_at TIMESTAMP,
@@ -45,20 +51,31 @@ CREATE TABLE files (
     file_size BIGINT NOT NULL,
     mime_type VARCHAR(127) NOT NULL,
     storage_path VARCHAR(1000) NOT NULL,
-    storage_key VARCHAR(255) NOT NULL,
+    -- Nulo solo en archivos purgados: la fila se conserva para el historial de accesos y los resúmenes
+    storage_key VARCHAR(255),
     hash_value VARCHAR(255),
-    status VARCHAR(20) DEFAULT 'ACTIVE' CHECK (status IN ('ACTIVE', 'DELETED', 'ARCHIVED')),
+    status VARCHAR(20) DEFAULT 'ACTIVE' CHECK (status IN ('ACTIVE', 'DELETED', 'ARCHIVED', 'PURGED')),
     view_status VARCHAR(20) DEFAULT 'NEW' CHECK (view_status IN ('NEW', 'VIEWED', 'DOWNLOADED', 'NOT_DOWNLOADED')),
     view_status_color VARCHAR(20) DEFAULT 'BLUE' CHECK (view_status_color IN ('BLUE', 'AMBER', 'GREEN', 'RED')),
-    upload_date TIMESTAMP DEFAULT CURRENT_TIMESTAMP,
+    upload_date TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP,
     last_viewed_date TIMESTAMP,
     last_downloaded_date TIMESTAMP,
+    deleted_at TIMESTAMP,
     uploaded_by INTEGER NOT NULL,
     version INTEGER DEFAULT 1,
     metadata JSONB DEFAULT '{}'::jsonb,
-    UNIQUE(folder_id, name)
+    -- Índice de búsqueda: nombre (A), nombre original (B), ruta y valores de metadatos/etiquetas (C)
+    search_vector TSVECTOR GENERATED ALWAYS AS (
+        setweight(to_tsvector('simple'::regconfig, translate(coalesce(name, ''), '/_-.', '    ')), 'A') ||
+        setweight(to_tsvector('simple'::regconfig, translate(coalesce(original_name, ''), '/_-.', '    ')), 'B') ||
+        setweight(to_tsvector('simple'::regconfig, translate(coalesce(storage_path, ''), '/_-.', '    ')), 'C') ||
+        setweight(jsonb_to_tsvector('simple'::regconfig, coalesce(metadata, '{}'::jsonb), '["string"]'), 'C')
+    ) STORED
 );
 
+-- Un archivo purgado no ocupa su nombre en la carpeta
+CREATE UNIQUE INDEX uq_files_folder_name ON files(folder_id, name) WHERE status <> 'PURGED';
+
 CREATE TABLE file_versions (
     id SERIAL PRIMARY KEY,
     file_id INTEGER NOT NULL REFERENCES files(id) ON DELETE CASCADE,
@@ -111,21 +128,37 @@ CREATE TABLE file_comments (
     file_id INTEGER NOT NULL REFERENCES files(id) ON DELETE CASCADE,
     user_id INTEGER NOT NULL,
     comment_text TEXT NOT NULL,
-    created_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP,
+    created_at TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP,
     updated_at TIMESTAMP,
     parent_comment_id INTEGER REFERENCES file_comments(id) ON DELETE CASCADE,
     is_active BOOLEAN DEFAULT TRUE
 );
 
+-- Particionada por mes; las particiones se crean por adelantado y se eliminan al vencer la retención
 CREATE TABLE file_access_history (
-    id SERIAL PRIMARY KEY,
+    id SERIAL,
     file_id INTEGER REFERENCES files(id) ON DELETE CASCADE,
     user_id INTEGER NOT NULL,
     action_type VARCHAR(50) NOT NULL CHECK (action_type IN ('VIEW', 'DOWNLOAD', 'CREATE', 'UPDATE', 'DELETE')),
-    action_date TIMESTAMP DEFAULT CURRENT_TIMESTAMP,
+    action_date TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP,
     ip_address VARCHAR(45),
     device_info VARCHAR(255),
-    additional_info JSONB
+    additional_info JSONB,
+    PRIMARY KEY (id, action_date)
+) PARTITION BY RANGE (action_date);
+
+-- Recoge filas fuera de las particiones mensuales existentes
+CREATE TABLE file_access_history_default PARTITION OF file_access_history DEFAULT;
+
+-- Conteos diarios por archivo, usuario y acción, mantenidos por el escritor de auditoría
+CREATE TABLE file_access_daily_rollups (
+    access_date DATE NOT NULL,
+    file_id INTEGER NOT NULL REFERENCES files(id) ON DELETE CASCADE,
+    user_id INTEGER NOT NULL,
+    action_type VARCHAR(50) NOT NULL,
+    access_count BIGINT NOT NULL DEFAULT 0,
+    last_action_at TIMESTAMP,
+    PRIMARY KEY (access_date, file_id, user_id, action_type)
 );
 
 
@@ -133,16 +166,77 @@ CREATE TABLE batch_downloads (
     id SERIAL PRIMARY KEY,
     user_id INTEGER NOT NULL,
     folder_id INTEGER NOT NULL REFERENCES folders(id),
+    client_space_id INTEGER NOT NULL REFERENCES client_spaces(id) ON DELETE CASCADE,
     status VARCHAR(20) NOT NULL DEFAULT 'PENDING' CHECK (status IN ('PENDING', 'PROCESSING', 'COMPLETED', 'FAILED')),
     total_files INTEGER,
     processed_files INTEGER DEFAULT 0,
     download_url VARCHAR(1000),
-    created_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP,
+    created_at TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP,
     completed_at TIMESTAMP,
     expiration_time TIMESTAMP,
     file_size_bytes BIGINT,
     include_subfolders BOOLEAN DEFAULT TRUE,
-    error_message TEXT
+    error_message TEXT,
+    worker_id VARCHAR(100),
+    started_at TIMESTAMP,
+    heartbeat_at TIMESTAMP,
+    attempts INTEGER NOT NULL DEFAULT 0
+);
+
+-- Sesiones de subida reanudable (cada parte corresponde a una parte del multipart upload de MinIO)
+CREATE TABLE upload_sessions (
+    id SERIAL PRIMARY KEY,
+    user_id INTEGER NOT NULL,
+    client_space_id INTEGER NOT NULL REFERENCES client_spaces(id) ON DELETE CASCADE,
+    folder_id INTEGER NOT NULL REFERENCES folders(id) ON DELETE CASCADE,
+    file_id INTEGER REFERENCES files(id) ON DELETE CASCADE,
+    file_name VARCHAR(255) NOT NULL,
+    content_type VARCHAR(127) NOT NULL,
+    total_size BIGINT NOT NULL,
+    chunk_size BIGINT NOT NULL,
+    total_chunks INTEGER NOT NULL,
+    storage_key VARCHAR(255) NOT NULL,
+    upload_id VARCHAR(255) NOT NULL,
+    status VARCHAR(20) NOT NULL DEFAULT 'ACTIVE' CHECK (status IN ('ACTIVE', 'COMPLETING', 'COMPLETED', 'ABORTED', 'EXPIRED')),
+    metadata JSONB,
+    change_comments TEXT,
+    created_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP,
+    expires_at TIMESTAMP,
+    completed_at TIMESTAMP
+);
+
+CREATE TABLE upload_session_parts (
+    id SERIAL PRIMARY KEY,
+    upload_session_id INTEGER NOT NULL REFERENCES upload_sessions(id) ON DELETE CASCADE,
+    part_number INTEGER NOT NULL,
+    part_size BIGINT NOT NULL,
+    etag VARCHAR(255) NOT NULL,
+    uploaded_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP,
+    UNIQUE(upload_session_id, part_number)
+);
+
+-- Contenido deduplicado por espacio de cliente: un objeto de MinIO por SHA-256
+CREATE TABLE storage_blobs (
+    id SERIAL PRIMARY KEY,
+    client_space_id INTEGER NOT NULL REFERENCES client_spaces(id) ON DELETE CASCADE,
+    content_hash VARCHAR(64),
+    storage_key VARCHAR(255) NOT NULL UNIQUE,
+    size_bytes BIGINT NOT NULL,
+    ref_count INTEGER NOT NULL DEFAULT 1,
+    created_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP,
+    UNIQUE(client_space_id, content_hash)
+);
+
+-- Objetos ya sin referencias pendientes de borrar en MinIO; se encolan en la misma transacción
+-- que elimina sus filas, así una caída no deja objetos huérfanos. available_at hace de reserva mientras
+-- un nodo borra la entrada y de espera entre reintentos; tras demasiados fallos se aparta (dead_lettered_at)
+CREATE TABLE storage_purge_queue (
+    id BIGSERIAL PRIMARY KEY,
+    storage_key VARCHAR(255) NOT NULL,
+    enqueued_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP,
+    attempts INTEGER NOT NULL DEFAULT 0,
+    available_at TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP,
+    dead_lettered_at TIMESTAMP
 );
 
 CREATE EXTENSION IF NOT EXISTS pg_trgm;
@@ -152,18 +246,34 @@ CREATE INDEX idx_client_spaces_client_id ON client_spaces(client_id);
 CREATE INDEX idx_client_spaces_module_id ON client_spaces(module_id);
 
 CREATE INDEX idx_folders_client_space_id ON folders(client_space_id);
-CREATE INDEX idx_folders_parent_id ON folders(parent_id);
+-- Listados paginados por cursor: (clave de orden, id) como desempate estable
+CREATE INDEX idx_folders_parent_name ON folders(parent_id, name, id);
+CREATE INDEX idx_folders_root_name ON folders(client_space_id, name, id) WHERE parent_id IS NULL;
 CREATE INDEX idx_folders_path ON folders(path);
+-- Índice del subárbol: permite LIKE 'prefijo%' con ruta de IDs
+CREATE INDEX idx_folders_tree_path ON folders(tree_path varchar_pattern_ops);
 CREATE INDEX idx_folders_path_gin ON folders USING gin(path gin_trgm_ops);
 
-CREATE INDEX idx_files_folder_id ON files(folder_id);
+-- Listado de una carpeta por cursor, uno por cada clave de orden; también sirven las búsquedas por folder_id
+CREATE INDEX idx_files_folder_name ON files(folder_id, status, name, id);
+CREATE INDEX idx_files_folder_upload_date ON files(folder_id, status, upload_date, id);
+CREATE INDEX idx_files_folder_size ON files(folder_id, status, file_size, id);
 CREATE INDEX idx_files_name ON files(name);
 CREATE INDEX idx_files_view_status ON files(view_status);
 CREATE INDEX idx_files_uploaded_by ON files(uploaded_by);
 CREATE INDEX idx_files_mime_type ON files(mime_type);
 CREATE INDEX idx_files_upload_date ON files(upload_date);
+CREATE INDEX idx_files_deleted_at ON files(deleted_at) WHERE status = 'DELETED';
+
+CREATE INDEX idx_file_versions_file_id ON file_versions(file_id, version_number);
+CREATE INDEX idx_file_versions_created_at ON file_versions(created_at);
 
-CREATE INDEX idx_file_versions_file_id ON file_versions(file_id);
+-- Barrido de objetos huérfanos: comprobar si una clave de almacenamiento sigue referenciada
+CREATE INDEX idx_files_storage_key ON files(storage_key);
+CREATE INDEX idx_file_versions_storage_key ON file_versions(storage_key);
+CREATE INDEX idx_upload_sessions_storage_key ON upload_sessions(storage_key) WHERE status IN ('ACTIVE', 'COMPLETING');
+CREATE INDEX idx_storage_purge_queue_storage_key ON storage_purge_queue(storage_key);
+CREATE INDEX idx_storage_purge_queue_available ON storage_purge_queue(available_at, id) WHERE dead_lettered_at IS NULL;
 
 CREATE INDEX idx_folder_permissions_folder_id ON folder_permissions(folder_id);
 CREATE INDEX idx_folder_permissions_user_id ON folder_permissions(user_id);
@@ -171,22 +281,33 @@ CREATE INDEX idx_folder_permissions_user_id ON folder_permissions(user_id);
 CREATE INDEX idx_file_permissions_file_id ON file_permissions(file_id);
 CREATE INDEX idx_file_permissions_user_id ON file_permissions(user_id);
 
-CREATE INDEX idx_file_comments_file_id ON file_comments(file_id);
+CREATE INDEX idx_file_comments_file_id ON file_comments(file_id, is_active, created_at, id);
 CREATE INDEX idx_file_comments_user_id ON file_comments(user_id);
 CREATE INDEX idx_file_comments_parent_comment_id ON file_comments(parent_comment_id);
 
-CREATE INDEX idx_file_access_history_file_id ON file_access_history(file_id);
-CREATE INDEX idx_file_access_history_user_id ON file_access_history(user_id);
+CREATE INDEX idx_file_access_history_file_id ON file_access_history(file_id, action_date DESC);
+CREATE INDEX idx_file_access_history_user_id ON file_access_history(user_id, action_date DESC);
 CREATE INDEX idx_file_access_history_action_date ON file_access_history(action_date);
 CREATE INDEX idx_file_access_history_action_type ON file_access_history(action_type);
 
-CREATE INDEX idx_batch_downloads_user_id ON batch_downloads(user_id);
+CREATE INDEX idx_file_access_daily_rollups_file ON file_access_daily_rollups(file_id, access_date);
+CREATE INDEX idx_file_access_daily_rollups_user ON file_access_daily_rollups(user_id, access_date);
+
+CREATE INDEX idx_batch_downloads_user_id ON batch_downloads(user_id, created_at, id);
 CREATE INDEX idx_batch_downloads_folder_id ON batch_downloads(folder_id);
 CREATE INDEX idx_batch_downloads_status ON batch_downloads(status);
+CREATE INDEX idx_batch_downloads_pending ON batch_downloads(created_at, id) WHERE status = 'PENDING';
+CREATE INDEX idx_batch_downloads_processing ON batch_downloads(client_space_id, heartbeat_at) WHERE status = 'PROCESSING';
+
+CREATE INDEX idx_upload_sessions_user_id ON upload_sessions(user_id);
+CREATE INDEX idx_upload_sessions_status_expires ON upload_sessions(status, expires_at);
 
 -- Índices para búsqueda de texto
 CREATE INDEX idx_files_name_trgm ON files USING gin(name gin_trgm_ops);
-CREATE INDEX idx_files_metadata_gin ON files USING gin(metadata jsonb_path_ops);
+CREATE INDEX idx_files_original_name_trgm ON files USING gin(original_name gin_trgm_ops);
+CREATE INDEX idx_files_search_vector ON files USING gin(search_vector);
+-- jsonb_ops (no jsonb_path_ops) para servir también la existencia de claves (?) además de la contención (@>)
+CREATE INDEX idx_files_metadata_gin ON files USING gin(metadata);
 
 -- Funcion para Calcular Tamaño de Carpeta
 
@@ -345,7 +466,10 @@ CREATE OR REPLACE FUNCTION initiate_batch_download(
 DECLARE
     v_batch_id INTEGER;
     v_total_files INTEGER;
+    v_client_space_id INTEGER;
 BEGIN
+    SELECT client_space_id INTO v_client_space_id FROM folders WHERE id = p_folder_id;
+
     -- Contar archivos a descargar
     IF p_include_subfolders THEN
         WITH RECURSIVE folder_tree AS (
@@ -369,6 +493,7 @@ BEGIN
     INSERT INTO batch_downloads (
         user_id,
         folder_id,
+        client_space_id,
         status,
         total_files,
         include_subfolders,
@@ -376,6 +501,7 @@ BEGIN
     ) VALUES (
         p_user_id,
         p_folder_id,
+        v_client_space_id,
         'PENDING',
         v_total_files,
         p_include_subfolders,